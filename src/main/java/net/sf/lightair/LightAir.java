@@ -1,5 +1,7 @@
 package net.sf.lightair;
 
+import java.sql.Connection;
+
 import net.sf.lightair.annotation.Setup;
 import net.sf.lightair.annotation.Verify;
 import net.sf.lightair.internal.factory.Factory;
@@ -33,6 +35,31 @@ public class LightAir extends BlockJUnit4ClassRunner {
 		super(clazz);
 	}
 
+	/**
+	 * Return JDBC connection Light air runs setup and verify on for a profile.
+	 * <p>
+	 * With property <code>setup.savepoint=true</code>, a class-level @
+	 * {@link Setup} is inserted once and each test method is rolled back to a
+	 * savepoint of this connection. Test code must run on this connection and
+	 * must not commit for its changes to be rolled back.
+	 * 
+	 * @param profile
+	 *            Profile, empty for the default profile
+	 * @return JDBC connection
+	 * @throws IllegalStateException
+	 *             If no connection is bound to the profile, typically outside
+	 *             of a test method with class-level setup in savepoint mode
+	 */
+	public static Connection getConnection(String profile) {
+		Connection connection = Factory.getInstance().getDbUnitWrapper()
+				.getTransactionConnection(profile);
+		if (null == connection) {
+			throw new IllegalStateException(
+					"No connection is bound to profile [" + profile + "].");
+		}
+		return connection;
+	}
+
 	/**
 	 * Overriding methodInvoker in order to place LightAir's test rules as the
 	 * leading ones.
@@ -45,7 +72,8 @@ public class LightAir extends BlockJUnit4ClassRunner {
 	}
 
 	/**
-	 * Overriding classBlock in order to add connection closing listener.
+	 * Overriding classBlock in order to add connection closing listener and to
+	 * release savepoints of the class setup after the class.
 	 * */
 	@Override
 	protected Statement classBlock(final RunNotifier notifier) {
@@ -56,6 +84,16 @@ public class LightAir extends BlockJUnit4ClassRunner {
 				Factory.getInstance().resetConnectionCache();
 			}
 		});
-		return super.classBlock(notifier);
+		final Statement statement = super.classBlock(notifier);
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				try {
+					statement.evaluate();
+				} finally {
+					Factory.getInstance().releaseSavepoints();
+				}
+			}
+		};
 	}
 }
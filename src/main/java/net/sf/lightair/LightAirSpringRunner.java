@@ -1,6 +1,7 @@
 package net.sf.lightair;
 
 import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.spring.TransactionRollbackListener;
 
 import org.junit.rules.RunRules;
 import org.junit.runner.Result;
@@ -10,6 +11,7 @@ import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.Statement;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.util.ClassUtils;
 
 /**
  * Light air Spring JUnit runner.
@@ -30,12 +32,24 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
  * 
  * Requires dependency org.springframework:spring-test version 2.5 or higher in
  * order to work.
+ * <p>
+ * With property <code>spring.transaction.rollback=true</code>, setup, test and
+ * verify of each test method run in a transaction of the application
+ * {@link javax.sql.DataSource}, which is rolled back after the test. See
+ * {@link TransactionRollbackListener}. This requires dependency
+ * org.springframework:spring-jdbc.
  * 
  */
 public class LightAirSpringRunner extends SpringJUnit4ClassRunner {
 
 	public LightAirSpringRunner(Class<?> clazz) throws InitializationError {
 		super(clazz);
+		if (ClassUtils.isPresent(
+				"org.springframework.jdbc.datasource.DataSourceUtils",
+				LightAirSpringRunner.class.getClassLoader())) {
+			getTestContextManager().registerTestExecutionListeners(
+					new TransactionRollbackListener());
+		}
 	}
 
 	/**
@@ -50,7 +64,8 @@ public class LightAirSpringRunner extends SpringJUnit4ClassRunner {
 	}
 
 	/**
-	 * Overriding classBlock in order to add connection closing listener.
+	 * Overriding classBlock in order to add connection closing listener and to
+	 * release savepoints of the class setup after the class.
 	 * */
 	@Override
 	protected Statement classBlock(final RunNotifier notifier) {
@@ -61,6 +76,16 @@ public class LightAirSpringRunner extends SpringJUnit4ClassRunner {
 				Factory.getInstance().resetConnectionCache();
 			}
 		});
-		return super.classBlock(notifier);
+		final Statement statement = super.classBlock(notifier);
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				try {
+					statement.evaluate();
+				} finally {
+					Factory.getInstance().releaseSavepoints();
+				}
+			}
+		};
 	}
 }
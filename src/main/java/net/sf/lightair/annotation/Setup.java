@@ -82,6 +82,21 @@ public @interface Setup {
 	 */
 	String profile() default "";
 
+	/**
+	 * Whether setup of the test class may be reused by rolling back to a
+	 * savepoint.
+	 * <p>
+	 * Only applies to <code>@Setup</code> of a test class when savepoints are
+	 * enabled by property <code>setup.savepoint</code>. Changes of dataset
+	 * tables committed on other connections are detected and set up again.
+	 * Set to false for test classes whose test methods commit other tables on
+	 * connections other than <code>LightAir.getConnection(profile)</code>, so
+	 * that each test method is set up by clean insert.
+	 * 
+	 * @return
+	 */
+	boolean savepoint() default true;
+
 	/**
 	 * Defines several <code>@Setup</code> annotations on the same element.
 	 * 
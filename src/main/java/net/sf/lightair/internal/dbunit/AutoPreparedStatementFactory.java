@@ -1,15 +1,24 @@
 package net.sf.lightair.internal.dbunit;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 
 import net.sf.lightair.internal.util.AutoValueGenerator;
 
+import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.statement.AutomaticPreparedBatchStatement;
 import org.dbunit.database.statement.IPreparedBatchStatement;
 import org.dbunit.database.statement.PreparedStatementFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Prepared statement factory generating <code>@auto</code> values.
+ * <p>
+ * Prepared statements are cached per JDBC connection by SQL, closing a
+ * statement releases it back to the cache. See {@link PreparedStatementCache}.
+ */
 public class AutoPreparedStatementFactory extends PreparedStatementFactory {
 
 	private final Logger log = LoggerFactory
@@ -19,6 +28,8 @@ public class AutoPreparedStatementFactory extends PreparedStatementFactory {
 
 	private AutoValueGenerator autoValueGenerator;
 
+	private final PreparedStatementCache statementCache = new PreparedStatementCache();
+
 	@Override
 	public IPreparedBatchStatement createPreparedBatchStatement(String sql,
 			IDatabaseConnection connection) throws SQLException {
@@ -26,13 +37,70 @@ public class AutoPreparedStatementFactory extends PreparedStatementFactory {
 				"Creating PreparedBatchStatement for sql [{}] and connection {}.",
 				sql, connection);
 		logSql.debug(sql);
-		IPreparedBatchStatement delegate = super.createPreparedBatchStatement(
-				sql, connection);
+		IPreparedBatchStatement delegate;
+		if (supportBatchStatement(connection)) {
+			int batchSize = (Integer) connection.getConfig().getProperty(
+					DatabaseConfig.PROPERTY_BATCH_SIZE);
+			delegate = new AutomaticPreparedBatchStatement(
+					new CachedPreparedBatchStatement(statementCache,
+							connection.getConnection(), sql, true), batchSize);
+		} else {
+			delegate = new CachedPreparedBatchStatement(statementCache,
+					connection.getConnection(), sql, false);
+		}
 		AutoPreparedBatchStatement autoPreparedBatchStatement = new AutoPreparedBatchStatement(
 				delegate, autoValueGenerator);
 		return autoPreparedBatchStatement;
 	}
 
+	/**
+	 * Close cached statements of a JDBC connection.
+	 * 
+	 * @param connection
+	 *            JDBC connection
+	 */
+	public void flushStatementCache(Connection connection) {
+		statementCache.flush(connection);
+	}
+
+	/**
+	 * Close all cached statements and log cache statistics.
+	 */
+	public void flushStatementCache() {
+		log.info("Flushing statement cache, {} hits, {} misses.",
+				statementCache.getHits(), statementCache.getMisses());
+		statementCache.flush();
+	}
+
+	/**
+	 * Set maximum number of cached statements per connection.
+	 * 
+	 * @param statementCacheSize
+	 *            Cache size, 0 to disable caching
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		statementCache.setSize(statementCacheSize);
+	}
+
+	/**
+	 * Return number of prepared statements taken from the cache.
+	 * 
+	 * @return Number of cache hits
+	 */
+	public long getStatementCacheHits() {
+		return statementCache.getHits();
+	}
+
+	/**
+	 * Return number of prepared statements prepared because they were not
+	 * cached.
+	 * 
+	 * @return Number of cache misses
+	 */
+	public long getStatementCacheMisses() {
+		return statementCache.getMisses();
+	}
+
 	public void setAutoValueGenerator(AutoValueGenerator autoValueGenerator) {
 		this.autoValueGenerator = autoValueGenerator;
 	}
@@ -0,0 +1,97 @@
+package net.sf.lightair.internal.dbunit;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.dbunit.database.statement.IPreparedBatchStatement;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+
+/**
+ * Prepared batch statement on a statement taken from
+ * {@link PreparedStatementCache}, which is released back to the cache on
+ * close.
+ * <p>
+ * Behaves as DbUnit's <code>PreparedBatchStatement</code> when batched,
+ * otherwise as <code>SimplePreparedStatement</code>, which executes each row
+ * when it is added.
+ */
+public class CachedPreparedBatchStatement implements IPreparedBatchStatement {
+
+	private final PreparedStatementCache cache;
+
+	private final Connection connection;
+
+	private final String sql;
+
+	private final PreparedStatement statement;
+
+	private final boolean batched;
+
+	private int index;
+
+	private int result;
+
+	public CachedPreparedBatchStatement(PreparedStatementCache cache,
+			Connection connection, String sql, boolean batched)
+			throws SQLException {
+		this.cache = cache;
+		this.connection = connection;
+		this.sql = sql;
+		this.batched = batched;
+		statement = cache.take(connection, sql);
+	}
+
+	public void addValue(Object value, DataType dataType)
+			throws TypeCastException, SQLException {
+		if (null == value || ITable.NO_VALUE == value) {
+			statement.setNull(++index, dataType.getSqlType());
+			return;
+		}
+		dataType.setSqlValue(value, ++index, statement);
+	}
+
+	public void addBatch() throws SQLException {
+		if (batched) {
+			statement.addBatch();
+		} else {
+			statement.execute();
+			result += statement.getUpdateCount();
+		}
+		index = 0;
+	}
+
+	public int executeBatch() throws SQLException {
+		if (!batched) {
+			int executed = result;
+			clearBatch();
+			return executed;
+		}
+		int executed = 0;
+		for (int count : statement.executeBatch()) {
+			executed += count;
+		}
+		return executed;
+	}
+
+	public void clearBatch() throws SQLException {
+		if (batched) {
+			statement.clearBatch();
+		}
+		index = 0;
+		result = 0;
+	}
+
+	/**
+	 * Release the statement back to the cache.
+	 */
+	public void close() throws SQLException {
+		if (batched) {
+			statement.clearBatch();
+		}
+		cache.release(connection, sql, statement);
+	}
+
+}
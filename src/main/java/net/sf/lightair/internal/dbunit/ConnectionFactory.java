@@ -1,5 +1,7 @@
 package net.sf.lightair.internal.dbunit;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -47,15 +49,64 @@ public class ConnectionFactory implements PropertyKeys {
 		stopWatch.start();
 
 		IDatabaseConnection connection = factory.createDatabaseConnection(profile, schemaName);
+		configure(profile, connection);
+
+		stopWatch.stop();
+		log.debug("Created database connection for schema {} in {} ms.", schemaName, stopWatch.getTime());
+		return connection;
+	}
+
+	/**
+	 * Create a DbUnit connection for a given schema on an existing JDBC
+	 * connection.
+	 * <p>
+	 * The JDBC connection is typically bound to a transaction managed outside
+	 * of Light air.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @param schemaName
+	 *            Schema to connect to
+	 * @param jdbcConnection
+	 *            JDBC connection
+	 * @return DbUnit connection
+	 * @throws DatabaseAccessException
+	 *             When DbUnit cannot establish itself on the database
+	 *             connection, typically when schema does not exist
+	 */
+	public IDatabaseConnection createConnection(String profile, String schemaName, Connection jdbcConnection)
+			throws DatabaseAccessException {
+		log.debug("Creating database connection for schema {} on JDBC connection {}.", schemaName, jdbcConnection);
+		IDatabaseConnection connection = factory.createDatabaseConnection(jdbcConnection, schemaName);
+		configure(profile, connection);
+		return connection;
+	}
+
+	/**
+	 * Open a JDBC connection of the profile data source.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @return JDBC connection
+	 * @throws CreateDatabaseConnectionException
+	 *             When connection to database cannot be open
+	 */
+	public Connection createJdbcConnection(String profile) throws CreateDatabaseConnectionException {
+		log.debug("Creating JDBC connection for profile {}.", profile);
+		try {
+			return factory.getDataSource(profile).getConnection();
+		} catch (SQLException e) {
+			throw new CreateDatabaseConnectionException(e);
+		}
+	}
+
+	private void configure(String profile, IDatabaseConnection connection) {
 		DatabaseConfig config = connection.getConfig();
 		setDatabaseDialect(profile, config);
 		setStatementFactory(config);
 		setSupportTablesViews(config);
+		setBatchedStatements(config);
 		setFeaturesAndProperties(profile, config);
-
-		stopWatch.stop();
-		log.debug("Created database connection for schema {} in {} ms.", schemaName, stopWatch.getTime());
-		return connection;
 	}
 
 	private void setDatabaseDialect(String profile, DatabaseConfig config) {
@@ -75,6 +126,14 @@ public class ConnectionFactory implements PropertyKeys {
 		config.setProperty(DatabaseConfig.PROPERTY_TABLE_TYPE, new String[] { "TABLE", "VIEW" });
 	}
 
+	/**
+	 * Insert rows in JDBC batches by default. May be switched off by
+	 * <code>dbunit.features.batchedStatements=false</code>.
+	 */
+	private void setBatchedStatements(DatabaseConfig config) {
+		config.setProperty(DatabaseConfig.FEATURE_BATCHED_STATEMENTS, true);
+	}
+
 	private static final Map<String, String> DATATYPE_FACTORIES = new HashMap<String, String>();
 
 	{
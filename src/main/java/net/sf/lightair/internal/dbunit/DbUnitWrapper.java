@@ -1,12 +1,23 @@
 package net.sf.lightair.internal.dbunit;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import net.sf.lightair.exception.CloseDatabaseConnectionException;
+import net.sf.lightair.exception.DatabaseAccessException;
+import net.sf.lightair.internal.dbunit.util.Fingerprint;
 import net.sf.lightair.internal.properties.PropertiesProvider;
 import net.sf.lightair.internal.properties.PropertyKeys;
+import net.sf.lightair.internal.unitils.TableHelper;
 
 import org.dbunit.database.IDatabaseConnection;
 import org.slf4j.Logger;
@@ -21,6 +32,20 @@ public class DbUnitWrapper implements PropertyKeys {
 
 	private final Map<String, IDatabaseConnection> connectionCache = new HashMap<String, IDatabaseConnection>();
 
+	private final Map<String, Connection> transactionConnections = new HashMap<String, Connection>();
+
+	private final Map<String, Map<String, IDatabaseConnection>> transactionConnectionCache = new HashMap<String, Map<String, IDatabaseConnection>>();
+
+	private final Map<String, Connection> savepointConnections = new HashMap<String, Connection>();
+
+	private final Map<String, Savepoint> savepoints = new HashMap<String, Savepoint>();
+
+	private final Map<String, String> savepointKeys = new HashMap<String, String>();
+
+	private final Map<String, Map<String, Map<String, String>>> savepointTables = new HashMap<String, Map<String, Map<String, String>>>();
+
+	private final Map<String, List<Fingerprint>> savepointFingerprints = new HashMap<String, List<Fingerprint>>();
+
 	/**
 	 * Retrieve a DbUnit connection for a given schema.
 	 * <p>
@@ -46,8 +71,22 @@ public class DbUnitWrapper implements PropertyKeys {
 		if (null == profile) {
 			profile = "";
 		}
-		String cacheKey = profile + "-" + schemaName;
+		Connection transactionConnection = transactionConnections.get(profile);
+		if (null != transactionConnection) {
+			Map<String, IDatabaseConnection> connections = transactionConnectionCache
+					.get(profile);
+			IDatabaseConnection connection = connections.get(schemaName);
+			if (null == connection) {
+				log.debug("Creating new transaction connection for schema {}.",
+						schemaName);
+				connection = connectionFactory.createConnection(profile,
+						schemaName, transactionConnection);
+				connections.put(schemaName, connection);
+			}
+			return connection;
+		}
 
+		String cacheKey = profile + "-" + schemaName;
 		IDatabaseConnection connection = connectionCache.get(cacheKey);
 		if (null == connection) {
 			log.debug("Creating new connection for schema {}.", schemaName);
@@ -62,10 +101,259 @@ public class DbUnitWrapper implements PropertyKeys {
 		return connection;
 	}
 
+	/**
+	 * Bind JDBC connection to a profile, so that connections for the profile
+	 * are created on it instead of a connection of the profile data source.
+	 * <p>
+	 * The connection is typically taking part in a transaction that is rolled
+	 * back after the test, so it is never closed here.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @param connection
+	 *            JDBC connection
+	 */
+	public void bindTransactionConnection(String profile, Connection connection) {
+		log.debug("Binding transaction connection {} to profile {}.",
+				connection, profile);
+		unbindTransactionConnection(profile);
+		transactionConnections.put(profile, connection);
+		transactionConnectionCache.put(profile,
+				new HashMap<String, IDatabaseConnection>());
+	}
+
+	/**
+	 * Unbind JDBC connection from a profile.
+	 * 
+	 * @param profile
+	 *            Profile
+	 */
+	public void unbindTransactionConnection(String profile) {
+		Connection connection = transactionConnections.remove(profile);
+		transactionConnectionCache.remove(profile);
+		if (null != connection) {
+			statementFactory.flushStatementCache(connection);
+		}
+	}
+
+	/**
+	 * Return JDBC connection bound to a profile.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @return JDBC connection or <code>null</code> if no connection is bound
+	 */
+	public Connection getTransactionConnection(String profile) {
+		return transactionConnections.get(profile);
+	}
+
+	/**
+	 * Return true if a JDBC connection other than a savepoint transaction is
+	 * bound to a profile.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @return true if an external transaction connection is bound
+	 */
+	public boolean isExternalTransactionConnectionBound(String profile) {
+		Connection connection = transactionConnections.get(profile);
+		return null != connection
+				&& connection != savepointConnections.get(profile);
+	}
+
+	/**
+	 * Turn auto-commit off on the cached connection of the default schema of
+	 * a profile and bind it to the profile, so that a dataset can be inserted
+	 * on it and marked by {@link #setSavepoint(String, String, Map)}.
+	 * <p>
+	 * Any savepoint of the profile is released first.
+	 * 
+	 * @param profile
+	 *            Profile
+	 */
+	public void beginSavepointTransaction(String profile) {
+		releaseSavepoint(profile);
+		Connection connection;
+		try {
+			connection = getConnection(profile, null).getConnection();
+			connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			throw new DatabaseAccessException(e);
+		}
+		log.debug("Beginning savepoint transaction on connection {} "
+				+ "for profile {}.", connection, profile);
+		bindTransactionConnection(profile, connection);
+		savepointConnections.put(profile, connection);
+	}
+
+	/**
+	 * Commit the savepoint transaction of a profile and set a savepoint.
+	 * <p>
+	 * Fingerprints of the tables of the dataset are kept, so that changes
+	 * committed on other connections are detected after rollback.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @param key
+	 *            Key identifying the dataset inserted before the savepoint
+	 * @param tableNames
+	 *            Names of tables of the dataset by schema name
+	 */
+	public void setSavepoint(String profile, String key,
+			Map<String, Map<String, String>> tableNames) {
+		Connection connection = savepointConnections.get(profile);
+		try {
+			connection.commit();
+			savepointFingerprints.put(profile,
+					getFingerprints(profile, tableNames));
+			// release read locks of fingerprints
+			connection.commit();
+			savepoints.put(profile, connection.setSavepoint());
+			savepointKeys.put(profile, key);
+			savepointTables.put(profile, tableNames);
+		} catch (SQLException e) {
+			releaseSavepoint(profile);
+			throw new DatabaseAccessException(e);
+		}
+	}
+
+	/**
+	 * Roll back the savepoint transaction of a profile to its savepoint.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @param key
+	 *            Key identifying the dataset that should be in the database
+	 * @return true if rolled back, false if there is no savepoint for the key,
+	 *         the rollback failed, typically because the test committed, or
+	 *         the tables were changed by another connection
+	 */
+	public boolean rollbackToSavepoint(String profile, String key) {
+		if (!key.equals(savepointKeys.get(profile))) {
+			return false;
+		}
+		Connection connection = savepointConnections.get(profile);
+		try {
+			connection.rollback(savepoints.get(profile));
+			if (!savepointFingerprints.get(profile).equals(
+					getFingerprints(profile, savepointTables.get(profile)))) {
+				log.warn("Tables set up before savepoint of profile {} "
+						+ "were changed on another connection, "
+						+ "setting up again.", profile);
+				releaseSavepoint(profile);
+				return false;
+			}
+			// release read locks of fingerprints
+			connection.commit();
+			savepoints.put(profile, connection.setSavepoint());
+			return true;
+		} catch (SQLException e) {
+			log.warn("Cannot roll back to savepoint of profile {}: {}",
+					profile, e.getMessage());
+			releaseSavepoint(profile);
+			return false;
+		}
+	}
+
+	/**
+	 * Fingerprint content of tables on the savepoint connection of a profile.
+	 */
+	private List<Fingerprint> getFingerprints(String profile,
+			Map<String, Map<String, String>> tableNames) throws SQLException {
+		List<Fingerprint> fingerprints = new ArrayList<Fingerprint>();
+		for (Map.Entry<String, Map<String, String>> entry : tableNames
+				.entrySet()) {
+			IDatabaseConnection connection = getConnection(profile,
+					entry.getKey());
+			Statement statement = connection.getConnection().createStatement();
+			try {
+				for (String tableName : entry.getValue().values()) {
+					fingerprints.add(getFingerprint(statement,
+							tableHelper.getQualifiedName(connection,
+									connection.getSchema(), tableName)));
+				}
+			} finally {
+				statement.close();
+			}
+		}
+		return fingerprints;
+	}
+
+	private Fingerprint getFingerprint(Statement statement,
+			String qualifiedName) throws SQLException {
+		Fingerprint fingerprint = new Fingerprint();
+		ResultSet resultSet = statement.executeQuery("select * from "
+				+ qualifiedName);
+		try {
+			ResultSetMetaData metaData = resultSet.getMetaData();
+			Object[] values = new Object[metaData.getColumnCount()];
+			while (resultSet.next()) {
+				for (int i = 0; i < values.length; i++) {
+					switch (metaData.getColumnType(i + 1)) {
+					case Types.CLOB:
+					case Types.NCLOB:
+						values[i] = resultSet.getString(i + 1);
+						break;
+					case Types.BLOB:
+						values[i] = resultSet.getBytes(i + 1);
+						break;
+					default:
+						values[i] = resultSet.getObject(i + 1);
+					}
+				}
+				fingerprint.addRow(values);
+			}
+		} finally {
+			resultSet.close();
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Roll back the savepoint transaction of a profile, if any, and turn
+	 * auto-commit of its connection back on.
+	 * 
+	 * @param profile
+	 *            Profile
+	 */
+	public void releaseSavepoint(String profile) {
+		Connection connection = savepointConnections.remove(profile);
+		savepoints.remove(profile);
+		savepointKeys.remove(profile);
+		savepointTables.remove(profile);
+		savepointFingerprints.remove(profile);
+		if (null == connection) {
+			return;
+		}
+		log.debug("Releasing savepoint transaction for profile {}.", profile);
+		if (connection == transactionConnections.get(profile)) {
+			unbindTransactionConnection(profile);
+		}
+		try {
+			connection.rollback();
+			connection.setAutoCommit(true);
+		} catch (SQLException e) {
+			throw new DatabaseAccessException(e);
+		}
+	}
+
+	/**
+	 * Release savepoint transactions of all profiles.
+	 */
+	public void releaseSavepoints() {
+		for (String profile : new ArrayList<String>(
+				savepointConnections.keySet())) {
+			releaseSavepoint(profile);
+		}
+	}
+
 	/**
 	 * Closes all db connections stored in cache, clears the cache afterwards.
+	 * Releases savepoint transactions and closes cached prepared statements.
 	 */
 	public void resetConnectionCache() {
+		releaseSavepoints();
+		statementFactory.flushStatementCache();
 		for (IDatabaseConnection databaseConnection : connectionCache.values()) {
 			try {
 				log.debug("Closing connection for schema {}.",
@@ -93,6 +381,31 @@ public class DbUnitWrapper implements PropertyKeys {
 		this.connectionFactory = connectionFactory;
 	}
 
+	private AutoPreparedStatementFactory statementFactory;
+
+	/**
+	 * Set statement factory.
+	 * 
+	 * @param statementFactory
+	 *            Statement factory
+	 */
+	public void setStatementFactory(
+			AutoPreparedStatementFactory statementFactory) {
+		this.statementFactory = statementFactory;
+	}
+
+	private TableHelper tableHelper;
+
+	/**
+	 * Set table helper.
+	 * 
+	 * @param tableHelper
+	 *            Table helper
+	 */
+	public void setTableHelper(TableHelper tableHelper) {
+		this.tableHelper = tableHelper;
+	}
+
 	private PropertiesProvider propertiesProvider;
 
 	/**
@@ -0,0 +1,163 @@
+package net.sf.lightair.internal.dbunit;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of prepared statements of JDBC connections.
+ * <p>
+ * Each connection has its own cache of statements keyed by SQL, limited in
+ * size. When the limit is exceeded, the least recently used statement is
+ * closed. A statement taken from the cache is removed from it until it is
+ * released back, so that it is never used twice at the same time.
+ * <p>
+ * Statements of a connection must be flushed before the connection is closed.
+ */
+public class PreparedStatementCache {
+
+	private final Logger log = LoggerFactory
+			.getLogger(PreparedStatementCache.class);
+
+	private final Map<Connection, Map<String, PreparedStatement>> caches = new IdentityHashMap<Connection, Map<String, PreparedStatement>>();
+
+	private int size;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Return a prepared statement for SQL, either cached or newly prepared.
+	 * 
+	 * @param connection
+	 *            JDBC connection
+	 * @param sql
+	 *            SQL
+	 * @return Prepared statement
+	 * @throws SQLException
+	 */
+	public synchronized PreparedStatement take(Connection connection,
+			String sql) throws SQLException {
+		Map<String, PreparedStatement> cache = caches.get(connection);
+		if (null != cache) {
+			PreparedStatement statement = cache.remove(sql);
+			if (null != statement) {
+				hits++;
+				return statement;
+			}
+		}
+		misses++;
+		return connection.prepareStatement(sql);
+	}
+
+	/**
+	 * Release a prepared statement back to the cache. The statement is closed
+	 * if caching is disabled or a statement for the same SQL is already
+	 * cached.
+	 * 
+	 * @param connection
+	 *            JDBC connection the statement was prepared on
+	 * @param sql
+	 *            SQL
+	 * @param statement
+	 *            Prepared statement
+	 * @throws SQLException
+	 */
+	public synchronized void release(Connection connection, String sql,
+			PreparedStatement statement) throws SQLException {
+		if (size <= 0) {
+			statement.close();
+			return;
+		}
+		Map<String, PreparedStatement> cache = caches.get(connection);
+		if (null == cache) {
+			cache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f,
+					true);
+			caches.put(connection, cache);
+		}
+		if (cache.containsKey(sql)) {
+			statement.close();
+			return;
+		}
+		statement.clearParameters();
+		cache.put(sql, statement);
+		if (cache.size() > size) {
+			String eldest = cache.keySet().iterator().next();
+			log.debug("Evicting prepared statement for sql [{}].", eldest);
+			cache.remove(eldest).close();
+		}
+	}
+
+	/**
+	 * Close and remove cached statements of a connection.
+	 * 
+	 * @param connection
+	 *            JDBC connection
+	 */
+	public synchronized void flush(Connection connection) {
+		Map<String, PreparedStatement> cache = caches.remove(connection);
+		if (null != cache) {
+			close(cache);
+		}
+	}
+
+	/**
+	 * Close and remove all cached statements.
+	 */
+	public synchronized void flush() {
+		List<Map<String, PreparedStatement>> all = new ArrayList<Map<String, PreparedStatement>>(
+				caches.values());
+		caches.clear();
+		for (Map<String, PreparedStatement> cache : all) {
+			close(cache);
+		}
+	}
+
+	private void close(Map<String, PreparedStatement> cache) {
+		for (PreparedStatement statement : cache.values()) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				log.debug("Cannot close prepared statement {}.", statement, e);
+			}
+		}
+	}
+
+	/**
+	 * Set maximum number of cached statements per connection.
+	 * 
+	 * @param size
+	 *            Cache size, 0 to disable caching
+	 */
+	public synchronized void setSize(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Return number of statements taken from the cache.
+	 * 
+	 * @return Number of cache hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Return number of statements prepared because they were not cached.
+	 * 
+	 * @return Number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+}
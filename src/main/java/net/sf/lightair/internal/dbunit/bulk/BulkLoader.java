@@ -0,0 +1,134 @@
+package net.sf.lightair.internal.dbunit.bulk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import net.sf.lightair.internal.dbunit.util.DatabaseProduct;
+
+import org.dbunit.dataset.ITableMetaData;
+
+/**
+ * Loads a CSV file into a table using a native facility of the database.
+ * <p>
+ * The CSV file is UTF-8 encoded, all fields are enclosed in double quotes and
+ * double quotes inside fields are doubled. SQL null is written as an empty
+ * field without quotes. Loaders reading the header declare
+ * so by {@link #isHeaderRequired()}.
+ */
+public abstract class BulkLoader {
+
+	/**
+	 * Return bulk loader for the database of a connection.
+	 * 
+	 * @param connection
+	 *            JDBC connection
+	 * @return Bulk loader or <code>null</code> if the database does not
+	 *         support bulk load
+	 * @throws SQLException
+	 */
+	public static BulkLoader forConnection(Connection connection)
+			throws SQLException {
+		DatabaseProduct product = DatabaseProduct.forConnection(connection);
+		String url = connection.getMetaData().getURL();
+		if (DatabaseProduct.H2 == product && H2BulkLoader.isSupported(url)) {
+			return new H2BulkLoader();
+		}
+		if (DatabaseProduct.DERBY == product
+				&& DerbyBulkLoader.isSupported(url)) {
+			return new DerbyBulkLoader();
+		}
+		if (DatabaseProduct.HSQLDB == product
+				&& HsqldbBulkLoader.isSupported(url)) {
+			return new HsqldbBulkLoader();
+		}
+		return null;
+	}
+
+	/**
+	 * Whether the CSV file must start with a header row of column names.
+	 * 
+	 * @return true if header is required
+	 */
+	public abstract boolean isHeaderRequired();
+
+	/**
+	 * Load CSV file into a table.
+	 * 
+	 * @param connection
+	 *            JDBC connection
+	 * @param schema
+	 *            Schema name
+	 * @param metaData
+	 *            Operation meta data of the table, column names as stored in
+	 *            the database
+	 * @param insertTarget
+	 *            Qualified table name followed by parenthesized list of
+	 *            qualified column names
+	 * @param file
+	 *            CSV file
+	 * @throws SQLException
+	 */
+	public abstract void load(Connection connection, String schema,
+			ITableMetaData metaData, String insertTarget, File file)
+			throws SQLException;
+
+	/**
+	 * Write a CSV row.
+	 * 
+	 * @param writer
+	 *            Writer
+	 * @param fields
+	 *            Field values, <code>null</code> for SQL null
+	 * @throws IOException
+	 */
+	public static void writeRow(Writer writer, String[] fields)
+			throws IOException {
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			if (null == fields[i]) {
+				continue;
+			}
+			writer.write('"');
+			writer.write(fields[i].replace("\"", "\"\""));
+			writer.write('"');
+		}
+		writer.write('\n');
+	}
+
+	/**
+	 * Quote string as SQL literal.
+	 * 
+	 * @param value
+	 *            String value
+	 * @return SQL string literal
+	 */
+	protected String toLiteral(String value) {
+		return "'" + value.replace("'", "''") + "'";
+	}
+
+	/**
+	 * Execute SQL statement.
+	 * 
+	 * @param connection
+	 *            JDBC connection
+	 * @param sql
+	 *            SQL statement
+	 * @throws SQLException
+	 */
+	protected void execute(Connection connection, String sql)
+			throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute(sql);
+		} finally {
+			statement.close();
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package net.sf.lightair.internal.dbunit.bulk;
+
+import java.io.File;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import net.sf.lightair.internal.dbunit.util.ForeignKeys;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITableMetaData;
+
+/**
+ * Bulk loader for Derby using <code>SYSCS_UTIL.SYSCS_IMPORT_DATA</code>
+ * procedure.
+ * <p>
+ * The procedure reads the file on the side of the database, so only embedded
+ * databases are supported.
+ */
+public class DerbyBulkLoader extends BulkLoader {
+
+	/**
+	 * Whether Derby database with given JDBC URL can be bulk loaded.
+	 * 
+	 * @param url
+	 *            JDBC URL
+	 * @return true if database is embedded
+	 */
+	public static boolean isSupported(String url) {
+		return !url.startsWith("jdbc:derby://");
+	}
+
+	private static final String IMPORT_SQL = "call SYSCS_UTIL.SYSCS_IMPORT_DATA"
+			+ "(?, ?, ?, null, ?, null, null, 'UTF-8', 0)";
+
+	@Override
+	public boolean isHeaderRequired() {
+		return false;
+	}
+
+	@Override
+	public void load(Connection connection, String schema,
+			ITableMetaData metaData, String insertTarget, File file)
+			throws SQLException {
+		CallableStatement statement = connection.prepareCall(IMPORT_SQL);
+		try {
+			// the procedure matches schema names exactly
+			statement.setString(1, ForeignKeys.getStoredSchemaName(
+					connection.getMetaData(), schema));
+			statement.setString(2, metaData.getTableName());
+			statement.setString(3, getColumnList(metaData));
+			statement.setString(4, file.getAbsolutePath());
+			statement.execute();
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Return comma separated column names. Derby expects stored names here,
+	 * not quoted identifiers.
+	 */
+	private String getColumnList(ITableMetaData metaData) throws SQLException {
+		try {
+			StringBuilder columns = new StringBuilder();
+			for (int i = 0; i < metaData.getColumns().length; i++) {
+				if (i > 0) {
+					columns.append(',');
+				}
+				columns.append(metaData.getColumns()[i].getColumnName());
+			}
+			return columns.toString();
+		} catch (DataSetException e) {
+			throw new SQLException(e);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package net.sf.lightair.internal.dbunit.bulk;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+
+import org.dbunit.dataset.ITableMetaData;
+
+/**
+ * Bulk loader for H2 using <code>CSVREAD</code> table function.
+ * <p>
+ * <code>CSVREAD</code> reads the file on the side of the database, so only
+ * embedded and in-memory databases are supported.
+ */
+public class H2BulkLoader extends BulkLoader {
+
+	/**
+	 * Whether H2 database with given JDBC URL can be bulk loaded.
+	 * 
+	 * @param url
+	 *            JDBC URL
+	 * @return true if database is not accessed through a server
+	 */
+	public static boolean isSupported(String url) {
+		String lowerCaseUrl = url.toLowerCase(Locale.ENGLISH);
+		return !lowerCaseUrl.startsWith("jdbc:h2:tcp:")
+				&& !lowerCaseUrl.startsWith("jdbc:h2:ssl:")
+				&& !lowerCaseUrl.contains(";auto_server=true");
+	}
+
+	@Override
+	public boolean isHeaderRequired() {
+		return true;
+	}
+
+	@Override
+	public void load(Connection connection, String schema,
+			ITableMetaData metaData, String insertTarget, File file)
+			throws SQLException {
+		execute(connection, "insert into " + insertTarget
+				+ " select * from csvread("
+				+ toLiteral(file.getAbsolutePath())
+				+ ", null, 'charset=UTF-8')");
+	}
+
+}
@@ -0,0 +1,77 @@
+package net.sf.lightair.internal.dbunit.bulk;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITableMetaData;
+
+/**
+ * Bulk loader for HSQLDB attaching the CSV file as source of a temporary
+ * <code>TEXT</code> table.
+ * <p>
+ * HSQLDB supports text tables only in file databases and reads text table
+ * sources outside the database directory only with system property
+ * <code>textdb.allow_full_path</code> set to <code>true</code>.
+ */
+public class HsqldbBulkLoader extends BulkLoader {
+
+	private static final String TEXT_TABLE = "LIGHTAIR_BULK_LOAD";
+
+	/**
+	 * Whether HSQLDB database with given JDBC URL can be bulk loaded.
+	 * 
+	 * @param url
+	 *            JDBC URL
+	 * @return true if database is a file database and full paths of text
+	 *         table sources are allowed
+	 */
+	public static boolean isSupported(String url) {
+		return url.startsWith("jdbc:hsqldb:file:")
+				&& Boolean.getBoolean("textdb.allow_full_path");
+	}
+
+	@Override
+	public boolean isHeaderRequired() {
+		return false;
+	}
+
+	@Override
+	public void load(Connection connection, String schema,
+			ITableMetaData metaData, String insertTarget, File file)
+			throws SQLException {
+		execute(connection, getCreateTableSql(metaData));
+		try {
+			execute(connection, "set table " + TEXT_TABLE + " source "
+					+ toLiteral(file.getAbsolutePath()
+							+ ";encoding=UTF-8;all_quoted=true"));
+			execute(connection, "insert into " + insertTarget
+					+ " select * from " + TEXT_TABLE);
+		} finally {
+			execute(connection, "drop table " + TEXT_TABLE);
+		}
+	}
+
+	/**
+	 * Create text table with a character column for each column loaded. The
+	 * values are converted on insert into the target table.
+	 */
+	private String getCreateTableSql(ITableMetaData metaData)
+			throws SQLException {
+		try {
+			StringBuilder sql = new StringBuilder("create text table ");
+			sql.append(TEXT_TABLE).append(" (");
+			for (int i = 0; i < metaData.getColumns().length; i++) {
+				if (i > 0) {
+					sql.append(", ");
+				}
+				sql.append("C").append(i).append(" longvarchar");
+			}
+			return sql.append(")").toString();
+		} catch (DataSetException e) {
+			throw new SQLException(e);
+		}
+	}
+
+}
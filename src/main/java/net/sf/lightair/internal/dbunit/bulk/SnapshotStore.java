@@ -0,0 +1,681 @@
+package net.sf.lightair.internal.dbunit.bulk;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import net.sf.lightair.internal.dbunit.DbUnitWrapper;
+import net.sf.lightair.internal.dbunit.dataset.MergingTable;
+import net.sf.lightair.internal.dbunit.util.DatabaseProduct;
+import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.properties.PropertyKeys;
+import net.sf.lightair.internal.unitils.CsvDataSetReader;
+import net.sf.lightair.internal.unitils.TableHelper;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.unitils.dbunit.util.MultiSchemaDataSet;
+
+/**
+ * On-disk store of database snapshots taken right after setup.
+ * <p>
+ * A snapshot holds the content of all tables of a setup dataset as CSV files,
+ * which are restored by the {@link BulkLoader} of the database after cleaning
+ * the tables. Snapshots are keyed by a hash of the profile connection, the
+ * structure of tables and triggers in the profile schemas and the content of
+ * the dataset files. Datasets containing temporal tokens are never snapshot,
+ * because their values change with time. Neither are datasets with rows
+ * leaving columns to database defaults, which must be evaluated again on each
+ * setup.
+ * <p>
+ * The number of snapshots is limited. When the limit is exceeded, the least
+ * recently used snapshots are deleted.
+ */
+public class SnapshotStore implements PropertyKeys {
+
+	private final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+
+	private static final String INDEX_FILE_NAME = "index.properties";
+
+	private static final String FORMAT_VERSION = "1";
+
+	private static final String[] TEMPORAL_TOKENS = { "@date", "@time" };
+
+	// prefix of tables and triggers of change tracking
+	private static final String TRACKING_PREFIX = "LIGHTAIR_";
+
+	/**
+	 * Return true if snapshots are enabled for a profile.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @return true if enabled
+	 */
+	public boolean isEnabled(String profile) {
+		return Boolean.parseBoolean(propertiesProvider.getProperty(profile,
+				SETUP_SNAPSHOT, "false"));
+	}
+
+	/**
+	 * Compute snapshot key of dataset files.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @param dataSetFiles
+	 *            Dataset files
+	 * @return Snapshot key or <code>null</code> if the datasets cannot be
+	 *         snapshot
+	 */
+	public String getKey(String profile, URL... dataSetFiles) {
+		MessageDigest digest = DigestUtils.getMd5Digest();
+		update(digest, FORMAT_VERSION);
+		update(digest, propertiesProvider.getProperty(profile, CONNECTION_URL));
+		update(digest, propertiesProvider.getProperty(profile, USER_NAME));
+		update(digest, propertiesProvider.getProperty(profile, DEFAULT_SCHEMA));
+		List<URL> files = new ArrayList<URL>();
+		try {
+			for (URL dataSetFile : dataSetFiles) {
+				if (CsvDataSetReader.isCsvDirectory(dataSetFile)) {
+					// table names are file names
+					for (URL file : new CsvDataSetReader()
+							.getFiles(dataSetFile)) {
+						update(digest, file.getPath().substring(
+								file.getPath().lastIndexOf('/') + 1));
+						files.add(file);
+					}
+				} else {
+					files.add(dataSetFile);
+				}
+			}
+		} catch (IOException e) {
+			log.debug("Cannot list dataset files, not using snapshot.", e);
+			return null;
+		}
+		for (URL dataSetFile : files) {
+			byte[] content;
+			try {
+				content = IOUtils.toByteArray(dataSetFile);
+			} catch (IOException e) {
+				log.debug("Cannot read dataset {}, not using snapshot.",
+						dataSetFile, e);
+				return null;
+			}
+			if (containsTemporalToken(content)) {
+				log.debug("Dataset {} contains temporal tokens, "
+						+ "not using snapshot.", dataSetFile);
+				return null;
+			}
+			update(digest, String.valueOf(content.length));
+			digest.update(content);
+		}
+		try {
+			updateStructure(digest, profile);
+		} catch (SQLException e) {
+			log.debug("Cannot read database structure, not using snapshot.",
+					e);
+			return null;
+		}
+		return Hex.encodeHexString(digest.digest());
+	}
+
+	/**
+	 * Add columns and triggers of all tables in the profile schemas to digest,
+	 * so that snapshots are not restored after the database structure changed.
+	 */
+	private void updateStructure(MessageDigest digest, String profile)
+			throws SQLException {
+		for (String schemaName : propertiesProvider.getSchemaNames(profile)) {
+			IDatabaseConnection connection = dbUnitWrapper.getConnection(
+					profile, schemaName);
+			String schema = connection.getSchema();
+			update(digest, schema);
+			ResultSet columns = connection.getConnection().getMetaData()
+					.getColumns(null, schema, null, null);
+			try {
+				while (columns.next()) {
+					if (columns.getString("TABLE_NAME").startsWith(
+							TRACKING_PREFIX)) {
+						continue;
+					}
+					for (String name : new String[] { "TABLE_NAME",
+							"COLUMN_NAME", "TYPE_NAME", "COLUMN_SIZE",
+							"DECIMAL_DIGITS", "NULLABLE", "COLUMN_DEF" }) {
+						update(digest, columns.getString(name));
+					}
+				}
+			} finally {
+				columns.close();
+			}
+			String triggersSql = getTriggersSql(DatabaseProduct
+					.forConnection(connection.getConnection()));
+			if (null == triggersSql) {
+				continue;
+			}
+			PreparedStatement statement = connection.getConnection()
+					.prepareStatement(triggersSql);
+			try {
+				statement.setString(1, schema);
+				ResultSet triggers = statement.executeQuery();
+				while (triggers.next()) {
+					if (triggers.getString(1).startsWith(TRACKING_PREFIX)) {
+						continue;
+					}
+					for (int i = 1; i <= 3; i++) {
+						update(digest, triggers.getString(i));
+					}
+				}
+			} finally {
+				statement.close();
+			}
+		}
+	}
+
+	/**
+	 * Return query of trigger name, table name and definition of triggers in
+	 * a schema, ordered by trigger name.
+	 *
+	 * @return SQL or <code>null</code> for other databases
+	 */
+	private String getTriggersSql(DatabaseProduct product) {
+		if (DatabaseProduct.H2 == product) {
+			return "select TRIGGER_NAME, TABLE_NAME, SQL "
+					+ "from INFORMATION_SCHEMA.TRIGGERS "
+					+ "where TRIGGER_SCHEMA = ? order by TRIGGER_NAME";
+		}
+		if (DatabaseProduct.HSQLDB == product) {
+			return "select TRIGGER_NAME, EVENT_OBJECT_TABLE, ACTION_STATEMENT "
+					+ "from INFORMATION_SCHEMA.TRIGGERS "
+					+ "where TRIGGER_SCHEMA = ? order by TRIGGER_NAME";
+		}
+		if (DatabaseProduct.DERBY == product) {
+			return "select t.TRIGGERNAME, b.TABLENAME, t.TRIGGERDEFINITION "
+					+ "from SYS.SYSTRIGGERS t, SYS.SYSTABLES b, "
+					+ "SYS.SYSSCHEMAS s where t.TABLEID = b.TABLEID "
+					+ "and t.SCHEMAID = s.SCHEMAID and s.SCHEMANAME = ? "
+					+ "order by t.TRIGGERNAME";
+		}
+		return null;
+	}
+
+	private void update(MessageDigest digest, String value) {
+		try {
+			digest.update(String.valueOf(value).getBytes("UTF-8"));
+		} catch (IOException e) {
+			throw new RuntimeException("Encoding UTF-8 is not supported.", e);
+		}
+		digest.update((byte) 0);
+	}
+
+	private boolean containsTemporalToken(byte[] content) {
+		String text;
+		try {
+			text = new String(content, "ISO-8859-1");
+		} catch (IOException e) {
+			throw new RuntimeException("Encoding ISO-8859-1 is not supported.",
+					e);
+		}
+		for (String token : TEMPORAL_TOKENS) {
+			if (text.contains(token)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Restore a snapshot into the database.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @param key
+	 *            Snapshot key
+	 * @return true if restored, false if there is no usable snapshot
+	 */
+	public boolean restore(String profile, String key) {
+		File directory = new File(getDirectory(profile), key);
+		File indexFile = new File(directory, INDEX_FILE_NAME);
+		if (!indexFile.isFile()) {
+			log.debug("No snapshot {} for profile {}.", key, profile);
+			return false;
+		}
+		try {
+			Properties index = loadIndex(indexFile);
+			Map<String, List<Integer>> schemaTables = getSchemaTables(index);
+			for (Map.Entry<String, List<Integer>> entry : schemaTables
+					.entrySet()) {
+				if (!restore(profile, entry.getKey(), entry.getValue(),
+						index, directory)) {
+					FileUtils.deleteQuietly(directory);
+					return false;
+				}
+			}
+		} catch (IOException e) {
+			return discard(directory, e);
+		} catch (SQLException e) {
+			return discard(directory, e);
+		} catch (DatabaseUnitException e) {
+			return discard(directory, e);
+		}
+		if (!directory.setLastModified(System.currentTimeMillis())) {
+			log.debug("Cannot touch snapshot {}.", directory);
+		}
+		log.info("Restored snapshot {} for profile {}.", key, profile);
+		return true;
+	}
+
+	private boolean discard(File directory, Exception e) {
+		log.warn("Cannot restore snapshot {}, discarding it: {}", directory,
+				e.getMessage());
+		FileUtils.deleteQuietly(directory);
+		return false;
+	}
+
+	private boolean restore(String profile, String schemaName,
+			List<Integer> tables, Properties index, File directory)
+			throws SQLException, DatabaseUnitException {
+		IDatabaseConnection connection = dbUnitWrapper.getConnection(profile,
+				schemaName);
+		BulkLoader loader = BulkLoader.forConnection(connection
+				.getConnection());
+		if (null == loader) {
+			log.debug("Bulk load not supported by database, "
+					+ "not using snapshot.");
+			return false;
+		}
+		IDataSet databaseDataSet = connection.createDataSet();
+		ITableMetaData[] metaData = new ITableMetaData[tables.size()];
+		ITable[] emptyTables = new ITable[tables.size()];
+		for (int i = 0; i < tables.size(); i++) {
+			int table = tables.get(i);
+			metaData[i] = databaseDataSet.getTableMetaData(index
+					.getProperty("table." + table + ".name"));
+			if (!getColumns(metaData[i]).equals(
+					index.getProperty("table." + table + ".columns"))) {
+				log.debug("Structure of table {} changed, "
+						+ "not using snapshot.", metaData[i].getTableName());
+				return false;
+			}
+			emptyTables[i] = new DefaultTable(metaData[i]);
+		}
+		factory.getCleanDatabaseOperation(profile)
+				.execute(connection, new DefaultDataSet(emptyTables));
+		for (int i = 0; i < tables.size(); i++) {
+			int table = tables.get(i);
+			if ("0".equals(index.getProperty("table." + table + ".rows"))) {
+				continue;
+			}
+			log.debug("Restoring table {} from snapshot.",
+					metaData[i].getTableName());
+			loader.load(connection.getConnection(), connection.getSchema(),
+					metaData[i], factory.getBulkLoadInsertOperation()
+							.getInsertTarget(metaData[i], connection),
+					new File(directory, table + ".csv"));
+		}
+		return true;
+	}
+
+	/**
+	 * Capture a snapshot of the tables of a dataset just set up.
+	 * <p>
+	 * Nothing is captured if the database does not support bulk load, a table
+	 * contains binary or large object columns or a dataset row leaves a column
+	 * to its database default.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @param key
+	 *            Snapshot key
+	 * @param dataSet
+	 *            Dataset just set up
+	 */
+	public void capture(String profile, String key, MultiSchemaDataSet dataSet) {
+		File storeDirectory = getDirectory(profile);
+		File directory = new File(storeDirectory, key + ".tmp");
+		FileUtils.deleteQuietly(directory);
+		if (!directory.mkdirs()) {
+			log.warn("Cannot create snapshot directory {}.", directory);
+			return;
+		}
+		boolean captured = false;
+		try {
+			captured = capture(profile, dataSet, directory);
+		} catch (IOException e) {
+			log.warn("Cannot capture snapshot {}: {}", key, e.getMessage());
+		} catch (SQLException e) {
+			log.warn("Cannot capture snapshot {}: {}", key, e.getMessage());
+		} catch (DataSetException e) {
+			log.warn("Cannot capture snapshot {}: {}", key, e.getMessage());
+		}
+		if (!captured) {
+			FileUtils.deleteQuietly(directory);
+			return;
+		}
+		File target = new File(storeDirectory, key);
+		FileUtils.deleteQuietly(target);
+		if (!directory.renameTo(target)) {
+			log.warn("Cannot move snapshot {} to {}.", directory, target);
+			FileUtils.deleteQuietly(directory);
+			return;
+		}
+		log.info("Captured snapshot {} for profile {}.", key, profile);
+		evict(profile, storeDirectory);
+	}
+
+	private boolean capture(String profile, MultiSchemaDataSet dataSet,
+			File directory) throws IOException, SQLException,
+			DataSetException {
+		Properties index = new Properties();
+		int table = 0;
+		for (String schemaName : dataSet.getSchemaNames()) {
+			IDatabaseConnection connection = dbUnitWrapper.getConnection(
+					profile, schemaName);
+			BulkLoader loader = BulkLoader.forConnection(connection
+					.getConnection());
+			if (null == loader) {
+				log.debug("Bulk load not supported by database, "
+						+ "not capturing snapshot.");
+				return false;
+			}
+			IDataSet databaseDataSet = connection.createDataSet();
+			Set<String> tablesSeen = new HashSet<String>();
+			ITableIterator tables = dataSet.getDataSetForSchema(schemaName)
+					.iterator();
+			while (tables.next()) {
+				ITable dataSetTable = tables.getTable();
+				ITableMetaData metaData = databaseDataSet
+						.getTableMetaData(dataSetTable.getTableMetaData()
+								.getTableName());
+				String defaultColumn = getDefaultColumn(metaData, dataSetTable);
+				if (null != defaultColumn) {
+					log.debug("Column {} of table {} is left to database "
+							+ "default, not capturing snapshot.",
+							defaultColumn, metaData.getTableName());
+					return false;
+				}
+				if (!tablesSeen.add(metaData.getTableName())) {
+					continue;
+				}
+				Integer rows = writeTable(connection, metaData, new File(
+						directory, table + ".csv"), loader.isHeaderRequired());
+				if (null == rows) {
+					log.debug("Table {} cannot be snapshot.",
+							metaData.getTableName());
+					return false;
+				}
+				index.setProperty("table." + table + ".schema", schemaName);
+				index.setProperty("table." + table + ".name",
+						metaData.getTableName());
+				index.setProperty("table." + table + ".columns",
+						getColumns(metaData));
+				index.setProperty("table." + table + ".rows",
+						String.valueOf(rows));
+				table++;
+			}
+		}
+		index.setProperty("table.count", String.valueOf(table));
+		OutputStream out = new FileOutputStream(new File(directory,
+				INDEX_FILE_NAME));
+		try {
+			index.store(out, "Light air setup snapshot");
+		} finally {
+			out.close();
+		}
+		return true;
+	}
+
+	/**
+	 * Write table content into CSV file.
+	 *
+	 * @return Number of rows written or <code>null</code> if the table has a
+	 *         column that cannot be written
+	 */
+	private Integer writeTable(IDatabaseConnection connection,
+			ITableMetaData metaData, File file, boolean header)
+			throws IOException, SQLException, DataSetException {
+		Column[] columns = metaData.getColumns();
+		StringBuilder sql = new StringBuilder("select ");
+		String[] names = new String[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			if (!isWritable(columns[i].getDataType().getSqlType())) {
+				return null;
+			}
+			if (i > 0) {
+				sql.append(", ");
+			}
+			names[i] = columns[i].getColumnName();
+			sql.append(tableHelper
+					.getQualifiedName(connection, null, names[i]));
+		}
+		sql.append(" from ").append(
+				tableHelper.getQualifiedName(connection, connection.getSchema(),
+						metaData.getTableName()));
+
+		int rows = 0;
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+				"UTF-8");
+		try {
+			if (header) {
+				BulkLoader.writeRow(writer, names);
+			}
+			Statement statement = connection.getConnection().createStatement();
+			try {
+				ResultSet resultSet = statement.executeQuery(sql.toString());
+				String[] fields = new String[columns.length];
+				while (resultSet.next()) {
+					for (int i = 0; i < columns.length; i++) {
+						fields[i] = resultSet.getString(i + 1);
+					}
+					BulkLoader.writeRow(writer, fields);
+					rows++;
+				}
+			} finally {
+				statement.close();
+			}
+		} finally {
+			writer.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * Find a column with database default or auto increment that is not set
+	 * by some row of a dataset table.
+	 *
+	 * @return Column name or <code>null</code> if all such columns are set
+	 */
+	private String getDefaultColumn(ITableMetaData metaData, ITable table)
+			throws DataSetException {
+		MergingTable mergingTable = table instanceof MergingTable ? (MergingTable) table
+				: null;
+		Set<String> columnNames = new HashSet<String>();
+		for (Column column : table.getTableMetaData().getColumns()) {
+			columnNames.add(column.getColumnName().toUpperCase());
+		}
+		for (Column column : metaData.getColumns()) {
+			if (null == column.getDefaultValue()
+					&& Column.AutoIncrement.YES != column.getAutoIncrement()) {
+				continue;
+			}
+			String columnName = column.getColumnName();
+			for (int row = 0; row < table.getRowCount(); row++) {
+				if (null == mergingTable ? !columnNames.contains(columnName
+						.toUpperCase()) : !mergingTable.hasValue(row,
+						columnName)) {
+					return columnName;
+				}
+			}
+		}
+		return null;
+	}
+
+	private boolean isWritable(int sqlType) {
+		switch (sqlType) {
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+		case Types.BLOB:
+		case Types.CLOB:
+		case Types.NCLOB:
+		case Types.OTHER:
+		case Types.JAVA_OBJECT:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	private String getColumns(ITableMetaData metaData) throws DataSetException {
+		StringBuilder columns = new StringBuilder();
+		for (Column column : metaData.getColumns()) {
+			if (columns.length() > 0) {
+				columns.append(',');
+			}
+			columns.append(column.getColumnName()).append(':')
+					.append(column.getSqlTypeName());
+		}
+		return columns.toString();
+	}
+
+	private Properties loadIndex(File indexFile) throws IOException {
+		Properties index = new Properties();
+		InputStream in = new FileInputStream(indexFile);
+		try {
+			index.load(in);
+		} finally {
+			in.close();
+		}
+		return index;
+	}
+
+	private Map<String, List<Integer>> getSchemaTables(Properties index) {
+		Map<String, List<Integer>> schemaTables = new LinkedHashMap<String, List<Integer>>();
+		int count = Integer.parseInt(index.getProperty("table.count"));
+		for (int table = 0; table < count; table++) {
+			String schemaName = index.getProperty("table." + table + ".schema");
+			List<Integer> tables = schemaTables.get(schemaName);
+			if (null == tables) {
+				tables = new ArrayList<Integer>();
+				schemaTables.put(schemaName, tables);
+			}
+			tables.add(table);
+		}
+		return schemaTables;
+	}
+
+	/**
+	 * Delete least recently used snapshots exceeding the limit.
+	 */
+	private void evict(String profile, File storeDirectory) {
+		long limit = propertiesProvider.getProperty(profile,
+				SETUP_SNAPSHOT_LIMIT, 50);
+		File[] snapshots = storeDirectory.listFiles();
+		if (null == snapshots || snapshots.length <= limit) {
+			return;
+		}
+		Arrays.sort(snapshots, new Comparator<File>() {
+			public int compare(File file1, File file2) {
+				long modified1 = file1.lastModified();
+				long modified2 = file2.lastModified();
+				return modified1 < modified2 ? -1
+						: (modified1 == modified2 ? 0 : 1);
+			}
+		});
+		for (int i = 0; i < snapshots.length - limit; i++) {
+			log.debug("Evicting snapshot {}.", snapshots[i]);
+			FileUtils.deleteQuietly(snapshots[i]);
+		}
+	}
+
+	private File getDirectory(String profile) {
+		return new File(propertiesProvider.getProperty(profile,
+				SETUP_SNAPSHOT_DIRECTORY,
+				new File("target", "lightair-snapshots").getPath()));
+	}
+
+	// beans and their setters:
+
+	private DbUnitWrapper dbUnitWrapper;
+
+	/**
+	 * Set DbUnit wrapper.
+	 *
+	 * @param dbUnitWrapper
+	 *            DbUnit wrapper
+	 */
+	public void setDbUnitWrapper(DbUnitWrapper dbUnitWrapper) {
+		this.dbUnitWrapper = dbUnitWrapper;
+	}
+
+	private PropertiesProvider propertiesProvider;
+
+	/**
+	 * Set property provider.
+	 *
+	 * @param propertiesProvider
+	 *            Property provider
+	 */
+	public void setPropertiesProvider(PropertiesProvider propertiesProvider) {
+		this.propertiesProvider = propertiesProvider;
+	}
+
+	private TableHelper tableHelper;
+
+	/**
+	 * Set table helper.
+	 *
+	 * @param tableHelper
+	 *            Table helper
+	 */
+	public void setTableHelper(TableHelper tableHelper) {
+		this.tableHelper = tableHelper;
+	}
+
+	private Factory factory;
+
+	/**
+	 * Set factory providing clean and insert operations.
+	 *
+	 * @param factory
+	 *            Factory
+	 */
+	public void setFactory(Factory factory) {
+		this.factory = factory;
+	}
+
+}
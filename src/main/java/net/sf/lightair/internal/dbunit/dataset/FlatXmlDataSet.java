@@ -1,6 +1,8 @@
 package net.sf.lightair.internal.dbunit.dataset;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.dbunit.database.AmbiguousTableNameException;
 import org.dbunit.dataset.AbstractDataSet;
@@ -17,7 +19,16 @@ import org.dbunit.dataset.OrderedTableNameMap;
 public class FlatXmlDataSet extends AbstractDataSet {
 
 	private OrderedTableNameMap tables;
-	private MergingTable currentTable;
+
+	/**
+	 * Tables by table name as written in the dataset.
+	 */
+	private final Map<String, MergingTable> tablesByName = new HashMap<String, MergingTable>();
+
+	/**
+	 * Conditions restricting compared database rows by upper case table name.
+	 */
+	private final Map<String, String> wheres = new HashMap<String, String>();
 
 	@Override
 	protected ITableIterator createIterator(boolean reversed) {
@@ -35,54 +46,70 @@ public class FlatXmlDataSet extends AbstractDataSet {
 	}
 
 	/**
-	 * Start parsing a dataset row.
+	 * Add a dataset row.
 	 * <p>
-	 * Creates a new current table.
+	 * Appends the row to the dataset table, adding the table if the dataset
+	 * does not have it yet. A row without columns only adds the table.
 	 * 
-	 * @param metaData
-	 *            Meta data defining columns of the row
+	 * @param tableName
+	 *            Table name
+	 * @param columnNames
+	 *            Names of the row columns
+	 * @param values
+	 *            Values in the order of the row columns
 	 */
-	public void startRow(MutableTableMetaData metaData) {
-		currentTable = new MergingTable(metaData);
+	public void addRow(String tableName, String[] columnNames, Object[] values) {
+		MergingTable table = getOrAddTable(tableName);
+		if (columnNames.length > 0) {
+			table.addRow(columnNames, values);
+		}
 	}
 
 	/**
-	 * Set values of the row started.
+	 * Set condition restricting the database rows compared with a table.
 	 * <p>
-	 * Adds a row to current table.
+	 * Applies to the table whether its rows come before or after the
+	 * condition. Does not add the table to the dataset.
 	 * 
-	 * @param values
-	 *            Values in the order of the row columns.
+	 * @param tableName
+	 *            Table name
+	 * @param where
+	 *            SQL condition
 	 */
-	public void setRowValues(Object[] values) {
-		currentTable.addRow(values);
+	public void setWhere(String tableName, String where) {
+		wheres.put(tableName.toUpperCase(), where);
+		if (tables.containsTable(tableName)) {
+			((MergingTable) tables.get(tableName)).setWhere(where);
+		}
 	}
 
 	/**
-	 * End parsing a dataset row.
-	 * <p>
-	 * If the current table already exists in dataset, merges the parsed row of
-	 * current table to the existing dataset table.
-	 * <p>
-	 * If the current table does not exist in dataset, adds it to dataset.
-	 * <p>
-	 * Reset current table.
+	 * Get dataset table, or add it if the dataset does not have it yet.
+	 * 
+	 * @param tableName
+	 *            Table name
+	 * @return Dataset table
 	 */
-	public void endRow() {
-		String tableName = currentTable.getTableMetaData().getTableName();
+	private MergingTable getOrAddTable(String tableName) {
+		MergingTable table = tablesByName.get(tableName);
+		if (null != table) {
+			return table;
+		}
 		if (tables.containsTable(tableName)) {
-			MergingTable existingTable = (MergingTable) tables.get(tableName);
-			existingTable.addTableRows(currentTable);
+			table = (MergingTable) tables.get(tableName);
 		} else {
+			table = new MergingTable(new MutableTableMetaData(tableName));
+			table.setWhere(wheres.get(tableName.toUpperCase()));
 			try {
-				tables.add(tableName, currentTable);
+				tables.add(tableName, table);
 			} catch (AmbiguousTableNameException e) {
 				// should never happen
 				throw new IllegalStateException(
 						"Inconsistent DbUnit behavior.", e);
 			}
 		}
-		currentTable = null;
+		tablesByName.put(tableName, table);
+		return table;
 	}
 
 }
@@ -1,6 +1,8 @@
 package net.sf.lightair.internal.dbunit.dataset;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,17 +13,41 @@ import net.sf.lightair.internal.util.DataSetProcessingData;
 import org.dbunit.dataset.AbstractTable;
 import org.dbunit.dataset.Column;
 import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.datatype.DataType;
 
 /**
- * Table that can merge-in rows from other table with different columns.
+ * Table that can merge-in rows with different columns.
  * <p>
  * Used when parsing XML datasets, where additional columns may be defined on
  * any subsequent row.
+ * <p>
+ * Values are stored by column: each column has an ordinal, an array of values
+ * indexed by row and a bitmap of rows that have a value for the column.
+ * Column names are not case sensitive; the ordinal of each column name looked
+ * up is remembered, so that the name is converted to upper case only once.
  */
 public class MergingTable extends AbstractTable {
 
+	private static final int INITIAL_CAPACITY = 16;
+
 	private final MutableTableMetaData metaData;
-	private final List<Map<String, ColumnValue>> rows;
+
+	/**
+	 * Column ordinals by upper case column name.
+	 */
+	private final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+
+	/**
+	 * Column ordinals by column name as looked up.
+	 */
+	private final Map<String, Integer> lookups = new HashMap<String, Integer>();
+
+	private final List<Object[]> values = new ArrayList<Object[]>();
+	private final List<BitSet> presence = new ArrayList<BitSet>();
+	private int capacity = INITIAL_CAPACITY;
+	private int rowCount;
+	private int firstRowId;
+	private String where;
 
 	/**
 	 * Default constructor.
@@ -31,7 +57,6 @@ public class MergingTable extends AbstractTable {
 	 */
 	public MergingTable(MutableTableMetaData metaData) {
 		this.metaData = metaData;
-		this.rows = new ArrayList<Map<String, ColumnValue>>();
 		Factory.getInstance().initMergingTable(this);
 	}
 
@@ -40,7 +65,7 @@ public class MergingTable extends AbstractTable {
 	}
 
 	public int getRowCount() {
-		return rows.size();
+		return rowCount;
 	}
 
 	/**
@@ -60,16 +85,15 @@ public class MergingTable extends AbstractTable {
 	 */
 	public Object getValue(int rowId, String column)
 			throws RowOutOfBoundsException {
-		if (rowId >= rows.size()) {
+		if (rowId >= rowCount) {
 			throw new RowOutOfBoundsException(
 					"Signal end of table rows to DbUnit.");
 		}
-		Map<String, ColumnValue> row = rows.get(rowId);
-		ColumnValue columnValue = row.get(column.toUpperCase());
-		if (null == columnValue) {
+		int ordinal = getOrdinal(column);
+		if (ordinal < 0) {
 			return null;
 		}
-		return columnValue.getValue();
+		return values.get(ordinal)[rowId];
 	}
 
 	/**
@@ -82,9 +106,12 @@ public class MergingTable extends AbstractTable {
 	 * @return true iff the column is defined on the row
 	 */
 	public boolean hasValue(int rowId, String column) {
-		Map<String, ColumnValue> row = rows.get(rowId);
-		ColumnValue columnValue = row.get(column.toUpperCase());
-		return (null != columnValue);
+		if (rowId >= rowCount) {
+			throw new IndexOutOfBoundsException("Row " + rowId
+					+ " does not exist, table has " + rowCount + " rows.");
+		}
+		int ordinal = getOrdinal(column);
+		return ordinal >= 0 && presence.get(ordinal).get(rowId);
 	}
 
 	/**
@@ -94,35 +121,33 @@ public class MergingTable extends AbstractTable {
 	 *            Row values corresponding to the current table columns
 	 */
 	public void addRow(Object... values) {
-		Map<String, ColumnValue> row = new HashMap<String, ColumnValue>();
 		Column[] columns = metaData.getColumns();
+		int rowId = startRow();
 		for (int i = 0; i < values.length; i++) {
-			Column column = columns[i];
-			setRowColumn(row, column, values[i]);
+			String columnName = columns[i].getColumnName();
+			int ordinal = getOrdinal(columnName);
+			if (ordinal < 0) {
+				ordinal = addOrdinal(columnName);
+			}
+			setValue(rowId, ordinal, values[i]);
 		}
-		rows.add(row);
 	}
 
 	/**
-	 * Set value for a row's column.
+	 * Add new row with values of the given columns.
 	 * <p>
-	 * Replaces possible tokens in the value.
+	 * Columns the table does not have yet are added to it.
 	 * 
-	 * @param row
-	 *            Row
-	 * @param column
-	 *            Column
-	 * @param rawValue
-	 *            Value
+	 * @param columnNames
+	 *            Names of the row columns
+	 * @param values
+	 *            Row values in the order of the column names
 	 */
-	private void setRowColumn(Map<String, ColumnValue> row, Column column,
-			Object rawValue) {
-		if ("@any".equals(rawValue)) {
-			dataSetProcessingData.setTokenAnyPresent();
+	public void addRow(String[] columnNames, Object[] values) {
+		int rowId = startRow();
+		for (int i = 0; i < columnNames.length; i++) {
+			setValue(rowId, getOrAddColumn(columnNames[i]), values[i]);
 		}
-		Object value = tokenReplacingFilter.replaceTokens(rawValue);
-		row.put(column.getColumnName().toUpperCase(), new ColumnValue(column,
-				value));
 	}
 
 	/**
@@ -133,51 +158,171 @@ public class MergingTable extends AbstractTable {
 	 */
 	public void addTableRows(MergingTable otherTable) {
 		Column[] otherColumns = otherTable.getTableMetaData().getColumns();
-		mergeMetaData(otherColumns);
-		mergeRows(otherTable, otherColumns);
+		int[] ordinals = new int[otherColumns.length];
+		for (int colId = 0; colId < otherColumns.length; colId++) {
+			ordinals[colId] = getOrAddColumn(otherColumns[colId]);
+		}
+		for (int rowId = 0; rowId < otherTable.getRowCount(); rowId++) {
+			int newRowId = startRow();
+			for (int colId = 0; colId < otherColumns.length; colId++) {
+				int otherOrdinal = otherTable.getOrdinal(otherColumns[colId]
+						.getColumnName());
+				if (otherOrdinal >= 0
+						&& otherTable.presence.get(otherOrdinal).get(rowId)) {
+					setValue(newRowId, ordinals[colId],
+							otherTable.values.get(otherOrdinal)[rowId]);
+				}
+			}
+		}
 	}
 
 	/**
-	 * Add all columns of other table that this table does not have yet.
+	 * Return ordinal of column.
 	 * 
-	 * @param otherColumns
-	 *            Other table columns
+	 * @param columnName
+	 *            Column name in any case
+	 * @return Column ordinal or -1 if the table has no such column
 	 */
-	private void mergeMetaData(Column[] otherColumns) {
-		for (int colId = 0; colId < otherColumns.length; colId++) {
-			Column column = otherColumns[colId];
+	private int getOrdinal(String columnName) {
+		Integer ordinal = lookups.get(columnName);
+		if (null == ordinal) {
+			ordinal = ordinals.get(columnName.toUpperCase());
+			if (null == ordinal) {
+				return -1;
+			}
+			lookups.put(columnName, ordinal);
+		}
+		return ordinal;
+	}
+
+	/**
+	 * Allocate storage for a new column.
+	 * 
+	 * @param columnName
+	 *            Column name
+	 * @return Column ordinal
+	 */
+	private int addOrdinal(String columnName) {
+		int ordinal = values.size();
+		ordinals.put(columnName.toUpperCase(), ordinal);
+		lookups.put(columnName, ordinal);
+		values.add(new Object[capacity]);
+		presence.add(new BitSet());
+		return ordinal;
+	}
+
+	/**
+	 * Return ordinal of column, adding the column to table meta data if the
+	 * table does not have it yet.
+	 * 
+	 * @param columnName
+	 *            Column name
+	 * @return Column ordinal
+	 */
+	private int getOrAddColumn(String columnName) {
+		int ordinal = getOrdinal(columnName);
+		if (ordinal < 0) {
+			if (!metaData.hasColumn(columnName)) {
+				metaData.addColumn(new Column(columnName, DataType.UNKNOWN));
+			}
+			ordinal = addOrdinal(columnName);
+		}
+		return ordinal;
+	}
+
+	private int getOrAddColumn(Column column) {
+		int ordinal = getOrdinal(column.getColumnName());
+		if (ordinal < 0) {
 			if (!metaData.hasColumn(column.getColumnName())) {
 				metaData.addColumn(column);
 			}
+			ordinal = addOrdinal(column.getColumnName());
 		}
+		return ordinal;
 	}
 
 	/**
-	 * Add all rows values from other table to this table.
+	 * Append an empty row, growing column arrays if needed.
 	 * 
-	 * @param otherTable
-	 *            Other table
+	 * @return Id of the new row
 	 */
-	private void mergeRows(MergingTable otherTable, Column[] otherColumns) {
-		for (int rowId = 0; rowId < otherTable.getRowCount(); rowId++) {
-			Map<String, ColumnValue> row = new HashMap<String, ColumnValue>();
-			for (int colId = 0; colId < otherColumns.length; colId++) {
-				Column column = otherColumns[colId];
-				try {
-					setRowColumn(row, column,
-							otherTable.getValue(rowId, column.getColumnName()));
-				} catch (RowOutOfBoundsException e) {
-					// this should never happen as we iterate until rowCount
-					throw new IllegalStateException(e);
-				}
+	private int startRow() {
+		if (rowCount == capacity) {
+			capacity *= 2;
+			for (int i = 0; i < values.size(); i++) {
+				values.set(i, Arrays.copyOf(values.get(i), capacity));
 			}
-			rows.add(row);
 		}
+		return rowCount++;
+	}
+
+	/**
+	 * Set value for a row's column.
+	 * <p>
+	 * Replaces possible tokens in the value.
+	 * 
+	 * @param rowId
+	 *            Row id
+	 * @param ordinal
+	 *            Column ordinal
+	 * @param rawValue
+	 *            Value
+	 */
+	private void setValue(int rowId, int ordinal, Object rawValue) {
+		if ("@any".equals(rawValue)) {
+			dataSetProcessingData.setTokenAnyPresent();
+		}
+		values.get(ordinal)[rowId] = tokenReplacingFilter
+				.replaceTokens(rawValue);
+		presence.get(ordinal).set(rowId);
+	}
+
+	/**
+	 * Return id of the first row of this table in the whole dataset table.
+	 * 
+	 * @return Id of the first row, 0 unless the table is a part of a streamed
+	 *         dataset table
+	 */
+	public int getFirstRowId() {
+		return firstRowId;
+	}
+
+	/**
+	 * Set id of the first row of this table in the whole dataset table.
+	 * <p>
+	 * Row ids are used to generate <code>@auto</code> values.
+	 * 
+	 * @param firstRowId
+	 *            Id of the first row
+	 */
+	public void setFirstRowId(int firstRowId) {
+		this.firstRowId = firstRowId;
+	}
+
+	/**
+	 * Return condition restricting the database rows compared with this
+	 * table.
+	 * 
+	 * @return SQL condition or <code>null</code> to compare all rows
+	 */
+	public String getWhere() {
+		return where;
+	}
+
+	/**
+	 * Set condition restricting the database rows compared with this table.
+	 * 
+	 * @param where
+	 *            SQL condition
+	 */
+	public void setWhere(String where) {
+		this.where = where;
 	}
 
 	@Override
 	public String toString() {
-		return "MergingTable [metaData=" + metaData + ", rows=" + rows + "]";
+		return "MergingTable [metaData=" + metaData + ", rowCount=" + rowCount
+				+ "]";
 	}
 
 	private TokenReplacingFilter tokenReplacingFilter;
@@ -18,6 +18,7 @@ public class MutableTableMetaData implements ITableMetaData {
 
 	private final String tableName;
 	private final List<Column> columns;
+	private Column[] columnArray;
 
 	/**
 	 * Default constructor.
@@ -37,7 +38,10 @@ public class MutableTableMetaData implements ITableMetaData {
 	}
 
 	public Column[] getColumns() {
-		return columns.toArray(new Column[0]);
+		if (null == columnArray) {
+			columnArray = columns.toArray(new Column[columns.size()]);
+		}
+		return columnArray;
 	}
 
 	/**
@@ -83,6 +87,7 @@ public class MutableTableMetaData implements ITableMetaData {
 	 */
 	public void addColumn(Column column) {
 		columns.add(column);
+		columnArray = null;
 	}
 
 	@Override
@@ -3,13 +3,15 @@ package net.sf.lightair.internal.dbunit.dataset;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
-import java.util.Arrays;
-import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.sf.lightair.internal.util.DurationParser;
 
 import org.joda.time.DateMidnight;
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Period;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,14 +31,19 @@ import org.slf4j.LoggerFactory;
  * <li>@timestamp[+-][ISO 8601 duration] with current timestamp moved by the
  * duration</li>
  * </ul>
+ * Each distinct value is classified and its duration parsed only once.
+ * <p>
+ * Within a phase started by {@link #startPhase()}, all tokens are replaced
+ * relative to the same current time.
  */
 public class TokenReplacingFilter {
 
 	private final Logger log = LoggerFactory
 			.getLogger(TokenReplacingFilter.class);
 
-	private final static List<String> tokens = Arrays.asList(new String[] {
-			"@null", "@date", "@time", "@timestamp" });
+	private final ConcurrentMap<String, Token> tokens = new ConcurrentHashMap<String, Token>();
+
+	private volatile Long phaseMillis;
 
 	/**
 	 * Replace possible token in a value.
@@ -46,54 +53,68 @@ public class TokenReplacingFilter {
 	 * @return Value or token replacement
 	 */
 	public Object replaceTokens(Object value) {
-		if (shouldReplace(value)) {
-			Object replaced = replaceToken((String) value);
-			log.debug("Replaced token [{}] with value [{}].", value, replaced);
-			return replaced;
+		if (!(value instanceof String)) {
+			return value;
+		}
+		String string = (String) value;
+		if (string.length() == 0 || '@' != string.charAt(0)) {
+			return value;
+		}
+		Token token = tokens.get(string);
+		if (null == token) {
+			token = compile(string);
+			tokens.putIfAbsent(string, token);
+		}
+		if (NONE == token) {
+			return value;
 		}
-		return value;
+		Long millis = phaseMillis;
+		Object replaced = token.evaluate(null == millis ? DateTimeUtils
+				.currentTimeMillis() : millis);
+		log.debug("Replaced token [{}] with value [{}].", value, replaced);
+		return replaced;
 	}
 
-	private boolean shouldReplace(Object value) {
-		if (!(value instanceof String)) {
-			return false;
-		}
-		return tokens.contains(value) || isDuration((String) value, "@date")
-				|| isDuration((String) value, "@time")
-				|| isDuration((String) value, "@timestamp");
+	/**
+	 * Fix current time for tokens replaced until {@link #finishPhase()}.
+	 */
+	public void startPhase() {
+		phaseMillis = DateTimeUtils.currentTimeMillis();
+	}
+
+	/**
+	 * Replace tokens relative to the actual current time again.
+	 */
+	public void finishPhase() {
+		phaseMillis = null;
 	}
 
-	private Object replaceToken(String value) {
+	private Token compile(String value) {
 		if ("@null".equals(value)) {
-			return null;
+			return NULL;
 		}
 		if ("@date".equals(value)) {
-			return new Date(new DateMidnight().getMillis());
+			return DATE;
 		}
 		if ("@time".equals(value)) {
-			return new Time(new DateTime().withDate(1970, 1, 1)
-					.withMillisOfSecond(0).getMillis());
+			return TIME;
 		}
 		if ("@timestamp".equals(value)) {
-			return new Timestamp(new DateTime().getMillis());
+			return TIMESTAMP;
 		}
 		if (isDuration(value, "@date")) {
-			final DateTime from = new DateMidnight().toDateTime();
-			DateTime moved = durationParser.move(from, value.substring(5));
-			return new Timestamp(moved.getMillis());
+			return new MovedToken(DATE_FROM,
+					durationParser.parse(value.substring(5)));
 		}
 		if (isDuration(value, "@time")) {
-			final DateTime from = new DateTime().withDate(1970, 1, 1)
-					.withMillisOfSecond(0);
-			DateTime moved = durationParser.move(from, value.substring(5));
-			return new Timestamp(moved.getMillis());
+			return new MovedToken(TIME_FROM,
+					durationParser.parse(value.substring(5)));
 		}
 		if (isDuration(value, "@timestamp")) {
-			final DateTime from = new DateTime();
-			DateTime moved = durationParser.move(from, value.substring(10));
-			return new Timestamp(moved.getMillis());
+			return new MovedToken(TIMESTAMP_FROM,
+					durationParser.parse(value.substring(10)));
 		}
-		throw new RuntimeException("Unknown token " + value);
+		return NONE;
 	}
 
 	private boolean isDuration(String value, String temporalType) {
@@ -101,12 +122,102 @@ public class TokenReplacingFilter {
 				|| value.startsWith(temporalType + "-");
 	}
 
+	/**
+	 * Compiled token.
+	 */
+	private static abstract class Token {
+		/**
+		 * Evaluate token.
+		 * 
+		 * @param now
+		 *            Current time in milliseconds
+		 * @return Token replacement
+		 */
+		abstract Object evaluate(long now);
+	}
+
+	/**
+	 * Token moving a point in time by a duration.
+	 */
+	private static class MovedToken extends Token {
+		private final Token from;
+		private final Period period;
+
+		MovedToken(Token from, Period period) {
+			this.from = from;
+			this.period = period;
+		}
+
+		@Override
+		Object evaluate(long now) {
+			DateTime moved = ((DateTime) from.evaluate(now)).plus(period);
+			return new Timestamp(moved.getMillis());
+		}
+	}
+
+	private static final Token NONE = new Token() {
+		@Override
+		Object evaluate(long now) {
+			throw new IllegalStateException("Not a token");
+		}
+	};
+
+	private static final Token NULL = new Token() {
+		@Override
+		Object evaluate(long now) {
+			return null;
+		}
+	};
+
+	private static final Token DATE_FROM = new Token() {
+		@Override
+		Object evaluate(long now) {
+			return new DateMidnight(now).toDateTime();
+		}
+	};
+
+	private static final Token TIME_FROM = new Token() {
+		@Override
+		Object evaluate(long now) {
+			return new DateTime(now).withDate(1970, 1, 1).withMillisOfSecond(0);
+		}
+	};
+
+	private static final Token TIMESTAMP_FROM = new Token() {
+		@Override
+		Object evaluate(long now) {
+			return new DateTime(now);
+		}
+	};
+
+	private static final Token DATE = new Token() {
+		@Override
+		Object evaluate(long now) {
+			return new Date(new DateMidnight(now).getMillis());
+		}
+	};
+
+	private static final Token TIME = new Token() {
+		@Override
+		Object evaluate(long now) {
+			return new Time(((DateTime) TIME_FROM.evaluate(now)).getMillis());
+		}
+	};
+
+	private static final Token TIMESTAMP = new Token() {
+		@Override
+		Object evaluate(long now) {
+			return new Timestamp(now);
+		}
+	};
+
 	// beans and their setters
 
 	private DurationParser durationParser = new DurationParser();
 
 	public void setDurationParser(DurationParser durationParser) {
 		this.durationParser = durationParser;
+		tokens.clear();
 	}
 
 }
@@ -0,0 +1,42 @@
+package net.sf.lightair.internal.dbunit.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Databases with specific support, recognized by the JDBC product name.
+ */
+public enum DatabaseProduct {
+
+	H2("H2"),
+
+	HSQLDB("HSQL Database Engine"),
+
+	DERBY("Apache Derby");
+
+	private final String productName;
+
+	private DatabaseProduct(String productName) {
+		this.productName = productName;
+	}
+
+	/**
+	 * Return the database of a connection.
+	 *
+	 * @param connection
+	 *            JDBC connection
+	 * @return Database or <code>null</code> for other databases
+	 * @throws SQLException
+	 */
+	public static DatabaseProduct forConnection(Connection connection)
+			throws SQLException {
+		String productName = connection.getMetaData().getDatabaseProductName();
+		for (DatabaseProduct product : values()) {
+			if (product.productName.equals(productName)) {
+				return product;
+			}
+		}
+		return null;
+	}
+
+}
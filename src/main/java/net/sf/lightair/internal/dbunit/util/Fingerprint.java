@@ -0,0 +1,131 @@
+package net.sf.lightair.internal.dbunit.util;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Order-independent fingerprint of table rows.
+ * <p>
+ * Consists of the number of rows and the sum of row hashes. Each row hash is
+ * computed from a normalized text form of the row values, so that values read
+ * from the database and values cast from a dataset to the same data type
+ * produce the same hash.
+ */
+public class Fingerprint {
+
+	private int rowCount;
+
+	private long hash;
+
+	private final MessageDigest digest;
+
+	private final StringBuilder buffer = new StringBuilder();
+
+	public Fingerprint() {
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("Algorithm MD5 is not accessible.", e);
+		}
+	}
+
+	/**
+	 * Add row to fingerprint.
+	 *
+	 * @param values
+	 *            Row values typed by column data types, <code>null</code> for
+	 *            SQL null
+	 */
+	public void addRow(Object[] values) {
+		buffer.setLength(0);
+		for (Object value : values) {
+			if (null == value) {
+				buffer.append("N;");
+			} else {
+				String normalized = normalize(value);
+				buffer.append('V').append(normalized.length()).append(':')
+						.append(normalized);
+			}
+		}
+		byte[] bytes;
+		try {
+			bytes = digest.digest(buffer.toString().getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException("Encoding UTF-8 is not supported.", e);
+		}
+		long rowHash = 0;
+		for (int i = 0; i < 8; i++) {
+			rowHash = (rowHash << 8) | (bytes[i] & 0xff);
+		}
+		hash += rowHash;
+		rowCount++;
+	}
+
+	private String normalize(Object value) {
+		if (value instanceof Number) {
+			BigDecimal number;
+			try {
+				number = new BigDecimal(value.toString());
+			} catch (NumberFormatException e) {
+				// NaN or infinity
+				return value.toString();
+			}
+			if (number.signum() == 0) {
+				return "0";
+			}
+			return number.stripTrailingZeros().toPlainString();
+		}
+		if (value instanceof Timestamp) {
+			Timestamp timestamp = (Timestamp) value;
+			return timestamp.getTime() + "." + timestamp.getNanos();
+		}
+		if (value instanceof Date) {
+			return String.valueOf(((Date) value).getTime());
+		}
+		if (value instanceof byte[]) {
+			StringBuilder hex = new StringBuilder();
+			for (byte b : (byte[]) value) {
+				hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+				hex.append(Character.forDigit(b & 0xf, 16));
+			}
+			return hex.toString();
+		}
+		return value.toString();
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public long getHash() {
+		return hash;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32)) * 31 + rowCount;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Fingerprint)) {
+			return false;
+		}
+		Fingerprint other = (Fingerprint) obj;
+		return rowCount == other.rowCount && hash == other.hash;
+	}
+
+	@Override
+	public String toString() {
+		return "Fingerprint[rowCount=" + rowCount + ", hash="
+				+ Long.toHexString(hash) + "]";
+	}
+
+}
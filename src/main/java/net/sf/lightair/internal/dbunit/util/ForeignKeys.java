@@ -0,0 +1,113 @@
+package net.sf.lightair.internal.dbunit.util;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Foreign keys between tables read from {@link DatabaseMetaData}, with
+ * resolution of schema names to the case the meta data matches.
+ */
+public class ForeignKeys {
+
+	private ForeignKeys() {
+	}
+
+	/**
+	 * Return schema name the way the database stores it. Meta data methods
+	 * match schema names exactly, while schema names in configuration may
+	 * differ in case.
+	 *
+	 * @param metaData
+	 *            Database meta data
+	 * @param schema
+	 *            Schema name as configured, or <code>null</code>
+	 * @return Stored schema name
+	 * @throws SQLException
+	 */
+	public static String getStoredSchemaName(DatabaseMetaData metaData,
+			String schema) throws SQLException {
+		if (null == schema) {
+			return null;
+		}
+		ResultSet schemas = metaData.getSchemas();
+		try {
+			String found = null;
+			while (schemas.next()) {
+				String name = schemas.getString(1);
+				if (name.equals(schema)) {
+					return name;
+				}
+				if (name.equalsIgnoreCase(schema)) {
+					found = name;
+				}
+			}
+			if (null != found) {
+				return found;
+			}
+		} finally {
+			schemas.close();
+		}
+		if (metaData.storesUpperCaseIdentifiers()) {
+			return schema.toUpperCase(Locale.ENGLISH);
+		}
+		if (metaData.storesLowerCaseIdentifiers()) {
+			return schema.toLowerCase(Locale.ENGLISH);
+		}
+		return schema;
+	}
+
+	/**
+	 * Return names of tables referenced by foreign keys of a table.
+	 *
+	 * @param metaData
+	 *            Database meta data
+	 * @param schema
+	 *            Schema name as stored in the database, see
+	 *            {@link #getStoredSchemaName(DatabaseMetaData, String)}
+	 * @param tableName
+	 *            Table name as stored in the database
+	 * @return Referenced table names as stored in the database
+	 * @throws SQLException
+	 */
+	public static Set<String> getReferencedTables(DatabaseMetaData metaData,
+			String schema, String tableName) throws SQLException {
+		Set<String> referenced = new HashSet<String>();
+		ResultSet keys = metaData.getImportedKeys(null, schema, tableName);
+		try {
+			while (keys.next()) {
+				referenced.add(keys.getString("PKTABLE_NAME"));
+			}
+		} finally {
+			keys.close();
+		}
+		return referenced;
+	}
+
+	/**
+	 * Return true if a table is referenced by any foreign key.
+	 *
+	 * @param metaData
+	 *            Database meta data
+	 * @param schema
+	 *            Schema name as stored in the database, see
+	 *            {@link #getStoredSchemaName(DatabaseMetaData, String)}
+	 * @param tableName
+	 *            Table name as stored in the database
+	 * @return true if referenced
+	 * @throws SQLException
+	 */
+	public static boolean isReferenced(DatabaseMetaData metaData,
+			String schema, String tableName) throws SQLException {
+		ResultSet keys = metaData.getExportedKeys(null, schema, tableName);
+		try {
+			return keys.next();
+		} finally {
+			keys.close();
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package net.sf.lightair.internal.factory;
 
 import java.beans.PropertyVetoException;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -15,6 +16,7 @@ import net.sf.lightair.exception.DatabaseAccessException;
 import net.sf.lightair.internal.dbunit.AutoPreparedStatementFactory;
 import net.sf.lightair.internal.dbunit.ConnectionFactory;
 import net.sf.lightair.internal.dbunit.DbUnitWrapper;
+import net.sf.lightair.internal.dbunit.bulk.SnapshotStore;
 import net.sf.lightair.internal.dbunit.database.DatabaseConnection;
 import net.sf.lightair.internal.dbunit.dataset.MergingTable;
 import net.sf.lightair.internal.dbunit.dataset.TokenReplacingFilter;
@@ -28,8 +30,15 @@ import net.sf.lightair.internal.junit.VerifyListTestRule;
 import net.sf.lightair.internal.junit.VerifyTestRule;
 import net.sf.lightair.internal.properties.PropertiesProvider;
 import net.sf.lightair.internal.properties.PropertyKeys;
+import net.sf.lightair.internal.unitils.ActualDataSetReader;
 import net.sf.lightair.internal.unitils.DataSetFactory;
 import net.sf.lightair.internal.unitils.DataSetLoader;
+import net.sf.lightair.internal.unitils.DataSetStreamer;
+import net.sf.lightair.internal.unitils.ChangeTracker;
+import net.sf.lightair.internal.unitils.FingerprintVerifier;
+import net.sf.lightair.internal.unitils.ParallelVerifier;
+import net.sf.lightair.internal.unitils.SqlVerifier;
+import net.sf.lightair.internal.unitils.TableHelper;
 import net.sf.lightair.internal.unitils.UnitilsWrapper;
 import net.sf.lightair.internal.unitils.compare.Column;
 import net.sf.lightair.internal.unitils.compare.DataSetAssert;
@@ -51,8 +60,12 @@ import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.ITableMetaData;
 import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.operation.AutoInsertOperation;
+import org.dbunit.operation.BulkLoadInsertOperation;
+import org.dbunit.operation.ChecksumSkipOperation;
 import org.dbunit.operation.CompositeOperation;
 import org.dbunit.operation.DatabaseOperation;
+import org.dbunit.operation.MultiRowInsertOperation;
+import org.dbunit.operation.OrderedDeleteAllOperation;
 import org.junit.rules.TestRule;
 import org.junit.runners.model.FrameworkMethod;
 import org.slf4j.Logger;
@@ -99,6 +112,54 @@ public class Factory implements PropertyKeys {
 		return unitilsWrapper;
 	}
 
+	private final SnapshotStore snapshotStore = new SnapshotStore();
+
+	public SnapshotStore getSnapshotStore() {
+		return snapshotStore;
+	}
+
+	private final DataSetStreamer dataSetStreamer = new DataSetStreamer();
+
+	public DataSetStreamer getDataSetStreamer() {
+		return dataSetStreamer;
+	}
+
+	private final SqlVerifier sqlVerifier = new SqlVerifier();
+
+	public SqlVerifier getSqlVerifier() {
+		return sqlVerifier;
+	}
+
+	private final ActualDataSetReader actualDataSetReader = new ActualDataSetReader();
+
+	public ActualDataSetReader getActualDataSetReader() {
+		return actualDataSetReader;
+	}
+
+	private final FingerprintVerifier fingerprintVerifier = new FingerprintVerifier();
+
+	public FingerprintVerifier getFingerprintVerifier() {
+		return fingerprintVerifier;
+	}
+
+	private final ChangeTracker changeTracker = new ChangeTracker();
+
+	public ChangeTracker getChangeTracker() {
+		return changeTracker;
+	}
+
+	private final TableHelper tableHelper = new TableHelper();
+
+	public TableHelper getTableHelper() {
+		return tableHelper;
+	}
+
+	private final ParallelVerifier parallelVerifier = new ParallelVerifier();
+
+	public ParallelVerifier getParallelVerifier() {
+		return parallelVerifier;
+	}
+
 	private final SetupExecutor setupExecutor = new SetupExecutor();
 
 	public SetupExecutor getSetupExecutor() {
@@ -157,8 +218,17 @@ public class Factory implements PropertyKeys {
 
 	private static final DatabaseOperation INSERT = new AutoInsertOperation();
 
-	private static final DatabaseOperation CLEAN_INSERT = new CompositeOperation(
-			DatabaseOperation.DELETE_ALL, INSERT);
+	private static final BulkLoadInsertOperation BULK_LOAD_INSERT = new BulkLoadInsertOperation();
+
+	private static final DatabaseOperation ORDERED_DELETE_ALL = new OrderedDeleteAllOperation(
+			false);
+
+	private static final DatabaseOperation ORDERED_TRUNCATE_ALL = new OrderedDeleteAllOperation(
+			true);
+
+	private final Map<String, DatabaseOperation> cleanInsertOperations = new HashMap<String, DatabaseOperation>();
+
+	private final Map<String, DatabaseOperation> transactionCleanInsertOperations = new HashMap<String, DatabaseOperation>();
 
 	private final HashGenerator hashGenerator = new HashGenerator();
 	private final AutoNumberGenerator autoNumberGenerator = new AutoNumberGenerator();
@@ -174,20 +244,66 @@ public class Factory implements PropertyKeys {
 		log.debug("Initializing factory.");
 		propertiesProvider.init();
 		initDataSources();
+		initCleanInsertOperations();
 		connectionFactory.setPropertiesProvider(propertiesProvider);
 		connectionFactory.setFactory(this);
 		dbUnitWrapper.setConnectionFactory(connectionFactory);
 		dbUnitWrapper.setPropertiesProvider(propertiesProvider);
+		dbUnitWrapper.setStatementFactory(statementFactory);
+		dbUnitWrapper.setTableHelper(tableHelper);
 		dbUnitWrapper.resetConnectionCache();
+		statementFactory.setStatementCacheSize((int) propertiesProvider
+				.getProperty(null, STATEMENT_CACHE_SIZE, 20));
 		unitilsWrapper.setDbUnitWrapper(dbUnitWrapper);
 		unitilsWrapper.setDataSetLoader(dataSetLoader);
 		unitilsWrapper.setDataSetAssert(dataSetAssert);
 		unitilsWrapper.setFactory(this);
+		unitilsWrapper.setSnapshotStore(snapshotStore);
+		unitilsWrapper.setDataSetStreamer(dataSetStreamer);
+		dataSetStreamer.setDataSetFactory(dataSetFactory);
+		dataSetStreamer.setDbUnitWrapper(dbUnitWrapper);
+		dataSetStreamer.setPropertiesProvider(propertiesProvider);
+		dataSetStreamer.setFactory(this);
+		unitilsWrapper.setSqlVerifier(sqlVerifier);
+		sqlVerifier.setPropertiesProvider(propertiesProvider);
+		sqlVerifier.setTableHelper(tableHelper);
+		unitilsWrapper.setActualDataSetReader(actualDataSetReader);
+		actualDataSetReader.setPropertiesProvider(propertiesProvider);
+		actualDataSetReader.setTableHelper(tableHelper);
+		unitilsWrapper.setFingerprintVerifier(fingerprintVerifier);
+		fingerprintVerifier.setPropertiesProvider(propertiesProvider);
+		fingerprintVerifier.setTableHelper(tableHelper);
+		unitilsWrapper.setChangeTracker(changeTracker);
+		changeTracker.setDbUnitWrapper(dbUnitWrapper);
+		changeTracker.setPropertiesProvider(propertiesProvider);
+		changeTracker.setTableHelper(tableHelper);
+		tableHelper.setFactory(this);
+		unitilsWrapper.setParallelVerifier(parallelVerifier);
+		parallelVerifier.setDbUnitWrapper(dbUnitWrapper);
+		parallelVerifier.setConnectionFactory(connectionFactory);
+		parallelVerifier.setPropertiesProvider(propertiesProvider);
+		parallelVerifier.setSqlVerifier(sqlVerifier);
+		parallelVerifier.setFingerprintVerifier(fingerprintVerifier);
+		parallelVerifier.setChangeTracker(changeTracker);
+		parallelVerifier.setActualDataSetReader(actualDataSetReader);
+		parallelVerifier.setDataSetAssert(dataSetAssert);
+		snapshotStore.setDbUnitWrapper(dbUnitWrapper);
+		snapshotStore.setPropertiesProvider(propertiesProvider);
+		snapshotStore.setTableHelper(tableHelper);
+		snapshotStore.setFactory(this);
 		setupExecutor.setUnitilsWrapper(unitilsWrapper);
+		setupExecutor.setDbUnitWrapper(dbUnitWrapper);
+		setupExecutor.setPropertiesProvider(propertiesProvider);
 		verifyExecutor.setUnitilsWrapper(unitilsWrapper);
 		dataSetLoader.setDataSetResolver(dataSetResolver);
 		dataSetLoader.setDataSetFactory(dataSetFactory);
 		dataSetFactory.setPropertiesProvider(propertiesProvider);
+		dataSetFactory.setCacheSize((int) propertiesProvider.getProperty(null,
+				DATASET_CACHE_SIZE, 100));
+		dataSetFactory.setParseThreads((int) propertiesProvider.getProperty(
+				null, DATASET_PARSE_THREADS, 1));
+		parallelVerifier.setThreads((int) propertiesProvider.getProperty(null,
+				VERIFY_THREADS, 1));
 		timeDifferenceLimit = propertiesProvider.getProperty(null,
 				TIME_DIFFERENCE_LIMIT, 0);
 		tokenReplacingFilter.setDurationParser(durationParser);
@@ -228,6 +344,96 @@ public class Factory implements PropertyKeys {
 		dataSources.put(profile, dataSource);
 	}
 
+	private void initCleanInsertOperations() {
+		cleanInsertOperations.clear();
+		transactionCleanInsertOperations.clear();
+		initCleanInsertOperation(Profiles.DEFAULT_PROFILE);
+		for (String profile : propertiesProvider.getProfileNames()) {
+			initCleanInsertOperation(profile);
+		}
+	}
+
+	private void initCleanInsertOperation(String profile) {
+		cleanInsertOperations.put(profile,
+				createCleanInsertOperation(profile, false));
+		transactionCleanInsertOperations.put(profile,
+				createCleanInsertOperation(profile, true));
+	}
+
+	private DatabaseOperation createCleanInsertOperation(String profile,
+			boolean transaction) {
+		DatabaseOperation clean = createCleanOperation(profile, transaction);
+		DatabaseOperation insert = createInsertOperation(profile);
+		DatabaseOperation cleanInsert = new CompositeOperation(clean, insert);
+		if (Boolean.parseBoolean(propertiesProvider.getProperty(profile,
+				SETUP_SKIP_UNCHANGED, "false"))) {
+			log.debug("Skipping unchanged tables for profile {}.", profile);
+			ChecksumSkipOperation skipOperation = new ChecksumSkipOperation(
+					cleanInsert);
+			skipOperation.setFactory(this);
+			cleanInsert = skipOperation;
+		}
+		return cleanInsert;
+	}
+
+	/**
+	 * Create clean operation of a profile.
+	 * <p>
+	 * Truncate is DDL that commits implicitly in most databases, so while a
+	 * transaction connection is bound to the profile, tables are cleaned by
+	 * ordered delete instead, keeping the transaction to be rolled back.
+	 */
+	private DatabaseOperation createCleanOperation(String profile,
+			boolean transaction) {
+		String mode = propertiesProvider.getProperty(profile,
+				SETUP_CLEAN_MODE, SETUP_CLEAN_MODE_DELETE);
+		if (SETUP_CLEAN_MODE_TRUNCATE.equals(mode) && transaction) {
+			log.debug("Using ordered delete clean for profile {} "
+					+ "in transaction.", profile);
+			return ORDERED_DELETE_ALL;
+		}
+		if (SETUP_CLEAN_MODE_TRUNCATE.equals(mode)) {
+			String dialect = propertiesProvider.getProperty(profile,
+					DATABASE_DIALECT);
+			if (OrderedDeleteAllOperation.isTruncateSupported(dialect)) {
+				log.debug("Using truncate clean for profile {}.", profile);
+				return ORDERED_TRUNCATE_ALL;
+			}
+			log.warn("Truncate not supported for dialect {} "
+					+ "of profile {}, using ordered delete.", dialect, profile);
+			return ORDERED_DELETE_ALL;
+		}
+		if (SETUP_CLEAN_MODE_ORDERED.equals(mode)) {
+			log.debug("Using ordered delete clean for profile {}.", profile);
+			return ORDERED_DELETE_ALL;
+		}
+		return DatabaseOperation.DELETE_ALL;
+	}
+
+	private DatabaseOperation createInsertOperation(String profile) {
+		String mode = propertiesProvider.getProperty(profile,
+				SETUP_INSERT_MODE, SETUP_INSERT_MODE_BATCH);
+		if (SETUP_INSERT_MODE_BULK.equals(mode)) {
+			log.debug("Using bulk load insert for profile {}.", profile);
+			return BULK_LOAD_INSERT;
+		}
+		if (SETUP_INSERT_MODE_MULTI_ROW.equals(mode)) {
+			String dialect = propertiesProvider.getProperty(profile,
+					DATABASE_DIALECT);
+			Integer parameterLimit = MultiRowInsertOperation
+					.getParameterLimit(dialect);
+			if (null != parameterLimit) {
+				log.debug("Using multi-row insert for profile {} "
+						+ "with at most {} parameters per statement.",
+						profile, parameterLimit);
+				return new MultiRowInsertOperation(parameterLimit);
+			}
+			log.warn("Multi-row insert not supported for dialect {} "
+					+ "of profile {}, using batch insert.", dialect, profile);
+		}
+		return INSERT;
+	}
+
 	// custom lifecycle classes
 
 	private DataSetProcessingData dataSetProcessingData;
@@ -240,12 +446,21 @@ public class Factory implements PropertyKeys {
 		dataSetProcessingData = new DataSetProcessingData();
 		uniqueAutoValueGenerator.init();
 		autoNumberGenerator.init();
+		tokenReplacingFilter.startPhase();
+	}
+
+	public void finishDataSetProcessing() {
+		tokenReplacingFilter.finishPhase();
 	}
 
 	public void resetConnectionCache() {
 		getDbUnitWrapper().resetConnectionCache();
 	}
 
+	public void releaseSavepoints() {
+		getDbUnitWrapper().releaseSavepoints();
+	}
+
 	// getters for classes always newly instantiated
 
 	public SetupTestRule getSetupTestRule(FrameworkMethod frameworkMethod) {
@@ -304,6 +519,16 @@ public class Factory implements PropertyKeys {
 		// return new DbUnitDatabaseConnection(dataSource, schemaName);
 	}
 
+	public IDatabaseConnection createDatabaseConnection(
+			Connection connection, String schemaName)
+			throws DatabaseAccessException {
+		try {
+			return new DatabaseConnection(connection, schemaName);
+		} catch (DatabaseUnitException e) {
+			throw new DatabaseAccessException(e);
+		}
+	}
+
 	public ITableMetaData getTableMetaData(String tableName,
 			IDatabaseConnection connection, boolean validate,
 			boolean caseSensitiveMetaData) throws DataSetException {
@@ -341,8 +566,30 @@ public class Factory implements PropertyKeys {
 
 	// static method call wrappers
 
-	public DatabaseOperation getCleanInsertDatabaseOperation() {
-		return CLEAN_INSERT;
+	public DatabaseOperation getCleanInsertDatabaseOperation(String profile) {
+		if (isInTransaction(profile)) {
+			return transactionCleanInsertOperations.get(Profiles
+					.getProfile(profile));
+		}
+		return cleanInsertOperations.get(Profiles.getProfile(profile));
+	}
+
+	public DatabaseOperation getCleanDatabaseOperation(String profile) {
+		return createCleanOperation(Profiles.getProfile(profile),
+				isInTransaction(profile));
+	}
+
+	private boolean isInTransaction(String profile) {
+		return null != dbUnitWrapper.getTransactionConnection(Profiles
+				.getProfile(profile));
+	}
+
+	public DatabaseOperation getInsertDatabaseOperation(String profile) {
+		return createInsertOperation(Profiles.getProfile(profile));
+	}
+
+	public BulkLoadInsertOperation getBulkLoadInsertOperation() {
+		return BULK_LOAD_INSERT;
 	}
 
 	// properties
@@ -1,19 +1,71 @@
 package net.sf.lightair.internal.junit;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
 
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.sf.lightair.annotation.Setup;
+import net.sf.lightair.internal.dbunit.DbUnitWrapper;
+import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.properties.PropertyKeys;
 import net.sf.lightair.internal.unitils.UnitilsWrapper;
 
-public class SetupExecutor {
+public class SetupExecutor implements PropertyKeys {
 
 	private final Logger log = LoggerFactory.getLogger(SetupExecutor.class);
 
 	public void execute(Setup setup, Method testMethod) {
+		dbUnitWrapper.releaseSavepoint(setup.profile());
+		setup(setup, testMethod);
+	}
+
+	/**
+	 * Set up database by @{@link Setup} of the test class.
+	 * <p>
+	 * With property <code>setup.savepoint=true</code>, the dataset is inserted
+	 * and committed only before the first test method of the class and a
+	 * savepoint is set. Each following test method rolls back to the savepoint
+	 * instead. If the rollback fails, typically because the test committed,
+	 * the database is set up again.
+	 * <p>
+	 * Changes committed on other connections are not rolled back. They are
+	 * detected by fingerprints of the dataset tables taken at the savepoint,
+	 * in which case the database is set up again as well. Classes whose tests
+	 * commit opt out by <code>@Setup(savepoint = false)</code>.
+	 * 
+	 * @param setup
+	 *            Setup annotation of the test class
+	 * @param testMethod
+	 *            Test method
+	 */
+	public void executeClassSetup(Setup setup, Method testMethod) {
+		String profile = setup.profile();
+		if (!setup.savepoint()
+				|| !Boolean.parseBoolean(propertiesProvider.getProperty(profile,
+						SETUP_SAVEPOINT, "false"))
+				|| dbUnitWrapper.isExternalTransactionConnectionBound(profile)) {
+			execute(setup, testMethod);
+			return;
+		}
+		String key = testMethod.getDeclaringClass().getName()
+				+ Arrays.toString(setup.value());
+		if (dbUnitWrapper.rollbackToSavepoint(profile, key)) {
+			log.info("Rolled back database to savepoint for test method {} "
+					+ "and profile {}.", testMethod, profile);
+			return;
+		}
+		dbUnitWrapper.beginSavepointTransaction(profile);
+		setup(setup, testMethod);
+		dbUnitWrapper.setSavepoint(profile, key, unitilsWrapper
+				.getSetupTableNames(testMethod, profile, setup.value()));
+	}
+
+	private void setup(Setup setup, Method testMethod) {
 		String[] fileNames = setup.value();
 		String profile = setup.profile();
 		log.info("Setting up database for test method {} " + "and profile {} with configured file names {}.",
@@ -22,11 +74,48 @@ public class SetupExecutor {
 		stopWatch.start();
 		unitilsWrapper.setup(testMethod, profile, fileNames);
 		stopWatch.stop();
+		logTableSetupDecisions();
 		log.debug("Database set up in {} ms.", stopWatch.getTime());
 	}
 
+	private void logTableSetupDecisions() {
+		Map<String, Boolean> decisions = Factory.getInstance().getDataSetProcessingData()
+				.getTableSetupDecisions();
+		for (Map.Entry<String, Boolean> decision : decisions.entrySet()) {
+			if (decision.getValue()) {
+				log.info("Skipped table {}, its content matches the dataset.", decision.getKey());
+			} else {
+				log.info("Set up table {}.", decision.getKey());
+			}
+		}
+	}
+
 	// beans and their setters:
 
+	private DbUnitWrapper dbUnitWrapper;
+
+	/**
+	 * Set DbUnit wrapper.
+	 * 
+	 * @param dbUnitWrapper
+	 *            DbUnit wrapper
+	 */
+	public void setDbUnitWrapper(DbUnitWrapper dbUnitWrapper) {
+		this.dbUnitWrapper = dbUnitWrapper;
+	}
+
+	private PropertiesProvider propertiesProvider;
+
+	/**
+	 * Set property provider.
+	 * 
+	 * @param propertiesProvider
+	 *            Property provider
+	 */
+	public void setPropertiesProvider(PropertiesProvider propertiesProvider) {
+		this.propertiesProvider = propertiesProvider;
+	}
+
 	protected UnitilsWrapper unitilsWrapper;
 
 	/**
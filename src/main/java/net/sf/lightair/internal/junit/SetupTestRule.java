@@ -21,10 +21,17 @@ public class SetupTestRule extends AbstractTestRule<Setup> {
 
 	/**
 	 * If the method is annotated with @{@link Setup}, set up the database.
+	 * Otherwise, if the class is annotated, set up the database by the class
+	 * annotation, which may reuse the dataset of the previous test method.
 	 */
 	@Override
 	protected void before() {
-		if (null != getAnnotation()) {
+		if (null == getAnnotation()) {
+			return;
+		}
+		if (null == getTestMethod().getAnnotation(Setup.class)) {
+			setupExecutor.executeClassSetup(getAnnotation(), getTestMethod());
+		} else {
 			setupExecutor.execute(getAnnotation(), getTestMethod());
 		}
 	}
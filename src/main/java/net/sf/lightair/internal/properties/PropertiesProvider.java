@@ -7,6 +7,7 @@ import java.net.URLConnection;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -140,6 +141,32 @@ public class PropertiesProvider {
 		return trimmedValue;
 	}
 
+	/**
+	 * Get optional property value from properties file.
+	 * <p>
+	 * Value is trimmed.
+	 * 
+	 * @param profile
+	 *            Name of profile, null or empty string for default profile
+	 * @param key
+	 *            Property key
+	 * @param defaultValue
+	 *            Default value to return when the property is not defined
+	 * @return Trimmed property value or the default value when the property
+	 *         is not defined
+	 */
+	public String getProperty(String profile, String key, String defaultValue) {
+		String rawValue = getProfileProperties(profile).getProperty(key);
+		String value;
+		if (null == rawValue) {
+			value = defaultValue;
+		} else {
+			value = rawValue.trim();
+		}
+		log.debug("Providing property [{}] as [{}].", key, value);
+		return value;
+	}
+
 	/**
 	 * Get optional property value from properties file as long.
 	 * <p>
@@ -189,6 +216,25 @@ public class PropertiesProvider {
 		return getPropertyKeysWithPrefix(profile, "dbunit.properties.");
 	}
 
+	/**
+	 * Return default schema and other schemas of a profile.
+	 * 
+	 * @param profile
+	 *            Name of profile, null or empty string for default profile
+	 * @return Schema names, the default schema first
+	 */
+	public Set<String> getSchemaNames(String profile) {
+		Set<String> schemaNames = new LinkedHashSet<String>();
+		schemaNames.add(getProperty(profile, PropertyKeys.DEFAULT_SCHEMA));
+		for (String schemaName : getProperty(profile,
+				PropertyKeys.SCHEMA_NAMES, "").split(",")) {
+			if (0 != schemaName.trim().length()) {
+				schemaNames.add(schemaName.trim());
+			}
+		}
+		return schemaNames;
+	}
+
 	protected Set<String> getPropertyKeysWithPrefix(String profile, String prefix) {
 		Set<String> names = new HashSet<String>();
 		Enumeration<Object> keys = getProfileProperties(profile).keys();
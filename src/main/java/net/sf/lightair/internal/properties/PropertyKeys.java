@@ -17,4 +17,45 @@ public interface PropertyKeys {
 
 	String TIME_DIFFERENCE_LIMIT = "time.difference.limit.millis";
 
+	String SETUP_INSERT_MODE = "setup.insert.mode";
+	String SETUP_INSERT_MODE_BATCH = "batch";
+	String SETUP_INSERT_MODE_MULTI_ROW = "multirow";
+	String SETUP_INSERT_MODE_BULK = "bulk";
+
+	String SETUP_CLEAN_MODE = "setup.clean.mode";
+	String SETUP_CLEAN_MODE_DELETE = "delete";
+	String SETUP_CLEAN_MODE_ORDERED = "ordered";
+	String SETUP_CLEAN_MODE_TRUNCATE = "truncate";
+
+	String SETUP_SKIP_UNCHANGED = "setup.skip.unchanged";
+
+	String SETUP_SAVEPOINT = "setup.savepoint";
+
+	String SETUP_SNAPSHOT = "setup.snapshot";
+	String SETUP_SNAPSHOT_DIRECTORY = "setup.snapshot.directory";
+	String SETUP_SNAPSHOT_LIMIT = "setup.snapshot.limit";
+
+	String SETUP_STREAMING = "setup.streaming";
+	String SETUP_STREAMING_QUEUE_SIZE = "setup.streaming.queue.size";
+
+	String VERIFY_SQL = "verify.sql";
+	String VERIFY_SQL_MIN_ROWS = "verify.sql.min.rows";
+
+	String VERIFY_FETCH_SIZE = "verify.fetch.size";
+
+	String VERIFY_FINGERPRINT = "verify.fingerprint";
+
+	String VERIFY_THREADS = "verify.threads";
+
+	String VERIFY_CHANGES = "verify.changes";
+
+	String STATEMENT_CACHE_SIZE = "statement.cache.size";
+
+	String DATASET_CACHE_SIZE = "dataset.cache.size";
+
+	String DATASET_PARSE_THREADS = "dataset.parse.threads";
+
+	String SPRING_TRANSACTION_ROLLBACK = "spring.transaction.rollback";
+	String SPRING_DATA_SOURCE_BEAN_NAME = "spring.dataSource.beanName";
+
 }
@@ -0,0 +1,136 @@
+package net.sf.lightair.internal.spring;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.properties.PropertyKeys;
+import net.sf.lightair.internal.util.Profiles;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs setup, test and verify of a test method in a transaction of the
+ * application data source, which is rolled back after the test.
+ * <p>
+ * Active when property <code>spring.transaction.rollback</code> of the
+ * default profile is <code>true</code>. The data source is the bean named by
+ * property <code>spring.dataSource.beanName</code>, or the only
+ * {@link DataSource} bean of the test application context.
+ * <p>
+ * If the test method already runs in a Spring managed transaction (e.g. it is
+ * <code>@Transactional</code>), Light air joins it. Otherwise a transaction is
+ * started before and rolled back after the test method.
+ * <p>
+ * Test methods that commit, i.e. annotated <code>@Rollback(false)</code> or
+ * in a class annotated <code>@TransactionConfiguration(defaultRollback =
+ * false)</code>, are set up by clean insert on the Light air connection.
+ */
+public class TransactionRollbackListener extends AbstractTestExecutionListener
+		implements PropertyKeys {
+
+	private final Logger log = LoggerFactory
+			.getLogger(TransactionRollbackListener.class);
+
+	private static final String DATA_SOURCE = TransactionRollbackListener.class
+			.getName() + ".dataSource";
+
+	private static final String CONNECTION = TransactionRollbackListener.class
+			.getName() + ".connection";
+
+	private static final String TRANSACTION_MANAGER = TransactionRollbackListener.class
+			.getName() + ".transactionManager";
+
+	private static final String TRANSACTION_STATUS = TransactionRollbackListener.class
+			.getName() + ".transactionStatus";
+
+	@Override
+	public void beforeTestMethod(TestContext testContext) {
+		PropertiesProvider propertiesProvider = Factory.getInstance()
+				.getPropertiesProvider();
+		if (!Boolean.parseBoolean(propertiesProvider.getProperty(
+				Profiles.DEFAULT_PROFILE, SPRING_TRANSACTION_ROLLBACK, "false"))) {
+			return;
+		}
+		if (isCommitting(testContext)) {
+			log.info("Test method {} commits, setting up by clean insert.",
+					testContext.getTestMethod());
+			return;
+		}
+
+		DataSource dataSource = getDataSource(testContext, propertiesProvider);
+		if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+			log.debug("Starting transaction for test method {}.",
+					testContext.getTestMethod());
+			DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(
+					dataSource);
+			testContext.setAttribute(TRANSACTION_MANAGER, transactionManager);
+			testContext.setAttribute(TRANSACTION_STATUS, transactionManager
+					.getTransaction(new DefaultTransactionDefinition()));
+		}
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		testContext.setAttribute(DATA_SOURCE, dataSource);
+		testContext.setAttribute(CONNECTION, connection);
+		Factory.getInstance().getDbUnitWrapper()
+				.bindTransactionConnection(Profiles.DEFAULT_PROFILE, connection);
+	}
+
+	@Override
+	public void afterTestMethod(TestContext testContext) {
+		Connection connection = (Connection) testContext
+				.removeAttribute(CONNECTION);
+		if (null == connection) {
+			return;
+		}
+		Factory.getInstance().getDbUnitWrapper()
+				.unbindTransactionConnection(Profiles.DEFAULT_PROFILE);
+		DataSourceUtils.releaseConnection(connection,
+				(DataSource) testContext.removeAttribute(DATA_SOURCE));
+
+		DataSourceTransactionManager transactionManager = (DataSourceTransactionManager) testContext
+				.removeAttribute(TRANSACTION_MANAGER);
+		if (null != transactionManager) {
+			log.debug("Rolling back transaction of test method {}.",
+					testContext.getTestMethod());
+			transactionManager.rollback((TransactionStatus) testContext
+					.removeAttribute(TRANSACTION_STATUS));
+		}
+	}
+
+	private boolean isCommitting(TestContext testContext) {
+		Method testMethod = testContext.getTestMethod();
+		Rollback rollback = testMethod.getAnnotation(Rollback.class);
+		if (null != rollback) {
+			return !rollback.value();
+		}
+		TransactionConfiguration configuration = testContext.getTestClass()
+				.getAnnotation(TransactionConfiguration.class);
+		return null != configuration && !configuration.defaultRollback();
+	}
+
+	private DataSource getDataSource(TestContext testContext,
+			PropertiesProvider propertiesProvider) {
+		String beanName = propertiesProvider.getProperty(
+				Profiles.DEFAULT_PROFILE, SPRING_DATA_SOURCE_BEAN_NAME, null);
+		if (null == beanName) {
+			return testContext.getApplicationContext()
+					.getBean(DataSource.class);
+		}
+		return testContext.getApplicationContext().getBean(beanName,
+				DataSource.class);
+	}
+
+}
@@ -0,0 +1,218 @@
+package net.sf.lightair.internal.unitils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.lightair.internal.dbunit.dataset.MergingTable;
+import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.properties.PropertyKeys;
+import net.sf.lightair.internal.unitils.compare.SchemaFactory;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.unitils.dbunit.dataset.Schema;
+
+/**
+ * Reads database tables to be compared with an expected dataset.
+ * <p>
+ * Rows are fetched by a forward-only, read-only result set with the fetch
+ * size of the profile, and each value is read into the compared schema
+ * directly, without holding the rows in a DbUnit table first.
+ * <p>
+ * Only columns of the expected table and primary key columns are selected,
+ * because other columns are ignored in comparison. A table expected without
+ * any columns is read with all its columns, so that unexpected rows can be
+ * reported.
+ * <p>
+ * Rows are restricted by the condition declared for the table in the
+ * expected dataset, if any.
+ */
+public class ActualDataSetReader implements PropertyKeys {
+
+	private final Logger log = LoggerFactory
+			.getLogger(ActualDataSetReader.class);
+
+	/**
+	 * Read database tables.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @param schemaName
+	 *            Name of database schema
+	 * @param connection
+	 *            Connection
+	 * @param expectedDataSet
+	 *            Expected dataset
+	 * @param tableNames
+	 *            Names of expected tables to read
+	 * @return Schema with database tables
+	 * @throws DataSetException
+	 * @throws SQLException
+	 */
+	public Schema read(String profile, String schemaName,
+			IDatabaseConnection connection, IDataSet expectedDataSet,
+			String[] tableNames) throws DataSetException, SQLException {
+		int fetchSize = (int) propertiesProvider.getProperty(profile,
+				VERIFY_FETCH_SIZE, 1000);
+		IDataSet databaseDataSet = connection.createDataSet();
+		SchemaFactory schemaFactory = createSchemaFactory();
+		Schema schema = new Schema(schemaName);
+		for (String tableName : tableNames) {
+			ITable expectedTable = expectedDataSet.getTable(tableName);
+			ITableMetaData metaData = getSelectedMetaData(
+					databaseDataSet.getTableMetaData(tableName),
+					expectedTable.getTableMetaData());
+			String sql = getSelectSql(connection, metaData,
+					getWhere(expectedTable));
+			log.debug("Reading table {} by query [{}].", tableName, sql);
+			Statement statement = connection.getConnection().createStatement(
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			try {
+				statement.setFetchSize(fetchSize);
+				ResultSet resultSet = statement.executeQuery(sql);
+				try {
+					schemaFactory.addTable(schema, metaData, resultSet);
+				} finally {
+					resultSet.close();
+				}
+			} finally {
+				statement.close();
+			}
+		}
+		return schema;
+	}
+
+	/**
+	 * Instantiate SchemaFactory.
+	 *
+	 * @return New SchemaFactory instance
+	 */
+	protected SchemaFactory createSchemaFactory() {
+		return new SchemaFactory();
+	}
+
+	/**
+	 * Return meta data with the database columns to select.
+	 *
+	 * @param metaData
+	 *            Database table meta data
+	 * @param expectedMetaData
+	 *            Expected table meta data
+	 * @return Meta data with expected and primary key columns in database
+	 *         order, or all columns if the expected table has no columns
+	 */
+	private ITableMetaData getSelectedMetaData(ITableMetaData metaData,
+			ITableMetaData expectedMetaData) throws DataSetException {
+		if (0 == expectedMetaData.getColumns().length) {
+			return metaData;
+		}
+		Column[] columns = metaData.getColumns();
+		Column[] primaryKeys = metaData.getPrimaryKeys();
+		List<Column> selected = new ArrayList<Column>(columns.length);
+		for (Column column : columns) {
+			if (isColumn(expectedMetaData.getColumns(), column)
+					|| isColumn(primaryKeys, column)) {
+				selected.add(column);
+			}
+		}
+		if (selected.isEmpty()) {
+			// none of the expected columns exists
+			return metaData;
+		}
+		return new DefaultTableMetaData(metaData.getTableName(),
+				selected.toArray(new Column[selected.size()]), primaryKeys);
+	}
+
+	private boolean isColumn(Column[] columns, Column column) {
+		for (Column other : columns) {
+			if (other.getColumnName().equalsIgnoreCase(column.getColumnName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Create select statement ordering rows by primary key as DbUnit does.
+	 */
+	private String getSelectSql(IDatabaseConnection connection,
+			ITableMetaData metaData, String where) throws DataSetException {
+		StringBuilder sql = new StringBuilder("select ");
+		appendColumnList(connection, metaData.getColumns(), sql);
+		sql.append(" from ").append(
+				tableHelper.getQualifiedName(connection, connection.getSchema(),
+						metaData.getTableName()));
+		if (null != where) {
+			sql.append(" where ").append(where);
+		}
+		Column[] primaryKeys = metaData.getPrimaryKeys();
+		if (primaryKeys.length > 0) {
+			sql.append(" order by ");
+			appendColumnList(connection, primaryKeys, sql);
+		}
+		return sql.toString();
+	}
+
+	private void appendColumnList(IDatabaseConnection connection,
+			Column[] columns, StringBuilder sql) {
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(tableHelper.getQualifiedName(connection, null,
+					columns[i].getColumnName()));
+		}
+	}
+
+	/**
+	 * Return condition restricting the database rows compared with an
+	 * expected table.
+	 *
+	 * @param expectedTable
+	 *            Expected table
+	 * @return SQL condition or <code>null</code>
+	 */
+	static String getWhere(ITable expectedTable) {
+		if (expectedTable instanceof MergingTable) {
+			return ((MergingTable) expectedTable).getWhere();
+		}
+		return null;
+	}
+
+	// dependencies and setters
+
+	private PropertiesProvider propertiesProvider;
+
+	/**
+	 * Set properties provider.
+	 *
+	 * @param propertiesProvider
+	 *            Properties provider
+	 */
+	public void setPropertiesProvider(PropertiesProvider propertiesProvider) {
+		this.propertiesProvider = propertiesProvider;
+	}
+
+	private TableHelper tableHelper;
+
+	/**
+	 * Set table helper.
+	 *
+	 * @param tableHelper
+	 *            Table helper
+	 */
+	public void setTableHelper(TableHelper tableHelper) {
+		this.tableHelper = tableHelper;
+	}
+
+}
@@ -0,0 +1,665 @@
+package net.sf.lightair.internal.unitils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.lightair.internal.dbunit.DbUnitWrapper;
+import net.sf.lightair.internal.dbunit.dataset.MergingTable;
+import net.sf.lightair.internal.dbunit.util.DatabaseProduct;
+import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.properties.PropertyKeys;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.NoSuchColumnException;
+import org.dbunit.dataset.NoSuchTableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.unitils.dbunit.util.MultiSchemaDataSet;
+
+/**
+ * Tracks tables changed since setup, so that tables not changed by the test
+ * are verified against the setup dataset instead of the database.
+ * <p>
+ * After setup, the state of tables of each schema is marked. On HSQLDB and
+ * Derby, statement triggers logging changes into table
+ * <code>LIGHTAIR_CHANGES</code> are installed on the tables of the setup
+ * dataset, and the log is emptied. On H2, the modification ids of all tables
+ * of the schema are recorded.
+ * <p>
+ * An expected table is not compared if the table was not changed since setup
+ * and the expected table has the same rows as the setup table, with the same
+ * values of all its columns, none of them being a token or variable. Changed
+ * tables not present in the expected dataset are logged.
+ * <p>
+ * Not used while a connection is bound to the profile, because creating
+ * triggers may commit its transaction.
+ * <p>
+ * When tracking is turned off, the triggers and the log table are removed
+ * from the schemas of the profile by the next setup, so that they do not slow
+ * down writes to the tables.
+ */
+public class ChangeTracker implements PropertyKeys {
+
+	private final Logger log = LoggerFactory.getLogger(ChangeTracker.class);
+
+	private static final String LOG_TABLE = "LIGHTAIR_CHANGES";
+
+	private static final String TRIGGER_PREFIX = "LIGHTAIR_";
+
+	private static final String[] EVENTS = { "INSERT", "UPDATE", "DELETE" };
+
+	/**
+	 * Tracked schemas by profile and schema name.
+	 */
+	private final Map<String, Map<String, TrackedSchema>> trackedSchemas = new HashMap<String, Map<String, TrackedSchema>>();
+
+	/**
+	 * Schemas known not to contain triggers or log table, by profile and
+	 * schema name.
+	 */
+	private final Set<String> removedSchemas = new HashSet<String>();
+
+	/**
+	 * Return true if changes are tracked for a profile.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @return true if enabled
+	 */
+	public boolean isEnabled(String profile) {
+		return isConfigured(profile) && !isTransactionBound(profile);
+	}
+
+	private boolean isConfigured(String profile) {
+		return Boolean.parseBoolean(propertiesProvider.getProperty(profile,
+				VERIFY_CHANGES, "false"));
+	}
+
+	private boolean isTransactionBound(String profile) {
+		return null != dbUnitWrapper
+				.getTransactionConnection(null == profile ? "" : profile);
+	}
+
+	/**
+	 * Mark state of tables right after setup.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @param setupDataSet
+	 *            Dataset the database was set up with
+	 */
+	public void track(String profile, MultiSchemaDataSet setupDataSet) {
+		Map<String, TrackedSchema> schemas = new HashMap<String, TrackedSchema>();
+		for (String schemaName : setupDataSet.getSchemaNames()) {
+			IDataSet dataSet = setupDataSet.getDataSetForSchema(schemaName);
+			IDatabaseConnection connection = dbUnitWrapper.getConnection(
+					profile, schemaName);
+			try {
+				Tracking tracking = getTracking(connection.getConnection());
+				if (null == tracking) {
+					log.debug("Tracking changes not supported for profile {}.",
+							profile);
+					break;
+				}
+				synchronized (removedSchemas) {
+					removedSchemas.remove(profile + "." + schemaName);
+				}
+				schemas.put(schemaName, new TrackedSchema(tracking, dataSet,
+						tracking.mark(connection, dataSet)));
+			} catch (DatabaseUnitException e) {
+				log.warn("Cannot track changes in schema {}: {}", schemaName,
+						e.getMessage());
+			} catch (SQLException e) {
+				log.warn("Cannot track changes in schema {}: {}", schemaName,
+						e.getMessage());
+			}
+		}
+		synchronized (trackedSchemas) {
+			trackedSchemas.put(profile, schemas);
+		}
+	}
+
+	/**
+	 * Forget state of tables, when the database was set up without a known
+	 * dataset.
+	 * <p>
+	 * If tracking is turned off for the profile, remove triggers and log table
+	 * from its schemas, unless already removed.
+	 *
+	 * @param profile
+	 *            Profile
+	 */
+	public void reset(String profile) {
+		synchronized (trackedSchemas) {
+			trackedSchemas.remove(profile);
+		}
+		if (!isConfigured(profile) && !isTransactionBound(profile)) {
+			remove(profile);
+		}
+	}
+
+	/**
+	 * Remove triggers and log table from schemas of a profile.
+	 */
+	private void remove(String profile) {
+		for (String schemaName : propertiesProvider.getSchemaNames(profile)) {
+			String key = profile + "." + schemaName;
+			synchronized (removedSchemas) {
+				if (removedSchemas.contains(key)) {
+					continue;
+				}
+			}
+			IDatabaseConnection connection = dbUnitWrapper.getConnection(
+					profile, schemaName);
+			try {
+				Tracking tracking = getTracking(connection.getConnection());
+				if (null != tracking) {
+					tracking.remove(connection);
+				}
+			} catch (SQLException e) {
+				log.warn("Cannot remove change tracking from schema {}: {}",
+						schemaName, e.getMessage());
+			}
+			synchronized (removedSchemas) {
+				removedSchemas.add(key);
+			}
+		}
+	}
+
+	/**
+	 * Return names of expected tables that must be compared with the database.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @param schemaName
+	 *            Schema name
+	 * @param connection
+	 *            Connection
+	 * @param expectedDataSet
+	 *            Expected dataset
+	 * @return Names of tables not known to match
+	 * @throws DataSetException
+	 * @throws SQLException
+	 */
+	public String[] getTablesToCompare(String profile, String schemaName,
+			IDatabaseConnection connection, IDataSet expectedDataSet)
+			throws DataSetException, SQLException {
+		String[] tableNames = expectedDataSet.getTableNames();
+		TrackedSchema trackedSchema;
+		synchronized (trackedSchemas) {
+			Map<String, TrackedSchema> schemas = trackedSchemas.get(profile);
+			trackedSchema = null == schemas ? null : schemas.get(schemaName);
+		}
+		if (null == trackedSchema) {
+			return tableNames;
+		}
+		Set<String> changed = trackedSchema.tracking.getChangedTables(
+				connection, trackedSchema.marks);
+		Set<String> expected = new HashSet<String>();
+		List<String> tablesToCompare = new ArrayList<String>();
+		for (String tableName : tableNames) {
+			String key = tableName.toUpperCase();
+			expected.add(key);
+			if (changed.contains(key)
+					|| !trackedSchema.marks.containsKey(key)
+					|| !isSetUp(trackedSchema.setupDataSet,
+							expectedDataSet.getTable(tableName))) {
+				tablesToCompare.add(tableName);
+			}
+		}
+		for (String tableName : changed) {
+			if (!expected.contains(tableName)) {
+				log.info("Table {} was changed by the test, "
+						+ "but is not verified.", tableName);
+			}
+		}
+		return tablesToCompare.toArray(new String[tablesToCompare.size()]);
+	}
+
+	/**
+	 * Return true if expected table has the rows the table was set up with.
+	 */
+	private boolean isSetUp(IDataSet setupDataSet, ITable table)
+			throws DataSetException {
+		if (null != ActualDataSetReader.getWhere(table)) {
+			return false;
+		}
+		ITable setupTable;
+		try {
+			setupTable = setupDataSet.getTable(table.getTableMetaData()
+					.getTableName());
+		} catch (NoSuchTableException e) {
+			return false;
+		}
+		if (setupTable.getRowCount() != table.getRowCount()) {
+			return false;
+		}
+		Column[] columns = table.getTableMetaData().getColumns();
+		for (int row = 0; row < table.getRowCount(); row++) {
+			for (Column column : columns) {
+				String columnName = column.getColumnName();
+				if (!hasValue(table, row, columnName)
+						|| !hasValue(setupTable, row, columnName)) {
+					return false;
+				}
+				Object value = table.getValue(row, columnName);
+				if (!isPlain(value)
+						|| !equals(value, setupTable.getValue(row, columnName))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean hasValue(ITable table, int row, String columnName)
+			throws DataSetException {
+		if (table instanceof MergingTable) {
+			return ((MergingTable) table).hasValue(row, columnName);
+		}
+		try {
+			return ITable.NO_VALUE != table.getValue(row, columnName);
+		} catch (NoSuchColumnException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Return true if value is neither a token nor a variable.
+	 */
+	private boolean isPlain(Object value) {
+		if (!(value instanceof String)) {
+			return true;
+		}
+		String text = (String) value;
+		return !text.startsWith("@") && !text.startsWith("$");
+	}
+
+	private boolean equals(Object value1, Object value2) {
+		return null == value1 ? null == value2 : value1.equals(value2);
+	}
+
+	/**
+	 * Return change tracking of the database of a connection.
+	 *
+	 * @return Tracking or <code>null</code> if not supported
+	 */
+	private Tracking getTracking(Connection connection) throws SQLException {
+		DatabaseProduct product = DatabaseProduct.forConnection(connection);
+		if (DatabaseProduct.H2 == product) {
+			return new ModificationIdTracking();
+		}
+		if (DatabaseProduct.HSQLDB == product) {
+			return new TriggerTracking(
+					"select TRIGGER_NAME, EVENT_OBJECT_TABLE "
+							+ "from INFORMATION_SCHEMA.TRIGGERS "
+							+ "where upper(TRIGGER_SCHEMA) = ?");
+		}
+		if (DatabaseProduct.DERBY == product) {
+			return new TriggerTracking("select t.TRIGGERNAME, b.TABLENAME "
+					+ "from SYS.SYSTRIGGERS t, SYS.SYSTABLES b, "
+					+ "SYS.SYSSCHEMAS s where t.TABLEID = b.TABLEID "
+					+ "and t.SCHEMAID = s.SCHEMAID "
+					+ "and upper(s.SCHEMANAME) = ?");
+		}
+		return null;
+	}
+
+	/**
+	 * State of a schema marked after setup.
+	 */
+	private static class TrackedSchema {
+
+		private final Tracking tracking;
+		private final IDataSet setupDataSet;
+		private final Map<String, Long> marks;
+
+		private TrackedSchema(Tracking tracking, IDataSet setupDataSet,
+				Map<String, Long> marks) {
+			this.tracking = tracking;
+			this.setupDataSet = setupDataSet;
+			this.marks = marks;
+		}
+
+	}
+
+	/**
+	 * Change tracking of a database.
+	 */
+	private interface Tracking {
+
+		/**
+		 * Mark state of tables after setup.
+		 *
+		 * @return Marks by upper-case names of tracked tables
+		 */
+		Map<String, Long> mark(IDatabaseConnection connection,
+				IDataSet setupDataSet) throws DataSetException, SQLException;
+
+		/**
+		 * Return upper-case names of tables changed since marked.
+		 */
+		Set<String> getChangedTables(IDatabaseConnection connection,
+				Map<String, Long> marks) throws SQLException;
+
+		/**
+		 * Remove database objects created by marking.
+		 */
+		void remove(IDatabaseConnection connection) throws SQLException;
+
+	}
+
+	/**
+	 * Tracking by the modification id of each table of the schema, which
+	 * changes with each change of the table, including truncating it.
+	 */
+	private class ModificationIdTracking implements Tracking {
+
+		public Map<String, Long> mark(IDatabaseConnection connection,
+				IDataSet setupDataSet) throws SQLException {
+			return getModificationIds(connection);
+		}
+
+		public Set<String> getChangedTables(IDatabaseConnection connection,
+				Map<String, Long> marks) throws SQLException {
+			Map<String, Long> ids = getModificationIds(connection);
+			Set<String> changed = new HashSet<String>();
+			for (Map.Entry<String, Long> entry : ids.entrySet()) {
+				if (!entry.getValue().equals(marks.get(entry.getKey()))) {
+					changed.add(entry.getKey());
+				}
+			}
+			for (String tableName : marks.keySet()) {
+				if (!ids.containsKey(tableName)) {
+					changed.add(tableName);
+				}
+			}
+			return changed;
+		}
+
+		public void remove(IDatabaseConnection connection) {
+			// nothing created
+		}
+
+		/**
+		 * Return modification ids of all tables of schema.
+		 */
+		private Map<String, Long> getModificationIds(
+				IDatabaseConnection connection) throws SQLException {
+			Map<String, Long> ids = new HashMap<String, Long>();
+			PreparedStatement statement = connection.getConnection()
+					.prepareStatement(
+							"select TABLE_NAME, LAST_MODIFICATION "
+									+ "from INFORMATION_SCHEMA.TABLES "
+									+ "where upper(TABLE_SCHEMA) = ? "
+									+ "and TABLE_TYPE = 'TABLE'");
+			try {
+				statement.setString(1, connection.getSchema().toUpperCase());
+				ResultSet resultSet = statement.executeQuery();
+				try {
+					while (resultSet.next()) {
+						ids.put(resultSet.getString(1).toUpperCase(),
+								resultSet.getLong(2));
+					}
+				} finally {
+					resultSet.close();
+				}
+			} finally {
+				statement.close();
+			}
+			return ids;
+		}
+
+	}
+
+	/**
+	 * Tracking by statement triggers installed on tables of the setup dataset,
+	 * logging changes into the log table.
+	 */
+	private class TriggerTracking implements Tracking {
+
+		/**
+		 * Query of trigger names and their table names in a schema.
+		 */
+		private final String triggersSql;
+
+		private TriggerTracking(String triggersSql) {
+			this.triggersSql = triggersSql;
+		}
+
+		/**
+		 * Install triggers on tables of setup dataset and empty the log.
+		 */
+		public Map<String, Long> mark(IDatabaseConnection connection,
+				IDataSet setupDataSet) throws DataSetException, SQLException {
+			Connection jdbcConnection = connection.getConnection();
+			String schema = connection.getSchema();
+			String logTable = tableHelper.getQualifiedName(connection, schema,
+					LOG_TABLE);
+			Statement statement = jdbcConnection.createStatement();
+			try {
+				ResultSet tables = jdbcConnection.getMetaData().getTables(null,
+						schema.toUpperCase(), LOG_TABLE, null);
+				try {
+					if (!tables.next()) {
+						statement.execute("create table " + logTable
+								+ " (TABLE_NAME varchar(128))");
+					}
+				} finally {
+					tables.close();
+				}
+				Set<String> triggered = getTriggeredTables(connection);
+				IDataSet databaseDataSet = connection.createDataSet();
+				for (String tableName : setupDataSet.getTableNames()) {
+					String databaseName;
+					try {
+						databaseName = databaseDataSet.getTableMetaData(
+								tableName).getTableName();
+					} catch (NoSuchTableException e) {
+						continue;
+					}
+					if (triggered.contains(databaseName.toUpperCase())) {
+						continue;
+					}
+					String qualifiedName = tableHelper.getQualifiedName(
+							connection, schema, databaseName);
+					try {
+						for (String event : EVENTS) {
+							statement.execute("create trigger "
+									+ schema
+									+ "."
+									+ TRIGGER_PREFIX
+									+ event.charAt(0)
+									+ "_"
+									+ databaseName.toUpperCase()
+									+ " after "
+									+ event
+									+ " on "
+									+ qualifiedName
+									+ " for each statement insert into "
+									+ logTable
+									+ " (TABLE_NAME) values ('"
+									+ databaseName.toUpperCase().replace("'",
+											"''") + "')");
+						}
+					} catch (SQLException e) {
+						log.warn("Cannot track changes of table {}: {}",
+								tableName, e.getMessage());
+					}
+				}
+				statement.execute("delete from " + logTable);
+			} finally {
+				statement.close();
+			}
+			Map<String, Long> marks = new HashMap<String, Long>();
+			for (String tableName : getTriggeredTables(connection)) {
+				marks.put(tableName, 0L);
+			}
+			return marks;
+		}
+
+		/**
+		 * Return tables logged by triggers or no longer triggered.
+		 */
+		public Set<String> getChangedTables(IDatabaseConnection connection,
+				Map<String, Long> marks) throws SQLException {
+			Set<String> changed = new HashSet<String>(marks.keySet());
+			changed.removeAll(getTriggeredTables(connection));
+			Statement statement = connection.getConnection().createStatement();
+			try {
+				ResultSet resultSet = statement
+						.executeQuery("select distinct TABLE_NAME from "
+								+ tableHelper.getQualifiedName(connection,
+										connection.getSchema(), LOG_TABLE));
+				try {
+					while (resultSet.next()) {
+						changed.add(resultSet.getString(1).toUpperCase());
+					}
+				} finally {
+					resultSet.close();
+				}
+			} finally {
+				statement.close();
+			}
+			return changed;
+		}
+
+		/**
+		 * Drop triggers and log table.
+		 */
+		public void remove(IDatabaseConnection connection)
+				throws SQLException {
+			Connection jdbcConnection = connection.getConnection();
+			String schema = connection.getSchema();
+			Map<String, String> triggers = getTriggers(connection);
+			boolean logTableExists;
+			ResultSet tables = jdbcConnection.getMetaData().getTables(null,
+					schema.toUpperCase(), LOG_TABLE, null);
+			try {
+				logTableExists = tables.next();
+			} finally {
+				tables.close();
+			}
+			if (triggers.isEmpty() && !logTableExists) {
+				return;
+			}
+			log.info("Removing change tracking from schema {}.", schema);
+			Statement statement = jdbcConnection.createStatement();
+			try {
+				for (String triggerName : triggers.keySet()) {
+					statement.execute("drop trigger " + schema + "."
+							+ triggerName);
+				}
+				if (logTableExists) {
+					statement.execute("drop table "
+							+ tableHelper.getQualifiedName(connection, schema,
+									LOG_TABLE));
+				}
+			} finally {
+				statement.close();
+			}
+		}
+
+		/**
+		 * Return upper-case names of tables that have a trigger for each
+		 * event.
+		 */
+		private Set<String> getTriggeredTables(IDatabaseConnection connection)
+				throws SQLException {
+			Map<String, Integer> counts = new HashMap<String, Integer>();
+			for (String tableName : getTriggers(connection).values()) {
+				Integer count = counts.get(tableName);
+				counts.put(tableName, null == count ? 1 : count + 1);
+			}
+			Set<String> tableNames = new HashSet<String>();
+			for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+				if (EVENTS.length == entry.getValue()) {
+					tableNames.add(entry.getKey());
+				}
+			}
+			return tableNames;
+		}
+
+		/**
+		 * Return upper-case table names by names of tracking triggers.
+		 */
+		private Map<String, String> getTriggers(IDatabaseConnection connection)
+				throws SQLException {
+			Map<String, String> triggers = new HashMap<String, String>();
+			PreparedStatement statement = connection.getConnection()
+					.prepareStatement(triggersSql);
+			try {
+				statement.setString(1, connection.getSchema().toUpperCase());
+				ResultSet resultSet = statement.executeQuery();
+				try {
+					while (resultSet.next()) {
+						String triggerName = resultSet.getString(1);
+						if (triggerName.startsWith(TRIGGER_PREFIX)) {
+							triggers.put(triggerName, resultSet.getString(2)
+									.toUpperCase());
+						}
+					}
+				} finally {
+					resultSet.close();
+				}
+			} finally {
+				statement.close();
+			}
+			return triggers;
+		}
+
+	}
+
+	// dependencies and setters
+
+	private DbUnitWrapper dbUnitWrapper;
+
+	/**
+	 * Set DbUnit wrapper.
+	 *
+	 * @param dbUnitWrapper
+	 *            DbUnit wrapper
+	 */
+	public void setDbUnitWrapper(DbUnitWrapper dbUnitWrapper) {
+		this.dbUnitWrapper = dbUnitWrapper;
+	}
+
+	private PropertiesProvider propertiesProvider;
+
+	/**
+	 * Set properties provider.
+	 *
+	 * @param propertiesProvider
+	 *            Properties provider
+	 */
+	public void setPropertiesProvider(PropertiesProvider propertiesProvider) {
+		this.propertiesProvider = propertiesProvider;
+	}
+
+	private TableHelper tableHelper;
+
+	/**
+	 * Set table helper.
+	 *
+	 * @param tableHelper
+	 *            Table helper
+	 */
+	public void setTableHelper(TableHelper tableHelper) {
+		this.tableHelper = tableHelper;
+	}
+
+}
@@ -0,0 +1,280 @@
+package net.sf.lightair.internal.unitils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Binary form of a parsed XML dataset file.
+ * <p>
+ * A compiled dataset is stored next to its XML file, with extension
+ * <code>.lab</code> instead of <code>.xml</code>. It holds a dictionary of all
+ * distinct strings of the file, i.e. element names, column names and values,
+ * followed by the elements with their attributes as dictionary indexes.
+ * Reading it needs no XML parsing, values are kept as written in the file and
+ * tokens are replaced when the dataset is used.
+ * <p>
+ * A compiled dataset older than its XML file is ignored.
+ */
+public class CompiledDataSet {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(CompiledDataSet.class);
+
+	/**
+	 * Extension of compiled dataset files.
+	 */
+	public static final String EXTENSION = ".lab";
+
+	private static final String XML_EXTENSION = ".xml";
+
+	private static final byte[] MAGIC = { 'L', 'A', 'B', 1 };
+
+	private static final String CHARSET = "UTF-8";
+
+	/**
+	 * Read compiled sibling of an XML dataset file.
+	 * 
+	 * @param dataSetResource
+	 *            XML dataset file
+	 * @return Parsed dataset or <code>null</code> if there is no up-to-date
+	 *         compiled dataset
+	 * @throws IOException
+	 *             When the compiled dataset cannot be read
+	 */
+	public static ParsedDataSet readSibling(URL dataSetResource)
+			throws IOException {
+		String path = dataSetResource.getPath();
+		if (!path.endsWith(XML_EXTENSION)) {
+			return null;
+		}
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		URL compiled = new URL(dataSetResource, name.substring(0,
+				name.length() - XML_EXTENSION.length())
+				+ EXTENSION);
+		if ("file".equals(compiled.getProtocol())) {
+			return readFile(toFile(dataSetResource), toFile(compiled));
+		}
+		return readUrl(dataSetResource, compiled);
+	}
+
+	private static File toFile(URL url) throws IOException {
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid file URL " + url, e);
+		}
+	}
+
+	private static ParsedDataSet readFile(File dataSetFile, File compiledFile)
+			throws IOException {
+		if (!compiledFile.isFile()) {
+			return null;
+		}
+		if (compiledFile.lastModified() < dataSetFile.lastModified()) {
+			log.debug("Ignoring compiled dataset {} older than {}.",
+					compiledFile, dataSetFile);
+			return null;
+		}
+		log.debug("Reading compiled dataset {}.", compiledFile);
+		FileInputStream in = new FileInputStream(compiledFile);
+		try {
+			FileChannel channel = in.getChannel();
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size()));
+		} finally {
+			in.close();
+		}
+	}
+
+	private static ParsedDataSet readUrl(URL dataSetResource, URL compiled)
+			throws IOException {
+		URLConnection connection = compiled.openConnection();
+		InputStream in;
+		try {
+			in = connection.getInputStream();
+		} catch (IOException e) {
+			// no compiled dataset
+			return null;
+		}
+		try {
+			long lastModified = connection.getLastModified();
+			long dataSetLastModified = dataSetResource.openConnection()
+					.getLastModified();
+			if (0 != lastModified && lastModified < dataSetLastModified) {
+				log.debug("Ignoring compiled dataset {} older than {}.",
+						compiled, dataSetResource);
+				return null;
+			}
+			log.debug("Reading compiled dataset {}.", compiled);
+			return read(ByteBuffer.wrap(IOUtils.toByteArray(in)));
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Read compiled dataset.
+	 * 
+	 * @param buffer
+	 *            Compiled dataset
+	 * @return Parsed dataset
+	 * @throws IOException
+	 *             When the content is not a compiled dataset
+	 */
+	public static ParsedDataSet read(ByteBuffer buffer) throws IOException {
+		try {
+			for (byte b : MAGIC) {
+				if (buffer.get() != b) {
+					throw new IOException(
+							"Not a compiled dataset of supported version.");
+				}
+			}
+			String[] strings = new String[buffer.getInt()];
+			for (int i = 0; i < strings.length; i++) {
+				byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				strings[i] = new String(bytes, CHARSET);
+			}
+			ParsedDataSet dataSet = new ParsedDataSet();
+			int elementCount = buffer.getInt();
+			for (int i = 0; i < elementCount; i++) {
+				String namespace = strings[buffer.getInt()];
+				String localName = strings[buffer.getInt()];
+				String qName = strings[buffer.getInt()];
+				AttributesImpl attributes = new AttributesImpl();
+				int attributeCount = buffer.getInt();
+				for (int a = 0; a < attributeCount; a++) {
+					String name = strings[buffer.getInt()];
+					attributes.addAttribute("", name, name, "CDATA",
+							strings[buffer.getInt()]);
+				}
+				dataSet.startElement(namespace, localName, qName, attributes);
+			}
+			return dataSet;
+		} catch (RuntimeException e) {
+			// buffer underflow or index out of bounds
+			throw new IOException("Corrupt compiled dataset.", e);
+		}
+	}
+
+	/**
+	 * Write compiled dataset to a file.
+	 * 
+	 * @param dataSet
+	 *            Parsed dataset
+	 * @param file
+	 *            Compiled dataset file
+	 * @throws IOException
+	 *             When the file cannot be written
+	 */
+	public static void write(ParsedDataSet dataSet, File file)
+			throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			write(dataSet, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write compiled dataset.
+	 * 
+	 * @param dataSet
+	 *            Parsed dataset
+	 * @param out
+	 *            Output
+	 * @throws IOException
+	 *             When the output cannot be written
+	 */
+	public static void write(ParsedDataSet dataSet, OutputStream out)
+			throws IOException {
+		Writer writer = new Writer();
+		try {
+			dataSet.replay(writer);
+		} catch (SAXException e) {
+			throw new IOException(e);
+		}
+		DataOutputStream data = new DataOutputStream(out);
+		data.write(MAGIC);
+		data.writeInt(writer.strings.size());
+		for (String string : writer.strings) {
+			byte[] bytes = string.getBytes(CHARSET);
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+		data.writeInt(writer.elementCount);
+		writer.elements.writeTo(data);
+		data.flush();
+	}
+
+	/**
+	 * Collects dictionary of strings and writes elements as dictionary
+	 * indexes.
+	 */
+	private static class Writer extends DefaultHandler {
+
+		private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+		private final List<String> strings = new ArrayList<String>();
+
+		private final ByteArrayOutputStream elements = new ByteArrayOutputStream();
+
+		private final DataOutputStream data = new DataOutputStream(elements);
+
+		private int elementCount;
+
+		@Override
+		public void startElement(String namespace, String localName,
+				String qName, Attributes attributes) throws SAXException {
+			try {
+				data.writeInt(index(namespace));
+				data.writeInt(index(localName));
+				data.writeInt(index(qName));
+				data.writeInt(attributes.getLength());
+				for (int i = 0; i < attributes.getLength(); i++) {
+					data.writeInt(index(attributes.getQName(i)));
+					data.writeInt(index(attributes.getValue(i)));
+				}
+			} catch (IOException e) {
+				throw new SAXException(e);
+			}
+			elementCount++;
+		}
+
+		private int index(String string) {
+			Integer index = dictionary.get(string);
+			if (null == index) {
+				index = strings.size();
+				strings.add(string);
+				dictionary.put(string, index);
+			}
+			return index;
+		}
+
+	}
+
+}
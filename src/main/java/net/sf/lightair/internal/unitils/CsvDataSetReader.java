@@ -0,0 +1,203 @@
+package net.sf.lightair.internal.unitils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads a dataset from a directory of CSV files.
+ * <p>
+ * Each table is a file named <code>[TABLE].csv</code> with column names on
+ * the first row. Tables are read in the order listed in file
+ * <code>table-ordering.txt</code> in the directory, one table name per line.
+ * Without it, all CSV files of the directory are read in the order of their
+ * names, which is only possible in a directory on the file system.
+ * <p>
+ * Rows are passed to a handler as they are read, as if they were elements of
+ * an XML dataset in the default schema. An empty field without quotes is
+ * left out of its row, like a missing attribute in XML.
+ */
+public class CsvDataSetReader {
+
+	private final Logger log = LoggerFactory.getLogger(CsvDataSetReader.class);
+
+	/**
+	 * Name of the file listing tables in order.
+	 */
+	public static final String TABLE_ORDERING_FILE_NAME = "table-ordering.txt";
+
+	private static final String CSV_EXTENSION = ".csv";
+
+	private static final String CHARSET = "UTF-8";
+
+	/**
+	 * Return true if the dataset resource is a directory of CSV files.
+	 * 
+	 * @param dataSetResource
+	 *            Dataset resource
+	 * @return true if the resource is a directory
+	 */
+	public static boolean isCsvDirectory(URL dataSetResource) {
+		return dataSetResource.getPath().endsWith("/");
+	}
+
+	/**
+	 * Return files of a CSV dataset directory.
+	 * 
+	 * @param directory
+	 *            Dataset directory
+	 * @return Table ordering file, if it exists, and table files in order
+	 * @throws IOException
+	 *             When the tables of the directory cannot be determined
+	 */
+	public List<URL> getFiles(URL directory) throws IOException {
+		List<URL> files = new ArrayList<URL>();
+		URL tableOrdering = new URL(directory, TABLE_ORDERING_FILE_NAME);
+		for (String tableName : getTableNames(directory, tableOrdering)) {
+			files.add(new URL(directory, tableName + CSV_EXTENSION));
+		}
+		if (exists(tableOrdering)) {
+			files.add(0, tableOrdering);
+		}
+		return files;
+	}
+
+	/**
+	 * Read tables of a CSV dataset directory.
+	 * 
+	 * @param directory
+	 *            Dataset directory
+	 * @param handler
+	 *            Handler receiving the rows
+	 * @throws IOException
+	 *             When a file cannot be read
+	 * @throws SAXException
+	 *             When a file is not a valid CSV table or the handler fails
+	 */
+	public void read(URL directory, DefaultHandler handler)
+			throws IOException, SAXException {
+		log.debug("Reading CSV dataset directory {}.", directory);
+		handler.startElement("", "dataset", "dataset", new AttributesImpl());
+		URL tableOrdering = new URL(directory, TABLE_ORDERING_FILE_NAME);
+		for (String tableName : getTableNames(directory, tableOrdering)) {
+			readTable(new URL(directory, tableName + CSV_EXTENSION),
+					tableName, handler);
+		}
+	}
+
+	private void readTable(URL file, String tableName, DefaultHandler handler)
+			throws IOException, SAXException {
+		log.debug("Reading CSV table file {}.", file);
+		InputStream in = file.openStream();
+		try {
+			CsvReader reader = new CsvReader(new BufferedReader(
+					new InputStreamReader(in, CHARSET)));
+			String[] columnNames = reader.readRow();
+			AttributesImpl attributes = new AttributesImpl();
+			// table without rows
+			handler.startElement("", tableName, tableName, attributes);
+			if (null == columnNames) {
+				return;
+			}
+			int lineNumber = reader.getLineNumber();
+			String[] row;
+			while (null != (row = reader.readRow())) {
+				if (row.length > columnNames.length) {
+					throw new SAXException("Row on line " + lineNumber
+							+ " of " + file + " has " + row.length
+							+ " fields, header has " + columnNames.length
+							+ " columns.");
+				}
+				attributes.clear();
+				for (int i = 0; i < row.length; i++) {
+					if (null != row[i]) {
+						attributes.addAttribute("", columnNames[i],
+								columnNames[i], "CDATA", row[i]);
+					}
+				}
+				handler.startElement("", tableName, tableName, attributes);
+				lineNumber = reader.getLineNumber();
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Return names of tables in order.
+	 */
+	private List<String> getTableNames(URL directory, URL tableOrdering)
+			throws IOException {
+		List<String> tableNames = new ArrayList<String>();
+		if (exists(tableOrdering)) {
+			InputStream in = tableOrdering.openStream();
+			try {
+				for (String line : IOUtils.readLines(in, CHARSET)) {
+					line = line.trim();
+					if (line.length() > 0 && !line.startsWith("#")) {
+						tableNames.add(line);
+					}
+				}
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+			return tableNames;
+		}
+		if (!"file".equals(directory.getProtocol())) {
+			throw new FileNotFoundException(TABLE_ORDERING_FILE_NAME
+					+ " is required in directory " + directory);
+		}
+		File[] files;
+		try {
+			files = new File(directory.toURI()).listFiles();
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid directory URL " + directory, e);
+		}
+		if (null == files) {
+			throw new FileNotFoundException("Cannot list directory "
+					+ directory);
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isFile() && name.endsWith(CSV_EXTENSION)) {
+				tableNames.add(name.substring(0,
+						name.length() - CSV_EXTENSION.length()));
+			}
+		}
+		String[] sorted = tableNames.toArray(new String[tableNames.size()]);
+		Arrays.sort(sorted);
+		return Arrays.asList(sorted);
+	}
+
+	private boolean exists(URL url) {
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return new File(url.toURI()).isFile();
+			} catch (URISyntaxException e) {
+				return false;
+			}
+		}
+		try {
+			url.openStream().close();
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+}
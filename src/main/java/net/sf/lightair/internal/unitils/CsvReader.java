@@ -0,0 +1,118 @@
+package net.sf.lightair.internal.unitils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads rows of a CSV file one by one.
+ * <p>
+ * Fields are separated by commas and may be enclosed in double quotes, which
+ * are escaped by doubling them. Quoted fields may contain commas and line
+ * breaks. An empty field without quotes is read as <code>null</code>, an
+ * empty quoted field as an empty string. Empty lines are skipped.
+ */
+public class CsvReader {
+
+	private final Reader reader;
+
+	private int next = -2;
+
+	private int lineNumber = 1;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader
+	 *            Buffered reader of CSV content
+	 */
+	public CsvReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Read next row.
+	 * 
+	 * @return Row fields or <code>null</code> at the end of file
+	 * @throws IOException
+	 *             When the content cannot be read or a quoted field is not
+	 *             terminated
+	 */
+	public String[] readRow() throws IOException {
+		int c = read();
+		while ('\n' == c || '\r' == c) {
+			c = read();
+		}
+		if (-1 == c) {
+			return null;
+		}
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		while (true) {
+			if ('"' == c && 0 == field.length() && !quoted) {
+				quoted = true;
+				readQuoted(field);
+				c = read();
+				continue;
+			}
+			if (',' == c || '\n' == c || '\r' == c || -1 == c) {
+				fields.add(quoted || field.length() > 0 ? field.toString()
+						: null);
+				if (',' != c) {
+					return fields.toArray(new String[fields.size()]);
+				}
+				field.setLength(0);
+				quoted = false;
+			} else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+	}
+
+	private void readQuoted(StringBuilder field) throws IOException {
+		int startLine = lineNumber;
+		while (true) {
+			int c = read();
+			if (-1 == c) {
+				throw new IOException("Quoted field starting on line "
+						+ startLine + " is not terminated.");
+			}
+			if ('"' == c) {
+				if ('"' != peek()) {
+					return;
+				}
+				read();
+			}
+			field.append((char) c);
+		}
+	}
+
+	private int read() throws IOException {
+		int c = -2 == next ? reader.read() : next;
+		next = -2;
+		if ('\n' == c) {
+			lineNumber++;
+		}
+		return c;
+	}
+
+	private int peek() throws IOException {
+		if (-2 == next) {
+			next = reader.read();
+		}
+		return next;
+	}
+
+	/**
+	 * Return number of the current line.
+	 * 
+	 * @return Line number, starting with 1
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+}
@@ -0,0 +1,126 @@
+package net.sf.lightair.internal.unitils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import net.sf.lightair.exception.IllegalDataSetContentException;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Compiles XML dataset files to {@link CompiledDataSet} siblings.
+ * <p>
+ * Meant to be run in the build after test resources are processed, with the
+ * output directories of the resources as arguments. XML files whose root
+ * element is not <code>dataset</code> are skipped.
+ */
+public class DataSetCompiler {
+
+	private final Logger log = LoggerFactory.getLogger(DataSetCompiler.class);
+
+	/**
+	 * Compile XML dataset files in directories and their subdirectories.
+	 * 
+	 * @param args
+	 *            Directories or files
+	 * @throws IOException
+	 *             When a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		DataSetCompiler compiler = new DataSetCompiler();
+		int count = 0;
+		for (String arg : args) {
+			count += compiler.compileAll(new File(arg));
+		}
+		compiler.log.info("Compiled {} Light air datasets.", count);
+	}
+
+	/**
+	 * Compile XML dataset files.
+	 * 
+	 * @param file
+	 *            Directory to search recursively or a single file
+	 * @return Number of datasets compiled
+	 * @throws IOException
+	 *             When a file cannot be read or written
+	 */
+	public int compileAll(File file) throws IOException {
+		Collection<File> files;
+		if (file.isDirectory()) {
+			files = FileUtils.listFiles(file, new String[] { "xml" }, true);
+		} else {
+			files = Collections.singleton(file);
+		}
+		int count = 0;
+		for (File dataSetFile : files) {
+			if (compile(dataSetFile)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Compile XML dataset file to its sibling.
+	 * 
+	 * @param dataSetFile
+	 *            XML dataset file
+	 * @return true if compiled, false if not a dataset
+	 * @throws IOException
+	 *             When a file cannot be read or written
+	 */
+	public boolean compile(File dataSetFile) throws IOException {
+		ParsedDataSet dataSet = new ParsedDataSet();
+		try {
+			new MultiSchemaXmlDataSetReader().parse(dataSetFile.toURI()
+					.toURL(), dataSet);
+		} catch (IllegalDataSetContentException e) {
+			// invalid datasets are reported when used
+			log.warn("Skipping {}, cannot parse it: {}", dataSetFile,
+					e.getMessage());
+			return false;
+		}
+		RootElement rootElement = new RootElement();
+		try {
+			dataSet.replay(rootElement);
+		} catch (SAXException e) {
+			throw new IllegalStateException(e);
+		}
+		if (!"dataset".equals(rootElement.localName)) {
+			log.debug("Skipping {}, not a dataset.", dataSetFile);
+			return false;
+		}
+		String name = dataSetFile.getName();
+		File compiledFile = new File(dataSetFile.getParentFile(),
+				name.substring(0, name.length() - ".xml".length())
+						+ CompiledDataSet.EXTENSION);
+		log.debug("Compiling {} to {}.", dataSetFile, compiledFile);
+		CompiledDataSet.write(dataSet, compiledFile);
+		return true;
+	}
+
+	/**
+	 * Remembers local name of root element.
+	 */
+	private static class RootElement extends DefaultHandler {
+
+		private String localName;
+
+		@Override
+		public void startElement(String namespace, String localName,
+				String qName, Attributes attributes) {
+			if (null == this.localName) {
+				this.localName = localName;
+			}
+		}
+
+	}
+
+}
@@ -4,16 +4,14 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
-import org.dbunit.dataset.Column;
-import org.dbunit.dataset.datatype.DataType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.unitils.dbunit.util.MultiSchemaDataSet;
 import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import net.sf.lightair.internal.dbunit.dataset.FlatXmlDataSet;
-import net.sf.lightair.internal.dbunit.dataset.MutableTableMetaData;
 
 /**
  * SAX handler to parse {@link FlatXmlDataSet}.
@@ -36,15 +34,24 @@ public class DataSetContentHandler extends DefaultHandler {
 	}
 
 	@Override
-	public void startElement(String namespace, String localName, String qName, Attributes attributes) {
+	public void startElement(String namespace, String localName, String qName, Attributes attributes)
+			throws SAXException {
 		log.debug("Processing XML element {}:{}.", namespace, localName);
 		if (processDatasetElement(namespace, localName)) {
 			return;
 		}
-		FlatXmlDataSet dataSet = startDataset(namespace);
-		MutableTableMetaData metaData = startRow(dataSet, localName, attributes);
-		setRowValues(dataSet, metaData, attributes);
-		dataSet.endRow();
+		if (processWhereElement(namespace, localName, attributes)) {
+			return;
+		}
+		int length = attributes.getLength();
+		String[] columnNames = new String[length];
+		String[] rowValues = new String[length];
+		for (int i = 0; i < length; i++) {
+			columnNames[i] = attributes.getQName(i);
+			rowValues[i] = attributes.getValue(i);
+			log.debug("Parsed XML column {} with value [{}].", columnNames[i], rowValues[i]);
+		}
+		addRow(getSchemaName(namespace), localName, columnNames, rowValues);
 	}
 
 	/**
@@ -84,6 +91,50 @@ public class DataSetContentHandler extends DefaultHandler {
 	 */
 	private static final String DATASET_XML_ELEMENT = "dataset";
 
+	/**
+	 * Process the &lt;where /> XML element.
+	 * <p>
+	 * Sets the condition restricting the database rows compared with the
+	 * table given by attribute <code>table</code> to attribute
+	 * <code>condition</code>.
+	 * 
+	 * @param namespace
+	 *            XML attribute namespace
+	 * @param localName
+	 *            XML attribute local name
+	 * @param attributes
+	 *            XML attributes
+	 * @return true iff this is where element
+	 * @throws SAXException
+	 *             When an attribute is missing
+	 */
+	private boolean processWhereElement(String namespace, String localName, Attributes attributes)
+			throws SAXException {
+		if (!WHERE_XML_ELEMENT.equals(localName)) {
+			return false;
+		}
+		String tableName = attributes.getValue(WHERE_TABLE_ATTRIBUTE);
+		String condition = attributes.getValue(WHERE_CONDITION_ATTRIBUTE);
+		if (StringUtils.isBlank(tableName) || StringUtils.isBlank(condition)) {
+			throw new SAXException("Element " + WHERE_XML_ELEMENT + " must have attributes "
+					+ WHERE_TABLE_ATTRIBUTE + " and " + WHERE_CONDITION_ATTRIBUTE + ".");
+		}
+		log.debug("Parsed condition [{}] for table {}.", condition, tableName);
+		startDataset(getSchemaName(namespace)).setWhere(tableName, condition);
+		return true;
+	}
+
+	/**
+	 * Where XML element name.
+	 * <p>
+	 * <code>where</code> is an SQL keyword, so it cannot be a table name.
+	 */
+	private static final String WHERE_XML_ELEMENT = "where";
+
+	private static final String WHERE_TABLE_ATTRIBUTE = "table";
+
+	private static final String WHERE_CONDITION_ATTRIBUTE = "condition";
+
 	/**
 	 * Return true iff this XML element has an XML namespace declared.
 	 * 
@@ -99,12 +150,11 @@ public class DataSetContentHandler extends DefaultHandler {
 	 * Start dataset parsing if it does not exist yet, or get the existing
 	 * dataset for the database schema.
 	 * 
-	 * @param namespace
-	 *            Element namespace
+	 * @param schemaName
+	 *            Database schema name
 	 * @return Dataset
 	 */
-	private FlatXmlDataSet startDataset(String namespace) {
-		String schemaName = getSchemaName(namespace);
+	private FlatXmlDataSet startDataset(String schemaName) {
 		FlatXmlDataSet dataSet = dataSets.get(schemaName);
 		if (dataSet == null) {
 			dataSet = createFlatXmlDataSet();
@@ -141,82 +191,21 @@ public class DataSetContentHandler extends DefaultHandler {
 	}
 
 	/**
-	 * Start processing a table row.
+	 * Add a table row to the dataset of the database schema.
 	 * <p>
-	 * Create new table metadata from element attributes. Start a row on the
-	 * dataset from the metadata.
-	 * 
-	 * @param dataSet
-	 *            Dataset
-	 * @param tableName
-	 *            Table name
-	 * @param attributes
-	 *            Element attributes
-	 * @return Created table metadata
-	 */
-	private MutableTableMetaData startRow(FlatXmlDataSet dataSet, String tableName, Attributes attributes) {
-		Column[] columns = new Column[attributes.getLength()];
-		for (int i = 0; i < attributes.getLength(); i++) {
-			columns[i] = new Column(attributes.getQName(i), DataType.UNKNOWN);
-		}
-		MutableTableMetaData tableMetaData = createMutableTableMetaData(tableName, columns);
-		dataSet.startRow(tableMetaData);
-		return tableMetaData;
-	}
-
-	/**
-	 * Instantiate new {@link MutableTableMetaData}.
+	 * A row without columns only adds the table.
 	 * 
+	 * @param schemaName
+	 *            Database schema name
 	 * @param tableName
 	 *            Table name
-	 * @param columns
-	 * @return New {@link MutableTableMetaData}
-	 */
-	protected MutableTableMetaData createMutableTableMetaData(String tableName, Column[] columns) {
-		return new MutableTableMetaData(tableName, columns);
-	}
-
-	/**
-	 * Set row values from element attributes.
-	 * <p>
-	 * If it is an empty table row, return. Otherwise, parse column values from
-	 * XML attributes and set row values.
-	 * 
-	 * @param dataSet
-	 *            Dataset
-	 * @param metaData
-	 *            Table metadata
-	 * @param attributes
-	 *            Element attributes
-	 */
-	private void setRowValues(FlatXmlDataSet dataSet, MutableTableMetaData metaData, Attributes attributes) {
-		Column[] columns = metaData.getColumns();
-		if (isEmptyTableRow(columns, attributes)) {
-			return;
-		}
-		String[] rowValues = new String[columns.length];
-		for (int i = 0; i < columns.length; i++) {
-			Column column = columns[i];
-			rowValues[i] = attributes.getValue(column.getColumnName());
-			log.debug("Parsed XML column {} with value [{}].", column.getColumnName(), rowValues[i]);
-		}
-		dataSet.setRowValues(rowValues);
-	}
-
-	/**
-	 * Return true iff it is an empty table row.
-	 * <p>
-	 * Return true if there are no columns in table metadata or there are no
-	 * element attributes.
-	 * 
-	 * @param columns
-	 *            Table columns
-	 * @param attributes
-	 *            Element attributes
-	 * @return true iff it is empty table row
+	 * @param columnNames
+	 *            Names of the row columns
+	 * @param rowValues
+	 *            Values in the order of the row columns
 	 */
-	private boolean isEmptyTableRow(Column[] columns, Attributes attributes) {
-		return columns.length == 0 || attributes.getLength() == 0;
+	protected void addRow(String schemaName, String tableName, String[] columnNames, String[] rowValues) {
+		startDataset(schemaName).addRow(tableName, columnNames, rowValues);
 	}
 
 	/**
@@ -1,6 +1,10 @@
 package net.sf.lightair.internal.unitils;
 
 import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.lightair.internal.properties.PropertiesProvider;
 import net.sf.lightair.internal.properties.PropertyKeys;
@@ -12,8 +16,14 @@ import org.unitils.dbunit.util.MultiSchemaDataSet;
  */
 public class DataSetFactory implements PropertyKeys {
 
+	private final ParsedDataSetCache parsedDataSetCache = new ParsedDataSetCache();
+
 	/**
 	 * Create multi-schema dataset by parsing a set of XML dataset files.
+	 * <p>
+	 * Parsed files are cached, tokens are replaced each time a dataset is
+	 * created. See {@link ParsedDataSetCache}. Several files may be parsed in
+	 * parallel, see {@link #setParseThreads(int)}.
 	 * 
 	 * @param profile
 	 *            Profile
@@ -23,11 +33,28 @@ public class DataSetFactory implements PropertyKeys {
 	 */
 	public MultiSchemaDataSet createDataSet(String profile, URL... dataSetFiles) {
 		MultiSchemaXmlDataSetReader multiSchemaXmlDataSetReader = createMultiSchemaXmlDataSetReader();
+		multiSchemaXmlDataSetReader.setParsedDataSetCache(parsedDataSetCache);
+		multiSchemaXmlDataSetReader.setExecutor(executor);
 		return multiSchemaXmlDataSetReader.readDataSetXml(
 				propertiesProvider.getProperty(profile, DEFAULT_SCHEMA),
 				dataSetFiles);
 	}
 
+	/**
+	 * Stream rows of a set of XML dataset files to a handler, as they are
+	 * parsed.
+	 * 
+	 * @param dataSetContentHandler
+	 *            Handler receiving the rows
+	 * @param dataSetFiles
+	 *            Dataset files
+	 */
+	public void streamDataSet(DataSetContentHandler dataSetContentHandler,
+			URL... dataSetFiles) {
+		createMultiSchemaXmlDataSetReader().streamDataSetXml(
+				dataSetContentHandler, dataSetFiles);
+	}
+
 	/**
 	 * Instantiate new {@link MultiSchemaXmlDataSetReader}.
 	 * 
@@ -37,6 +64,47 @@ public class DataSetFactory implements PropertyKeys {
 		return new MultiSchemaXmlDataSetReader();
 	}
 
+	/**
+	 * Set maximum number of cached parsed dataset files.
+	 * 
+	 * @param cacheSize
+	 *            Cache size, 0 to disable caching
+	 */
+	public void setCacheSize(int cacheSize) {
+		parsedDataSetCache.setSize(cacheSize);
+	}
+
+	private ExecutorService executor;
+
+	/**
+	 * Set number of threads parsing dataset files of one dataset in parallel.
+	 * <p>
+	 * Threads of a previously set pool are stopped.
+	 * 
+	 * @param parseThreads
+	 *            Number of threads, 1 or less to parse files one after another
+	 */
+	public synchronized void setParseThreads(int parseThreads) {
+		if (null != executor) {
+			executor.shutdown();
+			executor = null;
+		}
+		if (parseThreads > 1) {
+			executor = Executors.newFixedThreadPool(parseThreads,
+					new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"lightair-dataset-parser-"
+											+ count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+	}
+
 	// dependencies and setters
 
 	private PropertiesProvider propertiesProvider;
@@ -67,6 +67,32 @@ public class DataSetLoader {
 		}
 	}
 
+	/**
+	 * Resolve dataset files for a test method the same way as
+	 * {@link #load(String, Method, String, String...)} does.
+	 * 
+	 * @param testMethod
+	 *            Test method
+	 * @param suffix
+	 *            File name suffix
+	 * @param fileNames
+	 *            Explicit file names
+	 * @return Dataset files
+	 */
+	public URL[] resolve(Method testMethod, String suffix, String... fileNames) {
+		try {
+			List<URL> resources = new ArrayList<URL>();
+			if (fileNames.length == 0) {
+				addDefaultFile(testMethod, suffix, resources);
+			} else {
+				addExplicitFiles(testMethod, fileNames, resources);
+			}
+			return resources.toArray(new URL[] {});
+		} catch (DataSetNotFoundException e) {
+			throw new DataSetNotFoundException(e, fileNames);
+		}
+	}
+
 	/**
 	 * Add resolved default test method file to resources list.
 	 * <p>
@@ -0,0 +1,350 @@
+package net.sf.lightair.internal.unitils;
+
+import java.net.URL;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import net.sf.lightair.exception.DatabaseAccessException;
+import net.sf.lightair.internal.dbunit.DbUnitWrapper;
+import net.sf.lightair.internal.dbunit.dataset.MergingTable;
+import net.sf.lightair.internal.dbunit.dataset.MutableTableMetaData;
+import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.properties.PropertyKeys;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.operation.DatabaseOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sets up database by streaming rows of dataset files straight into inserts.
+ * <p>
+ * Dataset files are parsed in a separate thread, which puts the rows into a
+ * bounded queue. Rows are taken from the queue and inserted in chunks of at
+ * most the queue size, so that memory used does not depend on the size of the
+ * dataset.
+ * <p>
+ * Before any rows are inserted, dataset files are scanned for table names and
+ * all tables are cleaned at once in reverse dataset order, as in the regular
+ * setup, so that child tables are cleaned before their parents. Rows are
+ * inserted in the order of the dataset files. Unlike the regular setup, rows
+ * of a table are not grouped together.
+ */
+public class DataSetStreamer implements PropertyKeys {
+
+	private final Logger log = LoggerFactory.getLogger(DataSetStreamer.class);
+
+	private static final Row END = new Row(null, null, null, null);
+
+	/**
+	 * Return true if streaming setup is enabled for a profile.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @return true if enabled
+	 */
+	public boolean isEnabled(String profile) {
+		return Boolean.parseBoolean(propertiesProvider.getProperty(profile,
+				SETUP_STREAMING, "false"));
+	}
+
+	/**
+	 * Set up database from dataset files.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @param dataSetFiles
+	 *            Dataset files
+	 */
+	public void setup(String profile, URL... dataSetFiles) {
+		int queueSize = (int) propertiesProvider.getProperty(profile,
+				SETUP_STREAMING_QUEUE_SIZE, 1000);
+		log.debug("Streaming setup of profile {} from files {} "
+				+ "through queue of {} rows.", profile, dataSetFiles,
+				queueSize);
+		clean(profile, getTableNames(profile, dataSetFiles));
+		BlockingQueue<Row> queue = new ArrayBlockingQueue<Row>(queueSize);
+		Reader reader = new Reader(queue, propertiesProvider.getProperty(
+				profile, DEFAULT_SCHEMA), dataSetFiles);
+		Thread thread = new Thread(reader, "lightair-dataset-reader");
+		thread.setDaemon(true);
+		thread.start();
+		try {
+			insert(profile, queue, queueSize);
+		} finally {
+			// stop reading if insert failed
+			thread.interrupt();
+		}
+		if (reader.exception instanceof Error) {
+			throw (Error) reader.exception;
+		}
+		if (null != reader.exception) {
+			throw (RuntimeException) reader.exception;
+		}
+	}
+
+	/**
+	 * Scan dataset files for names of tables.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @param dataSetFiles
+	 *            Dataset files
+	 * @return Table names by schema name, both in order of first appearance
+	 */
+	public Map<String, Map<String, String>> getTableNames(String profile,
+			URL... dataSetFiles) {
+		TableNameReader reader = new TableNameReader(
+				propertiesProvider.getProperty(profile, DEFAULT_SCHEMA));
+		dataSetFactory.streamDataSet(reader, dataSetFiles);
+		return reader.tableNames;
+	}
+
+	/**
+	 * Clean tables of all schemas, each schema by a single operation in
+	 * reverse order of the tables.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @param tableNames
+	 *            Table names by schema name
+	 */
+	private void clean(String profile,
+			Map<String, Map<String, String>> tableNames) {
+		DatabaseOperation clean = factory.getCleanDatabaseOperation(profile);
+		List<String> schemaNames = new ArrayList<String>(tableNames.keySet());
+		Collections.reverse(schemaNames);
+		try {
+			for (String schemaName : schemaNames) {
+				DefaultDataSet dataSet = new DefaultDataSet();
+				for (String tableName : tableNames.get(schemaName).values()) {
+					dataSet.addTable(new DefaultTable(tableName));
+				}
+				log.debug("Cleaning tables {} of schema {}.", tableNames
+						.get(schemaName).values(), schemaName);
+				clean.execute(
+						dbUnitWrapper.getConnection(profile, schemaName),
+						dataSet);
+			}
+		} catch (DatabaseUnitException e) {
+			throw new DatabaseAccessException(e);
+		} catch (SQLException e) {
+			throw new DatabaseAccessException(e);
+		}
+	}
+
+	/**
+	 * Insert rows taken from queue until the end of dataset.
+	 * 
+	 * @param profile
+	 *            Profile
+	 * @param queue
+	 *            Queue of rows
+	 * @param chunkSize
+	 *            Maximum number of rows inserted at once
+	 */
+	private void insert(String profile, BlockingQueue<Row> queue,
+			int chunkSize) {
+		DatabaseOperation insert = factory.getInsertDatabaseOperation(profile);
+		// number of rows inserted so far by schema and table
+		Map<String, Integer> rowCounts = new HashMap<String, Integer>();
+		String key = null;
+		String schemaName = null;
+		IDatabaseConnection connection = null;
+		MergingTable table = null;
+		try {
+			Row row;
+			while (END != (row = take(queue))) {
+				if (null != table
+						&& (table.getRowCount() >= chunkSize || !isSameTable(
+								row, schemaName, table))) {
+					rowCounts.put(key,
+							table.getFirstRowId() + table.getRowCount());
+					insert.execute(connection, new DefaultDataSet(table));
+					table = null;
+				}
+				if (null == table) {
+					key = row.schemaName + "." + row.tableName.toUpperCase();
+					connection = dbUnitWrapper.getConnection(profile,
+							row.schemaName);
+					Integer rowCount = rowCounts.get(key);
+					if (null == rowCount) {
+						rowCount = 0;
+					}
+					table = new MergingTable(new MutableTableMetaData(
+							row.tableName));
+					table.setFirstRowId(rowCount);
+					rowCounts.put(key, rowCount);
+					schemaName = row.schemaName;
+				}
+				if (row.columnNames.length > 0) {
+					table.addRow(row.columnNames, row.values);
+				}
+			}
+			if (null != table) {
+				insert.execute(connection, new DefaultDataSet(table));
+			}
+		} catch (DatabaseUnitException e) {
+			throw new DatabaseAccessException(e);
+		} catch (SQLException e) {
+			throw new DatabaseAccessException(e);
+		}
+	}
+
+	private boolean isSameTable(Row row, String schemaName, MergingTable table) {
+		return row.schemaName.equals(schemaName)
+				&& row.tableName.equals(table.getTableMetaData().getTableName());
+	}
+
+	private Row take(BlockingQueue<Row> queue) {
+		try {
+			return queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while waiting for dataset rows.", e);
+		}
+	}
+
+	/**
+	 * Row of a dataset table.
+	 */
+	private static class Row {
+
+		private final String schemaName;
+		private final String tableName;
+		private final String[] columnNames;
+		private final String[] values;
+
+		private Row(String schemaName, String tableName, String[] columnNames,
+				String[] values) {
+			this.schemaName = schemaName;
+			this.tableName = tableName;
+			this.columnNames = columnNames;
+			this.values = values;
+		}
+
+	}
+
+	/**
+	 * Parses dataset files and puts their rows into queue, followed by the end
+	 * of dataset.
+	 * <p>
+	 * The end of dataset is put into queue even if parsing fails, so that
+	 * insert never waits forever. Once interrupted because insert failed,
+	 * reader gives up without waiting for space in queue.
+	 */
+	private class Reader extends DataSetContentHandler implements Runnable {
+
+		private final BlockingQueue<Row> queue;
+
+		private final URL[] dataSetFiles;
+
+		private volatile Throwable exception;
+
+		private Reader(BlockingQueue<Row> queue, String defaultSchemaName,
+				URL[] dataSetFiles) {
+			super(defaultSchemaName);
+			this.queue = queue;
+			this.dataSetFiles = dataSetFiles;
+		}
+
+		public void run() {
+			try {
+				dataSetFactory.streamDataSet(this, dataSetFiles);
+			} catch (RuntimeException e) {
+				exception = e;
+			} catch (Error e) {
+				exception = e;
+				throw e;
+			} finally {
+				try {
+					queue.put(END);
+				} catch (InterruptedException e) {
+					// insert failed, nobody is waiting for the end
+				}
+			}
+		}
+
+		@Override
+		protected void addRow(String schemaName, String tableName,
+				String[] columnNames, String[] rowValues) {
+			try {
+				queue.put(new Row(schemaName, tableName, columnNames,
+						rowValues));
+			} catch (InterruptedException e) {
+				// keep interrupted, so that the end is not waited for either
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(
+						"Interrupted while reading dataset.", e);
+			}
+		}
+
+	}
+
+	/**
+	 * Parses dataset files and collects names of their tables.
+	 */
+	private static class TableNameReader extends DataSetContentHandler {
+
+		// table names by schema name and upper case table name
+		private final Map<String, Map<String, String>> tableNames = new LinkedHashMap<String, Map<String, String>>();
+
+		private TableNameReader(String defaultSchemaName) {
+			super(defaultSchemaName);
+		}
+
+		@Override
+		protected void addRow(String schemaName, String tableName,
+				String[] columnNames, String[] rowValues) {
+			Map<String, String> schemaTableNames = tableNames.get(schemaName);
+			if (null == schemaTableNames) {
+				schemaTableNames = new LinkedHashMap<String, String>();
+				tableNames.put(schemaName, schemaTableNames);
+			}
+			String key = tableName.toUpperCase();
+			if (!schemaTableNames.containsKey(key)) {
+				schemaTableNames.put(key, tableName);
+			}
+		}
+
+	}
+
+	// dependencies and setters
+
+	private DataSetFactory dataSetFactory;
+
+	public void setDataSetFactory(DataSetFactory dataSetFactory) {
+		this.dataSetFactory = dataSetFactory;
+	}
+
+	private DbUnitWrapper dbUnitWrapper;
+
+	public void setDbUnitWrapper(DbUnitWrapper dbUnitWrapper) {
+		this.dbUnitWrapper = dbUnitWrapper;
+	}
+
+	private PropertiesProvider propertiesProvider;
+
+	public void setPropertiesProvider(PropertiesProvider propertiesProvider) {
+		this.propertiesProvider = propertiesProvider;
+	}
+
+	private Factory factory;
+
+	public void setFactory(Factory factory) {
+		this.factory = factory;
+	}
+
+}
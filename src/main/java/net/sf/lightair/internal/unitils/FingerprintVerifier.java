@@ -0,0 +1,336 @@
+package net.sf.lightair.internal.unitils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.lightair.internal.dbunit.dataset.MergingTable;
+import net.sf.lightair.internal.dbunit.util.Fingerprint;
+import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.properties.PropertyKeys;
+import net.sf.lightair.internal.unitils.compare.Column;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchTableException;
+import org.dbunit.dataset.datatype.DataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verifies tables by a {@link Fingerprint} before they are read and compared
+ * row by row.
+ * <p>
+ * The number of rows is compared first. When equal, the expected columns of
+ * the database rows are streamed into a fingerprint, without building rows for
+ * comparison, and compared with a fingerprint of the expected rows. Values are
+ * fingerprinted by their comparison keys, see
+ * {@link Column#getMatchKey(DataType)}, so that fingerprints are equal only if
+ * each expected row matches a database row.
+ * <p>
+ * A column with <code>@any</code> in all rows is fingerprinted as a non-null
+ * value. Tables with other values that may match different database values,
+ * like <code>@auto</code>, variables and temporal values compared within a
+ * limit, or with rows not specifying all columns, always differ. Rows are
+ * restricted by the condition declared for the table in the expected dataset,
+ * if any.
+ */
+public class FingerprintVerifier implements PropertyKeys {
+
+	private final Logger log = LoggerFactory
+			.getLogger(FingerprintVerifier.class);
+
+	private static final String ANY = "@any";
+
+	/**
+	 * Return true if tables are verified by fingerprint for a profile.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @return true if enabled
+	 */
+	public boolean isEnabled(String profile) {
+		return Boolean.parseBoolean(propertiesProvider.getProperty(profile,
+				VERIFY_FINGERPRINT, "false"));
+	}
+
+	/**
+	 * Return names of tables that must be compared row by row, because their
+	 * fingerprint differs from the expected one.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @param connection
+	 *            Connection
+	 * @param expectedDataSet
+	 *            Expected dataset
+	 * @param tableNames
+	 *            Names of expected tables to verify
+	 * @return Names of tables not known to match
+	 * @throws DataSetException
+	 * @throws SQLException
+	 */
+	public String[] getTablesToCompare(String profile,
+			IDatabaseConnection connection, IDataSet expectedDataSet,
+			String[] tableNames) throws DataSetException, SQLException {
+		int fetchSize = (int) propertiesProvider.getProperty(profile,
+				VERIFY_FETCH_SIZE, 1000);
+		IDataSet databaseDataSet = connection.createDataSet();
+		List<String> tablesToCompare = new ArrayList<String>();
+		for (String tableName : tableNames) {
+			if (!isMatching(connection, databaseDataSet,
+					expectedDataSet.getTable(tableName), fetchSize)) {
+				log.debug("Fingerprint of table {} differs.", tableName);
+				tablesToCompare.add(tableName);
+			}
+		}
+		return tablesToCompare.toArray(new String[tablesToCompare.size()]);
+	}
+
+	/**
+	 * Return true if database table is known to match expected table.
+	 */
+	private boolean isMatching(IDatabaseConnection connection,
+			IDataSet databaseDataSet, ITable table, int fetchSize)
+			throws DataSetException, SQLException {
+		String tableName = table.getTableMetaData().getTableName();
+		ITableMetaData metaData;
+		try {
+			metaData = databaseDataSet.getTableMetaData(tableName);
+		} catch (NoSuchTableException e) {
+			return false;
+		}
+		org.dbunit.dataset.Column[] expectedColumns = table.getTableMetaData()
+				.getColumns();
+		if (0 == expectedColumns.length && 0 != table.getRowCount()) {
+			return false;
+		}
+		org.dbunit.dataset.Column[] columns = new org.dbunit.dataset.Column[expectedColumns.length];
+		for (int i = 0; i < expectedColumns.length; i++) {
+			columns[i] = tableHelper.getColumn(metaData,
+					expectedColumns[i].getColumnName());
+			if (null == columns[i]) {
+				return false;
+			}
+		}
+		boolean[] anyColumns = getAnyColumns(table, expectedColumns);
+		Fingerprint expected = getExpectedFingerprint(table, expectedColumns,
+				columns, anyColumns);
+		if (null == expected) {
+			return false;
+		}
+
+		String qualifiedName = tableHelper.getQualifiedName(connection,
+				connection.getSchema(), metaData.getTableName());
+		String where = ActualDataSetReader.getWhere(table);
+		String selectedRows = null == where ? qualifiedName : qualifiedName
+				+ " where " + where;
+		Statement statement = connection.getConnection().createStatement(
+				ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		try {
+			if (expected.getRowCount() != getRowCount(statement, selectedRows)) {
+				return false;
+			}
+			if (0 == columns.length) {
+				return true;
+			}
+			statement.setFetchSize(fetchSize);
+			Fingerprint actual = getDatabaseFingerprint(connection, statement,
+					selectedRows, columns, anyColumns);
+			return expected.equals(actual);
+		} catch (SQLException e) {
+			log.warn("Cannot compute fingerprint of table {}, "
+					+ "comparing rows instead: {}", tableName, e.getMessage());
+			return false;
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Find columns with <code>@any</code> in all rows.
+	 */
+	private boolean[] getAnyColumns(ITable table,
+			org.dbunit.dataset.Column[] expectedColumns)
+			throws DataSetException {
+		boolean[] anyColumns = new boolean[expectedColumns.length];
+		for (int i = 0; i < expectedColumns.length; i++) {
+			anyColumns[i] = table.getRowCount() > 0;
+			for (int row = 0; row < table.getRowCount() && anyColumns[i]; row++) {
+				anyColumns[i] = ANY.equals(table.getValue(row,
+						expectedColumns[i].getColumnName()));
+			}
+		}
+		return anyColumns;
+	}
+
+	/**
+	 * Compute fingerprint of expected rows.
+	 *
+	 * @return Fingerprint or <code>null</code> if a value is missing or may
+	 *         match different database values
+	 */
+	private Fingerprint getExpectedFingerprint(ITable table,
+			org.dbunit.dataset.Column[] expectedColumns,
+			org.dbunit.dataset.Column[] columns, boolean[] anyColumns)
+			throws DataSetException {
+		String tableName = table.getTableMetaData().getTableName();
+		MergingTable mergingTable = table instanceof MergingTable ? (MergingTable) table
+				: null;
+		Fingerprint fingerprint = new Fingerprint();
+		String[] keys = new String[columns.length];
+		for (int row = 0; row < table.getRowCount(); row++) {
+			for (int i = 0; i < columns.length; i++) {
+				String columnName = expectedColumns[i].getColumnName();
+				if (null != mergingTable
+						&& !mergingTable.hasValue(row, columnName)) {
+					return null;
+				}
+				if (anyColumns[i]) {
+					keys[i] = ANY;
+					continue;
+				}
+				Object value = tableHelper.getExactValue(tableName,
+						columnName, columns[i].getDataType(),
+						table.getValue(row, columnName));
+				if (Column.NO_KEY == value) {
+					return null;
+				}
+				keys[i] = getKey(value);
+				if (null != value && null == keys[i]) {
+					return null;
+				}
+			}
+			fingerprint.addRow(keys);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Compute fingerprint of database rows.
+	 *
+	 * @return Fingerprint or <code>null</code> if a value cannot be
+	 *         fingerprinted
+	 */
+	private Fingerprint getDatabaseFingerprint(IDatabaseConnection connection,
+			Statement statement, String selectedRows,
+			org.dbunit.dataset.Column[] columns, boolean[] anyColumns)
+			throws SQLException, DataSetException {
+		StringBuilder sql = new StringBuilder("select ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(tableHelper.getQualifiedName(connection, null,
+					columns[i].getColumnName()));
+		}
+		sql.append(" from ").append(selectedRows);
+
+		Fingerprint fingerprint = new Fingerprint();
+		String[] keys = new String[columns.length];
+		ResultSet resultSet = statement.executeQuery(sql.toString());
+		try {
+			while (resultSet.next()) {
+				for (int i = 0; i < columns.length; i++) {
+					Object value = columns[i].getDataType().getSqlValue(i + 1,
+							resultSet);
+					if (anyColumns[i]) {
+						keys[i] = null == value ? null : ANY;
+						continue;
+					}
+					keys[i] = getKey(value);
+					if (null != value && null == keys[i]) {
+						return null;
+					}
+				}
+				fingerprint.addRow(keys);
+			}
+		} finally {
+			resultSet.close();
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Return text of the comparison key of a value, equal for two values iff
+	 * their keys are equal.
+	 *
+	 * @param value
+	 *            Expected value cast to column type or database value
+	 * @return Key text, <code>null</code> for SQL null or a value of a type
+	 *         whose text does not identify it
+	 */
+	private String getKey(Object value) {
+		if (null == value) {
+			return null;
+		}
+		Object key = Column.getActualMatchKey(value);
+		if (key instanceof ByteBuffer) {
+			ByteBuffer buffer = (ByteBuffer) key;
+			StringBuilder hex = new StringBuilder("bytes:");
+			for (int i = buffer.position(); i < buffer.limit(); i++) {
+				byte b = buffer.get(i);
+				hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+				hex.append(Character.forDigit(b & 0xf, 16));
+			}
+			return hex.toString();
+		}
+		if (key instanceof String || key instanceof Boolean
+				|| key instanceof Character || key instanceof Byte
+				|| key instanceof Short || key instanceof Integer
+				|| key instanceof Long || key instanceof Float
+				|| key instanceof Double || key instanceof BigInteger
+				|| key instanceof BigDecimal) {
+			// type is part of the key, values of different types never match
+			return key.getClass().getName() + ":" + key;
+		}
+		return null;
+	}
+
+	private int getRowCount(Statement statement, String selectedRows)
+			throws SQLException {
+		ResultSet resultSet = statement.executeQuery("select count(*) from "
+				+ selectedRows);
+		try {
+			resultSet.next();
+			return resultSet.getInt(1);
+		} finally {
+			resultSet.close();
+		}
+	}
+
+	// dependencies and setters
+
+	private PropertiesProvider propertiesProvider;
+
+	/**
+	 * Set properties provider.
+	 *
+	 * @param propertiesProvider
+	 *            Properties provider
+	 */
+	public void setPropertiesProvider(PropertiesProvider propertiesProvider) {
+		this.propertiesProvider = propertiesProvider;
+	}
+
+	private TableHelper tableHelper;
+
+	/**
+	 * Set table helper.
+	 *
+	 * @param tableHelper
+	 *            Table helper
+	 */
+	public void setTableHelper(TableHelper tableHelper) {
+		this.tableHelper = tableHelper;
+	}
+
+}
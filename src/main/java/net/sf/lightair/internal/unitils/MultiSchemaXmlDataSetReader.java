@@ -3,6 +3,12 @@ package net.sf.lightair.internal.unitils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.SAXParserFactory;
 
@@ -17,10 +23,14 @@ import org.unitils.dbunit.util.MultiSchemaDataSet;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Reads multi-schema datasets from a set of XML files in DbUnit's "flat XML"
  * format.
+ * <p>
+ * A resource ending with a slash is read as a directory of CSV files, see
+ * {@link CsvDataSetReader}.
  */
 public class MultiSchemaXmlDataSetReader {
 
@@ -47,25 +57,223 @@ public class MultiSchemaXmlDataSetReader {
 		log.debug("Reading dataset with default schema {} and files {}.",
 				defaultSchemaName, dataSetResources);
 		DataSetContentHandler dataSetContentHandler = createDataSetContentHandler(defaultSchemaName);
-		XMLReader xmlReader = createXMLReader();
-		xmlReader.setContentHandler(dataSetContentHandler);
-		xmlReader.setErrorHandler(dataSetContentHandler);
+		if (null != executor && dataSetResources.length > 1) {
+			List<Future<ParsedDataSet>> futures = parseInParallel(dataSetResources);
+			try {
+				for (int i = 0; i < dataSetResources.length; i++) {
+					replay(dataSetResources[i], getParsed(futures.get(i)),
+							dataSetContentHandler);
+				}
+			} catch (RuntimeException e) {
+				// do not leave other files parsing when one fails
+				cancel(futures);
+				throw e;
+			}
+			return dataSetContentHandler.getMultiSchemaDataSet();
+		}
+		for (URL dataSetResource : dataSetResources) {
+			if (CsvDataSetReader.isCsvDirectory(dataSetResource)) {
+				parse(dataSetResource, dataSetContentHandler);
+				continue;
+			}
+			replay(dataSetResource, parse(dataSetResource),
+					dataSetContentHandler);
+		}
+		return dataSetContentHandler.getMultiSchemaDataSet();
+	}
+
+	/**
+	 * Submit each dataset file to the executor to be parsed on its own.
+	 * 
+	 * @param dataSetResources
+	 *            Files with datasets
+	 * @return Parsed datasets in the order of the files
+	 */
+	private List<Future<ParsedDataSet>> parseInParallel(
+			URL... dataSetResources) {
+		List<Future<ParsedDataSet>> futures = new ArrayList<Future<ParsedDataSet>>(
+				dataSetResources.length);
+		try {
+			for (final URL dataSetResource : dataSetResources) {
+				futures.add(executor.submit(new Callable<ParsedDataSet>() {
+					public ParsedDataSet call() {
+						if (CsvDataSetReader.isCsvDirectory(dataSetResource)) {
+							ParsedDataSet parsedDataSet = new ParsedDataSet();
+							parse(dataSetResource, parsedDataSet);
+							return parsedDataSet;
+						}
+						return parse(dataSetResource);
+					}
+				}));
+			}
+		} catch (RuntimeException e) {
+			cancel(futures);
+			throw e;
+		}
+		return futures;
+	}
+
+	/**
+	 * Wait for a dataset file to be parsed.
+	 * 
+	 * @param future
+	 *            Parsed dataset
+	 * @return Parsed dataset
+	 */
+	private ParsedDataSet getParsed(Future<ParsedDataSet> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while parsing datasets.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private void cancel(List<Future<ParsedDataSet>> futures) {
+		for (Future<ParsedDataSet> future : futures) {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * Replay parsed dataset file into a handler.
+	 * 
+	 * @param dataSetResource
+	 *            File with dataset
+	 * @param parsedDataSet
+	 *            Parsed dataset
+	 * @param dataSetContentHandler
+	 *            Handler
+	 */
+	private void replay(URL dataSetResource, ParsedDataSet parsedDataSet,
+			DataSetContentHandler dataSetContentHandler) {
+		try {
+			parsedDataSet.replay(dataSetContentHandler);
+		} catch (SAXException e) {
+			throw new IllegalDataSetContentException(e,
+					dataSetResource.getPath());
+		}
+	}
+
+	/**
+	 * Read compiled sibling of XML dataset file.
+	 * 
+	 * @param dataSetResource
+	 *            File with dataset
+	 * @return Parsed dataset or <code>null</code> if there is no usable
+	 *         compiled dataset
+	 */
+	private ParsedDataSet readCompiled(URL dataSetResource) {
+		try {
+			return CompiledDataSet.readSibling(dataSetResource);
+		} catch (IOException e) {
+			log.warn("Cannot read compiled dataset of {}, parsing XML: {}",
+					dataSetResource, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Parse XML dataset file, or take it from the cache.
+	 * <p>
+	 * An up-to-date compiled sibling of the file is read instead of parsing
+	 * the file, see {@link CompiledDataSet}.
+	 * 
+	 * @param dataSetResource
+	 *            File with dataset
+	 * @return Parsed dataset
+	 */
+	private ParsedDataSet parse(URL dataSetResource) {
+		long lastModified = 0;
+		if (null != parsedDataSetCache) {
+			lastModified = parsedDataSetCache.getLastModified(dataSetResource);
+			ParsedDataSet parsedDataSet = parsedDataSetCache.get(
+					dataSetResource, lastModified);
+			if (null != parsedDataSet) {
+				return parsedDataSet;
+			}
+		}
+		ParsedDataSet parsedDataSet = readCompiled(dataSetResource);
+		if (null == parsedDataSet) {
+			parsedDataSet = new ParsedDataSet();
+			parse(dataSetResource, parsedDataSet);
+		}
+		if (null != parsedDataSetCache) {
+			parsedDataSetCache.put(dataSetResource, lastModified,
+					parsedDataSet);
+		}
+		return parsedDataSet;
+	}
+
+	/**
+	 * Stream rows of XML dataset files in DbUnit's "flat XML" format to a
+	 * handler, as they are parsed.
+	 * <p>
+	 * Files are not cached, nothing is kept in memory.
+	 * 
+	 * @param dataSetContentHandler
+	 *            Handler receiving the rows
+	 * @param dataSetResources
+	 *            Files with datasets
+	 * @throws DataSetNotFoundException
+	 *             When a dataset file cannot be read
+	 * @throws IllegalDataSetContentException
+	 *             When a dataset file cannot be parsed
+	 */
+	public void streamDataSetXml(DataSetContentHandler dataSetContentHandler,
+			URL... dataSetResources) throws DataSetNotFoundException,
+			IllegalDataSetContentException {
 		for (URL dataSetResource : dataSetResources) {
-			log.debug("Reading XML dataset file {}.", dataSetResource);
-			InputStream dataSetInputStream = null;
+			parse(dataSetResource, dataSetContentHandler);
+		}
+	}
+
+	/**
+	 * Parse XML dataset file, or read directory of CSV files, into a handler.
+	 * 
+	 * @param dataSetResource
+	 *            File or directory with dataset
+	 * @param handler
+	 *            Content and error handler
+	 */
+	void parse(URL dataSetResource, DefaultHandler handler) {
+		if (CsvDataSetReader.isCsvDirectory(dataSetResource)) {
 			try {
-				dataSetInputStream = dataSetResource.openStream();
-				xmlReader.parse(new InputSource(dataSetInputStream));
+				new CsvDataSetReader().read(dataSetResource, handler);
 			} catch (IOException e) {
 				throw new DataSetNotFoundException(e, dataSetResource.getPath());
 			} catch (SAXException e) {
 				throw new IllegalDataSetContentException(e,
 						dataSetResource.getPath());
-			} finally {
-				IOUtils.closeQuietly(dataSetInputStream);
 			}
+			return;
+		}
+		log.debug("Reading XML dataset file {}.", dataSetResource);
+		XMLReader xmlReader = createXMLReader();
+		xmlReader.setContentHandler(handler);
+		xmlReader.setErrorHandler(handler);
+		InputStream dataSetInputStream = null;
+		try {
+			dataSetInputStream = dataSetResource.openStream();
+			xmlReader.parse(new InputSource(dataSetInputStream));
+		} catch (IOException e) {
+			throw new DataSetNotFoundException(e, dataSetResource.getPath());
+		} catch (SAXException e) {
+			throw new IllegalDataSetContentException(e,
+					dataSetResource.getPath());
+		} finally {
+			IOUtils.closeQuietly(dataSetInputStream);
 		}
-		return dataSetContentHandler.getMultiSchemaDataSet();
 	}
 
 	/**
@@ -118,6 +326,34 @@ public class MultiSchemaXmlDataSetReader {
 		}
 	}
 
+	private ExecutorService executor;
+
+	/**
+	 * Set executor parsing dataset files in parallel.
+	 * <p>
+	 * Files are parsed independently of each other and replayed in the order
+	 * given, so the dataset is the same as when parsed one after another.
+	 * 
+	 * @param executor
+	 *            Executor, <code>null</code> to parse files one after another
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	private ParsedDataSetCache parsedDataSetCache;
+
+	/**
+	 * Set cache of parsed datasets.
+	 * 
+	 * @param parsedDataSetCache
+	 *            Cache of parsed datasets, <code>null</code> to parse each
+	 *            file
+	 */
+	public void setParsedDataSetCache(ParsedDataSetCache parsedDataSetCache) {
+		this.parsedDataSetCache = parsedDataSetCache;
+	}
+
 	private static final String EXTERNAL_PARAMETER_ENTITIES = "http://xml.org/sax/features/external-parameter-entities";
 	private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
 
@@ -0,0 +1,429 @@
+package net.sf.lightair.internal.unitils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.lightair.exception.DatabaseAccessException;
+import net.sf.lightair.internal.dbunit.ConnectionFactory;
+import net.sf.lightair.internal.dbunit.DbUnitWrapper;
+import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.properties.PropertyKeys;
+import net.sf.lightair.internal.unitils.compare.DataSetAssert;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.FilteredDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.unitils.dbunit.dataset.Schema;
+import org.unitils.dbunit.util.MultiSchemaDataSet;
+
+/**
+ * Verifies a dataset reading its tables in parallel.
+ * <p>
+ * Each table of each schema is a task. Tasks are taken by a bounded number of
+ * workers, each reading on its own connection of the profile data source.
+ * Tables are then compared schema by schema in the order of the dataset on the
+ * calling thread, so that variables resolve and failures are reported the
+ * same way as when tables are read one after another. Tables whose
+ * fingerprint matches are not read, unless another table of the schema
+ * differs, in which case they are read on the calling thread. Tables not
+ * changed since setup are left out before reading starts.
+ * <p>
+ * Not used while a connection is bound to the profile, because data of its
+ * transaction are not visible on other connections.
+ */
+public class ParallelVerifier implements PropertyKeys {
+
+	private final Logger log = LoggerFactory.getLogger(ParallelVerifier.class);
+
+	private ExecutorService executor;
+
+	private int threads;
+
+	/**
+	 * Set number of threads reading tables in parallel.
+	 * <p>
+	 * Threads of a previously set pool are stopped.
+	 *
+	 * @param threads
+	 *            Number of threads, 1 or less to read tables one after another
+	 */
+	public synchronized void setThreads(int threads) {
+		if (null != executor) {
+			executor.shutdown();
+			executor = null;
+		}
+		this.threads = threads;
+		if (threads > 1) {
+			executor = Executors.newFixedThreadPool(threads,
+					new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"lightair-verifier-"
+											+ count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+	}
+
+	/**
+	 * Return true if tables are read in parallel for a profile.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @return true if enabled
+	 */
+	public synchronized boolean isEnabled(String profile) {
+		return null != executor
+				&& null == dbUnitWrapper
+						.getTransactionConnection(null == profile ? ""
+								: profile);
+	}
+
+	/**
+	 * Verify dataset against database.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @param multiSchemaDataSet
+	 *            Expected dataset
+	 */
+	public void verify(String profile, MultiSchemaDataSet multiSchemaDataSet) {
+		Map<String, IDataSet> dataSetsBySchema = new HashMap<String, IDataSet>();
+		Map<String, List<Task>> tasksBySchema = new HashMap<String, List<Task>>();
+		Queue<Task> queue = new ConcurrentLinkedQueue<Task>();
+		List<String> schemaNames = new ArrayList<String>(
+				multiSchemaDataSet.getSchemaNames());
+		try {
+			for (String schemaName : schemaNames) {
+				IDataSet dataSet = multiSchemaDataSet
+						.getDataSetForSchema(schemaName);
+				String[] tableNames = dataSet.getTableNames();
+				if (changeTracker.isEnabled(profile)) {
+					tableNames = changeTracker.getTablesToCompare(profile,
+							schemaName,
+							dbUnitWrapper.getConnection(profile, schemaName),
+							dataSet);
+					dataSet = new FilteredDataSet(tableNames, dataSet);
+				}
+				List<Task> tasks = new ArrayList<Task>();
+				for (String tableName : tableNames) {
+					tasks.add(new Task(schemaName, dataSet, tableName));
+				}
+				dataSetsBySchema.put(schemaName, dataSet);
+				tasksBySchema.put(schemaName, tasks);
+				queue.addAll(tasks);
+			}
+		} catch (DatabaseUnitException e) {
+			throw new DatabaseAccessException(e);
+		} catch (SQLException e) {
+			throw new DatabaseAccessException(e);
+		}
+
+		List<Future<?>> workers = new ArrayList<Future<?>>();
+		try {
+			synchronized (this) {
+				for (int i = 0; i < Math.min(threads, queue.size()); i++) {
+					workers.add(executor.submit(new Worker(profile, queue)));
+				}
+			}
+			for (String schemaName : schemaNames) {
+				compare(profile, schemaName,
+						dataSetsBySchema.get(schemaName),
+						tasksBySchema.get(schemaName));
+			}
+		} finally {
+			// stop workers before the next test touches the tables
+			queue.clear();
+			join(workers);
+		}
+	}
+
+	/**
+	 * Compare tables of a schema read by the workers.
+	 */
+	private void compare(String profile, String schemaName,
+			IDataSet expectedDataSet, List<Task> tasks) {
+		boolean differs = false;
+		List<String> matchedTableNames = new ArrayList<String>();
+		for (Task task : tasks) {
+			if (null != task.getResult()) {
+				differs = true;
+			} else if (task.matched) {
+				matchedTableNames.add(task.tableName);
+			}
+		}
+		if (!differs) {
+			return;
+		}
+		try {
+			Schema matchedSchema = null;
+			if (!matchedTableNames.isEmpty()) {
+				matchedSchema = actualDataSetReader.read(profile, schemaName,
+						dbUnitWrapper.getConnection(profile, schemaName),
+						expectedDataSet, matchedTableNames
+								.toArray(new String[matchedTableNames.size()]));
+			}
+			List<String> tableNames = new ArrayList<String>();
+			Schema actualSchema = new Schema(schemaName);
+			for (Task task : tasks) {
+				if (task.matched) {
+					tableNames.add(task.tableName);
+					actualSchema.addTable(matchedSchema.getTables().get(
+							matchedTableNames.indexOf(task.tableName)));
+				} else if (null != task.getResult()) {
+					tableNames.add(task.tableName);
+					actualSchema.addTable(task.getResult().getTables().get(0));
+				}
+			}
+			IDataSet dataSetCompared = expectedDataSet;
+			if (tableNames.size() != tasks.size()) {
+				dataSetCompared = new FilteredDataSet(
+						tableNames.toArray(new String[tableNames.size()]),
+						expectedDataSet);
+			}
+			dataSetAssert.assertEqualDbUnitDataSets(schemaName,
+					dataSetCompared, actualSchema);
+		} catch (DatabaseUnitException e) {
+			throw new DatabaseAccessException(e);
+		} catch (SQLException e) {
+			throw new DatabaseAccessException(e);
+		}
+	}
+
+	private void join(List<Future<?>> workers) {
+		boolean interrupted = false;
+		for (Future<?> worker : workers) {
+			while (true) {
+				try {
+					worker.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					log.warn("Verification worker failed.", e.getCause());
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reading of one expected table.
+	 */
+	private static class Task {
+
+		private final String schemaName;
+		private final IDataSet dataSet;
+		private final String tableName;
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private Schema result;
+		private boolean matched;
+		private Throwable error;
+
+		private Task(String schemaName, IDataSet dataSet, String tableName) {
+			this.schemaName = schemaName;
+			this.dataSet = dataSet;
+			this.tableName = tableName;
+		}
+
+		private void finish(Schema result, Throwable error) {
+			this.result = result;
+			this.error = error;
+			done.countDown();
+		}
+
+		/**
+		 * Wait for the table to be read.
+		 *
+		 * @return Schema with the actual table, <code>null</code> if the table
+		 *         is known to match or its fingerprint matches
+		 */
+		private Schema getResult() {
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(
+						"Interrupted while verifying tables.", e);
+			}
+			if (null == error) {
+				return result;
+			}
+			if (error instanceof DatabaseUnitException
+					|| error instanceof SQLException) {
+				throw new DatabaseAccessException(error);
+			}
+			if (error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			}
+			if (error instanceof Error) {
+				throw (Error) error;
+			}
+			throw new IllegalStateException(error);
+		}
+
+	}
+
+	/**
+	 * Worker reading tables on its own JDBC connection until no task is left.
+	 */
+	private class Worker implements Runnable {
+
+		private final String profile;
+		private final Queue<Task> queue;
+
+		private Connection jdbcConnection;
+		private final Map<String, IDatabaseConnection> connections = new HashMap<String, IDatabaseConnection>();
+
+		private Worker(String profile, Queue<Task> queue) {
+			this.profile = profile;
+			this.queue = queue;
+		}
+
+		public void run() {
+			try {
+				Task task;
+				while (null != (task = queue.poll())) {
+					try {
+						task.finish(read(task), null);
+					} catch (Throwable e) {
+						task.finish(null, e);
+					}
+				}
+			} finally {
+				close();
+			}
+		}
+
+		private Schema read(Task task) throws DatabaseUnitException,
+				SQLException {
+			IDatabaseConnection connection = getConnection(task.schemaName);
+			String[] tableNames = { task.tableName };
+			IDataSet expectedDataSet = new FilteredDataSet(tableNames,
+					task.dataSet);
+			if (sqlVerifier.isEnabled(profile)) {
+				tableNames = sqlVerifier.getTablesToCompare(profile,
+						connection, expectedDataSet);
+				if (0 == tableNames.length) {
+					return null;
+				}
+			}
+			if (fingerprintVerifier.isEnabled(profile)
+					&& 0 == fingerprintVerifier.getTablesToCompare(profile,
+							connection, expectedDataSet, tableNames).length) {
+				task.matched = true;
+				return null;
+			}
+			return actualDataSetReader.read(profile, task.schemaName,
+					connection, expectedDataSet, tableNames);
+		}
+
+		private IDatabaseConnection getConnection(String schemaName) {
+			if (null == schemaName) {
+				schemaName = propertiesProvider.getProperty(profile,
+						DEFAULT_SCHEMA);
+			}
+			if (null == jdbcConnection) {
+				jdbcConnection = connectionFactory
+						.createJdbcConnection(profile);
+			}
+			IDatabaseConnection connection = connections.get(schemaName);
+			if (null == connection) {
+				connection = connectionFactory.createConnection(profile,
+						schemaName, jdbcConnection);
+				connections.put(schemaName, connection);
+			}
+			return connection;
+		}
+
+		private void close() {
+			if (null == jdbcConnection) {
+				return;
+			}
+			try {
+				jdbcConnection.close();
+			} catch (SQLException e) {
+				log.warn("Cannot close verification connection.", e);
+			}
+		}
+
+	}
+
+	// dependencies and setters
+
+	private DbUnitWrapper dbUnitWrapper;
+
+	public void setDbUnitWrapper(DbUnitWrapper dbUnitWrapper) {
+		this.dbUnitWrapper = dbUnitWrapper;
+	}
+
+	private ConnectionFactory connectionFactory;
+
+	public void setConnectionFactory(ConnectionFactory connectionFactory) {
+		this.connectionFactory = connectionFactory;
+	}
+
+	private PropertiesProvider propertiesProvider;
+
+	public void setPropertiesProvider(PropertiesProvider propertiesProvider) {
+		this.propertiesProvider = propertiesProvider;
+	}
+
+	private SqlVerifier sqlVerifier;
+
+	public void setSqlVerifier(SqlVerifier sqlVerifier) {
+		this.sqlVerifier = sqlVerifier;
+	}
+
+	private ChangeTracker changeTracker;
+
+	public void setChangeTracker(ChangeTracker changeTracker) {
+		this.changeTracker = changeTracker;
+	}
+
+	private FingerprintVerifier fingerprintVerifier;
+
+	public void setFingerprintVerifier(
+			FingerprintVerifier fingerprintVerifier) {
+		this.fingerprintVerifier = fingerprintVerifier;
+	}
+
+	private ActualDataSetReader actualDataSetReader;
+
+	public void setActualDataSetReader(
+			ActualDataSetReader actualDataSetReader) {
+		this.actualDataSetReader = actualDataSetReader;
+	}
+
+	private DataSetAssert dataSetAssert;
+
+	public void setDataSetAssert(DataSetAssert dataSetAssert) {
+		this.dataSetAssert = dataSetAssert;
+	}
+
+}
@@ -0,0 +1,60 @@
+package net.sf.lightair.internal.unitils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Elements of a parsed XML dataset file, recorded so that they can be replayed
+ * without parsing the file again.
+ * <p>
+ * Values are kept as written in the file. Tokens are replaced each time the
+ * elements are replayed into a {@link DataSetContentHandler}.
+ */
+public class ParsedDataSet extends DefaultHandler {
+
+	private final List<Element> elements = new ArrayList<Element>();
+
+	@Override
+	public void startElement(String namespace, String localName,
+			String qName, Attributes attributes) {
+		elements.add(new Element(namespace, localName, qName,
+				new AttributesImpl(attributes)));
+	}
+
+	/**
+	 * Replay recorded elements into a handler.
+	 * 
+	 * @param handler
+	 *            Handler
+	 * @throws SAXException
+	 */
+	public void replay(DefaultHandler handler) throws SAXException {
+		for (Element element : elements) {
+			handler.startElement(element.namespace, element.localName,
+					element.qName, element.attributes);
+		}
+	}
+
+	private static class Element {
+
+		private final String namespace;
+		private final String localName;
+		private final String qName;
+		private final Attributes attributes;
+
+		private Element(String namespace, String localName, String qName,
+				Attributes attributes) {
+			this.namespace = namespace;
+			this.localName = localName;
+			this.qName = qName;
+			this.attributes = attributes;
+		}
+
+	}
+
+}
@@ -0,0 +1,144 @@
+package net.sf.lightair.internal.unitils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of parsed XML dataset files.
+ * <p>
+ * Entries are keyed by the file URL and remember the last-modified time of the
+ * file when it was parsed. An entry is used only while the file is not
+ * modified, so that datasets edited between runs in the same JVM are parsed
+ * again. Files with unknown last-modified time are not cached.
+ * <p>
+ * The number of entries is limited, the least recently used entry is evicted
+ * first.
+ */
+public class ParsedDataSetCache {
+
+	private final Logger log = LoggerFactory
+			.getLogger(ParsedDataSetCache.class);
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(
+			16, 0.75f, true);
+
+	private int size;
+
+	/**
+	 * Return cached dataset, if the file has not been modified since it was
+	 * parsed.
+	 * 
+	 * @param url
+	 *            Dataset file
+	 * @param lastModified
+	 *            Current last-modified time of the file
+	 * @return Parsed dataset or <code>null</code> if not cached
+	 */
+	public synchronized ParsedDataSet get(URL url, long lastModified) {
+		String key = url.toExternalForm();
+		Entry entry = entries.get(key);
+		if (null == entry) {
+			return null;
+		}
+		if (entry.lastModified != lastModified) {
+			log.debug("Dataset {} modified, parsing it again.", url);
+			entries.remove(key);
+			return null;
+		}
+		log.debug("Using cached dataset {}.", url);
+		return entry.dataSet;
+	}
+
+	/**
+	 * Cache parsed dataset.
+	 * 
+	 * @param url
+	 *            Dataset file
+	 * @param lastModified
+	 *            Last-modified time of the file before it was parsed
+	 * @param dataSet
+	 *            Parsed dataset
+	 */
+	public synchronized void put(URL url, long lastModified,
+			ParsedDataSet dataSet) {
+		if (size <= 0 || 0 == lastModified) {
+			return;
+		}
+		entries.put(url.toExternalForm(), new Entry(lastModified, dataSet));
+		if (entries.size() > size) {
+			String eldest = entries.keySet().iterator().next();
+			log.debug("Evicting cached dataset {}.", eldest);
+			entries.remove(eldest);
+		}
+	}
+
+	/**
+	 * Return last-modified time of a dataset file.
+	 * 
+	 * @param url
+	 *            Dataset file
+	 * @return Last-modified time or 0 if unknown
+	 */
+	public long getLastModified(URL url) {
+		if (size <= 0) {
+			return 0;
+		}
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return new File(url.toURI()).lastModified();
+			} catch (URISyntaxException e) {
+				return 0;
+			} catch (IllegalArgumentException e) {
+				return 0;
+			}
+		}
+		try {
+			URLConnection connection = url.openConnection();
+			return connection.getLastModified();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Set maximum number of cached datasets.
+	 * 
+	 * @param size
+	 *            Cache size, 0 to disable caching
+	 */
+	public synchronized void setSize(int size) {
+		this.size = size;
+		while (entries.size() > Math.max(size, 0)) {
+			entries.remove(entries.keySet().iterator().next());
+		}
+	}
+
+	private static class Entry {
+
+		private final long lastModified;
+
+		private final ParsedDataSet dataSet;
+
+		private Entry(long lastModified, ParsedDataSet dataSet) {
+			this.lastModified = lastModified;
+			this.dataSet = dataSet;
+		}
+
+	}
+
+}
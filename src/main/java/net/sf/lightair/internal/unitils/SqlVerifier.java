@@ -0,0 +1,392 @@
+package net.sf.lightair.internal.unitils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.lightair.internal.dbunit.dataset.MergingTable;
+import net.sf.lightair.internal.dbunit.util.DatabaseProduct;
+import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.properties.PropertyKeys;
+import net.sf.lightair.internal.unitils.compare.Column;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchTableException;
+import org.dbunit.dataset.datatype.DataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verifies large tables in the database, so that only tables that differ
+ * from the expected dataset are read and compared row by row.
+ * <p>
+ * Expected rows are inserted into a temporary table of the session. A table
+ * matches when it has the same number of rows as the expected table and no
+ * group of equal rows of the table is missing in the temporary table with the
+ * same count, which is checked by a single <code>except</code> query.
+ * <p>
+ * Tables with values that may match different database values, like
+ * <code>@any</code>, <code>@auto</code>, variables and temporal values
+ * compared within a limit, with rows not specifying all columns, or with
+ * character or LOB columns are always compared row by row. Values are compared
+ * by the equality of the database. Rows are restricted by the condition
+ * declared for the table in the expected dataset, if any.
+ * <p>
+ * Supported databases are H2 and HSQLDB. Creating the temporary tables does
+ * not commit the transaction of the session.
+ */
+public class SqlVerifier implements PropertyKeys {
+
+	private final Logger log = LoggerFactory.getLogger(SqlVerifier.class);
+
+	private static final String TEMPORARY_TABLE_PREFIX = "LIGHTAIR_VERIFY_";
+
+	/**
+	 * Return true if tables are verified in the database for a profile.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @return true if enabled
+	 */
+	public boolean isEnabled(String profile) {
+		return Boolean.parseBoolean(propertiesProvider.getProperty(profile,
+				VERIFY_SQL, "false"));
+	}
+
+	/**
+	 * Return names of expected tables that must be compared row by row.
+	 *
+	 * @param profile
+	 *            Profile
+	 * @param connection
+	 *            Connection
+	 * @param expectedDataSet
+	 *            Expected dataset
+	 * @return Names of tables not known to match
+	 * @throws DataSetException
+	 * @throws SQLException
+	 */
+	public String[] getTablesToCompare(String profile,
+			IDatabaseConnection connection, IDataSet expectedDataSet)
+			throws DataSetException, SQLException {
+		String[] tableNames = expectedDataSet.getTableNames();
+		Dialect dialect = Dialect.forConnection(connection.getConnection());
+		if (null == dialect) {
+			log.debug("Verifying in database not supported for profile {}.",
+					profile);
+			return tableNames;
+		}
+		int minRows = (int) propertiesProvider.getProperty(profile,
+				VERIFY_SQL_MIN_ROWS, 1000);
+		IDataSet databaseDataSet = connection.createDataSet();
+		List<String> tablesToCompare = new ArrayList<String>();
+		for (String tableName : tableNames) {
+			ITable table = expectedDataSet.getTable(tableName);
+			if (table.getRowCount() < minRows
+					|| !isMatching(connection, dialect, databaseDataSet, table)) {
+				tablesToCompare.add(tableName);
+			}
+		}
+		return tablesToCompare.toArray(new String[tablesToCompare.size()]);
+	}
+
+	/**
+	 * Return true if database table is known to match expected table.
+	 */
+	private boolean isMatching(IDatabaseConnection connection,
+			Dialect dialect, IDataSet databaseDataSet, ITable table)
+			throws DataSetException, SQLException {
+		String tableName = table.getTableMetaData().getTableName();
+		ITableMetaData metaData;
+		try {
+			metaData = databaseDataSet.getTableMetaData(tableName);
+		} catch (NoSuchTableException e) {
+			return false;
+		}
+		org.dbunit.dataset.Column[] expectedColumns = table.getTableMetaData()
+				.getColumns();
+		org.dbunit.dataset.Column[] columns = new org.dbunit.dataset.Column[expectedColumns.length];
+		for (int i = 0; i < expectedColumns.length; i++) {
+			columns[i] = tableHelper.getColumn(metaData,
+					expectedColumns[i].getColumnName());
+			if (null == columns[i] || !isComparable(columns[i].getDataType())) {
+				return false;
+			}
+		}
+		Object[][] rows = getExactValues(table, expectedColumns, columns);
+		if (null == rows) {
+			return false;
+		}
+
+		String qualifiedName = tableHelper.getQualifiedName(connection,
+				connection.getSchema(), metaData.getTableName());
+		String where = ActualDataSetReader.getWhere(table);
+		String selectedRows = null == where ? qualifiedName : qualifiedName
+				+ " where " + where;
+		StringBuilder columnList = new StringBuilder();
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				columnList.append(", ");
+			}
+			columnList.append(tableHelper.getQualifiedName(connection, null,
+					columns[i].getColumnName()));
+		}
+
+		Connection jdbcConnection = connection.getConnection();
+		Statement statement = jdbcConnection.createStatement();
+		try {
+			// types are part of the name, a table kept for the session is
+			// reused only while the database columns do not change
+			String structure = getStructure(statement, columnList.toString(),
+					qualifiedName);
+			String temporaryName = TEMPORARY_TABLE_PREFIX
+					+ DigestUtils.md5Hex(qualifiedName + columnList
+							+ structure);
+			statement.execute(dialect.getCreateSql(temporaryName,
+					columnList.toString(), qualifiedName));
+			String temporaryTable = dialect.getTableName(temporaryName);
+			try {
+				if (!structure.equals(getStructure(statement,
+						columnList.toString(), temporaryTable))) {
+					log.debug("Temporary table {} does not match table {}, "
+							+ "comparing rows instead.", temporaryTable,
+							tableName);
+					return false;
+				}
+				insert(jdbcConnection, temporaryTable, columnList.toString(),
+						columns, rows);
+				if (rows.length != getRowCount(statement, selectedRows)) {
+					return false;
+				}
+				return 0 == getRowCount(statement, "(select " + columnList
+						+ ", count(*) from " + selectedRows + " group by "
+						+ columnList + " except select " + columnList
+						+ ", count(*) from " + temporaryTable + " group by "
+						+ columnList + ") d");
+			} finally {
+				statement.execute(dialect.getReleaseSql(temporaryTable));
+			}
+		} catch (SQLException e) {
+			log.warn("Cannot verify table {} in database, "
+					+ "comparing rows instead: {}", tableName, e.getMessage());
+			return false;
+		} finally {
+			statement.close();
+		}
+	}
+
+	private boolean isComparable(DataType dataType) {
+		return !dataType.equals(DataType.UNKNOWN)
+				&& !dataType.equals(DataType.CHAR)
+				&& !dataType.equals(DataType.NCHAR)
+				&& !dataType.equals(DataType.BLOB)
+				&& !dataType.equals(DataType.CLOB)
+				&& !dataType.equals(DataType.LONGVARBINARY);
+	}
+
+	/**
+	 * Cast expected values to database column types.
+	 *
+	 * @return Rows of values or <code>null</code> if a value is missing or may
+	 *         match different database values
+	 */
+	private Object[][] getExactValues(ITable table,
+			org.dbunit.dataset.Column[] expectedColumns,
+			org.dbunit.dataset.Column[] columns) throws DataSetException {
+		String tableName = table.getTableMetaData().getTableName();
+		MergingTable mergingTable = table instanceof MergingTable ? (MergingTable) table
+				: null;
+		Object[][] rows = new Object[table.getRowCount()][];
+		for (int row = 0; row < rows.length; row++) {
+			rows[row] = new Object[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				String columnName = expectedColumns[i].getColumnName();
+				if (null != mergingTable
+						&& !mergingTable.hasValue(row, columnName)) {
+					return null;
+				}
+				rows[row][i] = tableHelper.getExactValue(tableName,
+						columnName, columns[i].getDataType(),
+						table.getValue(row, columnName));
+				if (Column.NO_KEY == rows[row][i]) {
+					return null;
+				}
+			}
+		}
+		return rows;
+	}
+
+	private void insert(Connection connection, String temporaryTable,
+			String columnList, org.dbunit.dataset.Column[] columns,
+			Object[][] rows) throws SQLException {
+		StringBuilder sql = new StringBuilder("insert into ")
+				.append(temporaryTable).append(" (").append(columnList)
+				.append(") values (");
+		for (int i = 0; i < columns.length; i++) {
+			sql.append(i > 0 ? ", ?" : "?");
+		}
+		sql.append(")");
+		PreparedStatement statement = connection.prepareStatement(sql
+				.toString());
+		try {
+			for (Object[] row : rows) {
+				for (int i = 0; i < columns.length; i++) {
+					DataType dataType = columns[i].getDataType();
+					if (null == row[i]) {
+						statement.setNull(i + 1, dataType.getSqlType());
+						continue;
+					}
+					try {
+						dataType.setSqlValue(row[i], i + 1, statement);
+					} catch (DataSetException e) {
+						throw new SQLException(e.getMessage(), e);
+					}
+				}
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		} finally {
+			statement.close();
+		}
+	}
+
+	private int getRowCount(Statement statement, String selectedRows)
+			throws SQLException {
+		ResultSet resultSet = statement.executeQuery("select count(*) from "
+				+ selectedRows);
+		try {
+			resultSet.next();
+			return resultSet.getInt(1);
+		} finally {
+			resultSet.close();
+		}
+	}
+
+	/**
+	 * Return type, precision and scale of columns of a table.
+	 */
+	private String getStructure(Statement statement, String columnList,
+			String tableName) throws SQLException {
+		ResultSet resultSet = statement.executeQuery("select " + columnList
+				+ " from " + tableName + " where 1 = 0");
+		try {
+			ResultSetMetaData metaData = resultSet.getMetaData();
+			StringBuilder structure = new StringBuilder();
+			for (int i = 1; i <= metaData.getColumnCount(); i++) {
+				structure.append(metaData.getColumnTypeName(i)).append('(')
+						.append(metaData.getPrecision(i)).append(',')
+						.append(metaData.getScale(i)).append(')');
+			}
+			return structure.toString();
+		} finally {
+			resultSet.close();
+		}
+	}
+
+	/**
+	 * Temporary table statements of a database.
+	 */
+	private enum Dialect {
+
+		/**
+		 * H2 commits when dropping a table, so a transactional table is kept
+		 * for the session and emptied after use. Its name identifies the
+		 * types of its columns, which are checked again before use.
+		 */
+		H2 {
+			@Override
+			String getCreateSql(String name, String columnList,
+					String qualifiedName) {
+				return "create local temporary table if not exists " + name
+						+ " transactional as select " + columnList + " from "
+						+ qualifiedName + " where 1 = 0";
+			}
+
+			@Override
+			String getTableName(String name) {
+				return name;
+			}
+
+			@Override
+			String getReleaseSql(String tableName) {
+				return "delete from " + tableName;
+			}
+		},
+
+		HSQLDB {
+			@Override
+			String getCreateSql(String name, String columnList,
+					String qualifiedName) {
+				return "declare local temporary table " + name
+						+ " as (select " + columnList + " from "
+						+ qualifiedName + ") with no data";
+			}
+
+			@Override
+			String getTableName(String name) {
+				return "module." + name;
+			}
+
+			@Override
+			String getReleaseSql(String tableName) {
+				return "drop table " + tableName;
+			}
+		};
+
+		static Dialect forConnection(Connection connection)
+				throws SQLException {
+			DatabaseProduct product = DatabaseProduct.forConnection(connection);
+			if (DatabaseProduct.H2 == product) {
+				return H2;
+			}
+			if (DatabaseProduct.HSQLDB == product) {
+				return HSQLDB;
+			}
+			return null;
+		}
+
+		abstract String getCreateSql(String name, String columnList,
+				String qualifiedName);
+
+		abstract String getTableName(String name);
+
+		abstract String getReleaseSql(String tableName);
+	}
+
+	// dependencies and setters
+
+	private PropertiesProvider propertiesProvider;
+
+	/**
+	 * Set properties provider.
+	 *
+	 * @param propertiesProvider
+	 *            Properties provider
+	 */
+	public void setPropertiesProvider(PropertiesProvider propertiesProvider) {
+		this.propertiesProvider = propertiesProvider;
+	}
+
+	private TableHelper tableHelper;
+
+	/**
+	 * Set table helper.
+	 *
+	 * @param tableHelper
+	 *            Table helper
+	 */
+	public void setTableHelper(TableHelper tableHelper) {
+		this.tableHelper = tableHelper;
+	}
+
+}
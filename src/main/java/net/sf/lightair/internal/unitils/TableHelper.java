@@ -0,0 +1,95 @@
+package net.sf.lightair.internal.unitils;
+
+import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.unitils.compare.Column;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.util.QualifiedTableName;
+
+/**
+ * Access to database tables shared by the components reading tables during
+ * verify.
+ */
+public class TableHelper {
+
+	/**
+	 * Return name escaped by the escape pattern of a connection.
+	 *
+	 * @param connection
+	 *            Connection
+	 * @param prefix
+	 *            Schema or table name to qualify the name by, or
+	 *            <code>null</code>
+	 * @param name
+	 *            Table or column name
+	 * @return Qualified name
+	 */
+	public String getQualifiedName(IDatabaseConnection connection,
+			String prefix, String name) {
+		String escapePattern = (String) connection.getConfig().getProperty(
+				DatabaseConfig.PROPERTY_ESCAPE_PATTERN);
+		return new QualifiedTableName(name, prefix, escapePattern)
+				.getQualifiedName();
+	}
+
+	/**
+	 * Find database column by name ignoring case.
+	 *
+	 * @param metaData
+	 *            Database table meta data
+	 * @param columnName
+	 *            Column name
+	 * @return Column or <code>null</code> if the table has no such column
+	 * @throws DataSetException
+	 */
+	public org.dbunit.dataset.Column getColumn(ITableMetaData metaData,
+			String columnName) throws DataSetException {
+		for (org.dbunit.dataset.Column column : metaData.getColumns()) {
+			if (column.getColumnName().equalsIgnoreCase(columnName)) {
+				return column;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Cast expected value to the exact value it is compared with.
+	 *
+	 * @param tableName
+	 *            Table name
+	 * @param columnName
+	 *            Column name
+	 * @param dataType
+	 *            Data type of the database column
+	 * @param value
+	 *            Expected value
+	 * @return Exact value or {@link Column#NO_KEY} if it may match different
+	 *         database values, see {@link Column#getExactValue(DataType)}
+	 */
+	public Object getExactValue(String tableName, String columnName,
+			DataType dataType, Object value) {
+		Column column = new Column(tableName, columnName, dataType, 0, null,
+				value);
+		factory.initColumn(column);
+		return column.getExactValue(dataType);
+	}
+
+	// dependencies and setters
+
+	private Factory factory;
+
+	/**
+	 * Set factory initializing compared columns.
+	 *
+	 * @param factory
+	 *            Factory
+	 */
+	public void setFactory(Factory factory) {
+		this.factory = factory;
+	}
+
+}
@@ -2,18 +2,22 @@ package net.sf.lightair.internal.unitils;
 
 import java.lang.reflect.Method;
 import java.sql.SQLException;
+import java.util.Map;
 
 import net.sf.lightair.exception.DatabaseAccessException;
 import net.sf.lightair.exception.TokenAnyInSetupException;
 import net.sf.lightair.internal.dbunit.DbUnitWrapper;
+import net.sf.lightair.internal.dbunit.bulk.SnapshotStore;
 import net.sf.lightair.internal.factory.Factory;
 import net.sf.lightair.internal.unitils.compare.DataSetAssert;
 import org.dbunit.DatabaseUnitException;
 import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.FilteredDataSet;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.operation.DatabaseOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.unitils.dbunit.dataset.Schema;
 import org.unitils.dbunit.util.MultiSchemaDataSet;
 
 /**
@@ -38,23 +42,73 @@ public class UnitilsWrapper {
 				+ "and profile {} with configured file names {}.", testMethod,
 				profile, fileNames);
 		Factory.getInstance().initDataSetProcessing();
-		MultiSchemaDataSet multiSchemaDataSet = dataSetLoader.load(profile,
-				testMethod, "", fileNames);
-		final DatabaseOperation cleanInsert = factory
-				.getCleanInsertDatabaseOperation();
-		for (String schemaName : multiSchemaDataSet.getSchemaNames()) {
-			final IDataSet dataSet = multiSchemaDataSet
-					.getDataSetForSchema(schemaName);
-			final IDatabaseConnection connection = dbUnitWrapper.getConnection(
-					profile, schemaName);
-			new Template() {
-				@Override
-				void databaseOperation() throws DatabaseUnitException,
-						SQLException {
-					cleanInsert.execute(connection, dataSet);
+		changeTracker.reset(profile);
+		try {
+			if (dataSetStreamer.isEnabled(profile)) {
+				dataSetStreamer.setup(profile,
+						dataSetLoader.resolve(testMethod, "", fileNames));
+				checkTokenAny();
+				return;
+			}
+			String snapshotKey = null;
+			if (snapshotStore.isEnabled(profile)) {
+				snapshotKey = snapshotStore.getKey(profile,
+						dataSetLoader.resolve(testMethod, "", fileNames));
+				if (null != snapshotKey
+						&& snapshotStore.restore(profile, snapshotKey)) {
+					return;
 				}
-			}.execute(connection);
+			}
+			MultiSchemaDataSet multiSchemaDataSet = dataSetLoader.load(profile,
+					testMethod, "", fileNames);
+			final DatabaseOperation cleanInsert = factory
+					.getCleanInsertDatabaseOperation(profile);
+			for (String schemaName : multiSchemaDataSet.getSchemaNames()) {
+				final IDataSet dataSet = multiSchemaDataSet
+						.getDataSetForSchema(schemaName);
+				final IDatabaseConnection connection = dbUnitWrapper.getConnection(
+						profile, schemaName);
+				new Template() {
+					@Override
+					void databaseOperation() throws DatabaseUnitException,
+							SQLException {
+						cleanInsert.execute(connection, dataSet);
+					}
+				}.execute(connection);
+			}
+			checkTokenAny();
+			if (null != snapshotKey) {
+				snapshotStore.capture(profile, snapshotKey, multiSchemaDataSet);
+			}
+			if (changeTracker.isEnabled(profile)) {
+				changeTracker.track(profile, multiSchemaDataSet);
+			}
+		} finally {
+			Factory.getInstance().finishDataSetProcessing();
 		}
+	}
+
+	/**
+	 * Return names of tables of setup datasets of a test method.
+	 * 
+	 * @param testMethod
+	 *            Test method
+	 * @param profile
+	 *            Profile name
+	 * @param fileNames
+	 *            File names from @Setup annotation
+	 * @return Table names by schema name
+	 */
+	public Map<String, Map<String, String>> getSetupTableNames(
+			Method testMethod, String profile, String[] fileNames) {
+		return dataSetStreamer.getTableNames(profile,
+				dataSetLoader.resolve(testMethod, "", fileNames));
+	}
+
+	/**
+	 * Throw if <code>@any</code> token was found in setup dataset.
+	 */
+	private void checkTokenAny() {
 		if (Factory.getInstance().getDataSetProcessingData()
 				.isTokenAnyPresent()) {
 			throw new TokenAnyInSetupException();
@@ -71,28 +125,68 @@ public class UnitilsWrapper {
 	 * @param fileNames
 	 *            File names from @Setup annotation
 	 */
-	public void verify(Method testMethod, String profile, String[] fileNames) {
+	public void verify(Method testMethod, final String profile,
+			String[] fileNames) {
 		log.debug("Verifying database for test method {} "
 				+ "with configured file names {}.", testMethod, fileNames);
 		Factory.getInstance().initDataSetProcessing();
-		MultiSchemaDataSet multiSchemaDataSet = dataSetLoader.load(profile,
-				testMethod, VERIFY_FILE_NAME_SUFFIX, fileNames);
-		for (final String schemaName : multiSchemaDataSet.getSchemaNames()) {
-			final IDataSet dataSetExpected = multiSchemaDataSet
-					.getDataSetForSchema(schemaName);
-			final IDatabaseConnection connection = dbUnitWrapper.getConnection(
-					profile, schemaName);
-			new Template() {
-				@Override
-				void databaseOperation() throws DatabaseUnitException,
-						SQLException {
-                    String[] tableNames = dataSetExpected.getTableNames();
-                    IDataSet dataSetActual = connection.createDataSet(tableNames);
-                    dataSetAssert.assertEqualDbUnitDataSets(schemaName,
-                                dataSetExpected, dataSetActual);
-
-				}
-			}.execute(connection);
+		try {
+			MultiSchemaDataSet multiSchemaDataSet = dataSetLoader.load(profile,
+					testMethod, VERIFY_FILE_NAME_SUFFIX, fileNames);
+			if (parallelVerifier.isEnabled(profile)) {
+				parallelVerifier.verify(profile, multiSchemaDataSet);
+				return;
+			}
+			for (final String schemaName : multiSchemaDataSet.getSchemaNames()) {
+				final IDataSet dataSetExpected = multiSchemaDataSet
+						.getDataSetForSchema(schemaName);
+				final IDatabaseConnection connection = dbUnitWrapper.getConnection(
+						profile, schemaName);
+				new Template() {
+					@Override
+					void databaseOperation() throws DatabaseUnitException,
+							SQLException {
+						String[] tableNames = dataSetExpected.getTableNames();
+						IDataSet dataSetCompared = dataSetExpected;
+						if (changeTracker.isEnabled(profile)) {
+							tableNames = changeTracker.getTablesToCompare(
+									profile, schemaName, connection,
+									dataSetExpected);
+							if (0 == tableNames.length) {
+								return;
+							}
+							dataSetCompared = new FilteredDataSet(tableNames,
+									dataSetExpected);
+						}
+						if (sqlVerifier.isEnabled(profile)) {
+							tableNames = sqlVerifier.getTablesToCompare(
+									profile, connection, dataSetCompared);
+							if (0 == tableNames.length) {
+								return;
+							}
+							dataSetCompared = new FilteredDataSet(tableNames,
+									dataSetExpected);
+						}
+						if (fingerprintVerifier.isEnabled(profile)) {
+							tableNames = fingerprintVerifier
+									.getTablesToCompare(profile, connection,
+											dataSetExpected, tableNames);
+							if (0 == tableNames.length) {
+								return;
+							}
+							dataSetCompared = new FilteredDataSet(tableNames,
+									dataSetExpected);
+						}
+						Schema actualSchema = actualDataSetReader.read(profile,
+								schemaName, connection, dataSetExpected,
+								tableNames);
+						dataSetAssert.assertEqualDbUnitDataSets(schemaName,
+								dataSetCompared, actualSchema);
+					}
+				}.execute(connection);
+			}
+		} finally {
+			Factory.getInstance().finishDataSetProcessing();
 		}
 	}
 
@@ -136,6 +230,50 @@ public class UnitilsWrapper {
 		this.dataSetAssert = dataSetAssert;
 	}
 
+	private SnapshotStore snapshotStore;
+
+	public void setSnapshotStore(SnapshotStore snapshotStore) {
+		this.snapshotStore = snapshotStore;
+	}
+
+	private DataSetStreamer dataSetStreamer;
+
+	public void setDataSetStreamer(DataSetStreamer dataSetStreamer) {
+		this.dataSetStreamer = dataSetStreamer;
+	}
+
+	private SqlVerifier sqlVerifier;
+
+	public void setSqlVerifier(SqlVerifier sqlVerifier) {
+		this.sqlVerifier = sqlVerifier;
+	}
+
+	private FingerprintVerifier fingerprintVerifier;
+
+	public void setFingerprintVerifier(
+			FingerprintVerifier fingerprintVerifier) {
+		this.fingerprintVerifier = fingerprintVerifier;
+	}
+
+	private ChangeTracker changeTracker;
+
+	public void setChangeTracker(ChangeTracker changeTracker) {
+		this.changeTracker = changeTracker;
+	}
+
+	private ParallelVerifier parallelVerifier;
+
+	public void setParallelVerifier(ParallelVerifier parallelVerifier) {
+		this.parallelVerifier = parallelVerifier;
+	}
+
+	private ActualDataSetReader actualDataSetReader;
+
+	public void setActualDataSetReader(
+			ActualDataSetReader actualDataSetReader) {
+		this.actualDataSetReader = actualDataSetReader;
+	}
+
 	private Factory factory;
 
 	public void setFactory(Factory factory) {
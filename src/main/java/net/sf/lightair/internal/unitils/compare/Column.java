@@ -1,5 +1,6 @@
 package net.sf.lightair.internal.unitils.compare;
 
+import java.nio.ByteBuffer;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
@@ -25,6 +26,8 @@ public class Column extends org.unitils.dbunit.dataset.Column {
 	private int columnLength;
 	private Integer columnPrecision;
 	private Object value;
+	private DataType cachedType;
+	private Object cachedValue;
 
 	/**
 	 * Constructor.
@@ -57,6 +60,7 @@ public class Column extends org.unitils.dbunit.dataset.Column {
 
 	public void setValue(Object value) {
 		this.value = value;
+		cachedType = null;
 	}
 
 	public int getColumnLength() {
@@ -141,6 +145,77 @@ public class Column extends org.unitils.dbunit.dataset.Column {
 		return null;
 	}
 
+	/**
+	 * Key matching an actual value, see {@link #getMatchKey(DataType)}.
+	 */
+	public static final Object NO_KEY = new Object();
+
+	/**
+	 * Return key of this expected column value, equal to the key of an actual
+	 * value iff {@link #preCompare} would find the values matching.
+	 * 
+	 * @param actualType
+	 *            Type of actual column
+	 * @return Key comparable with {@link #getActualMatchKey(Object)} or
+	 *         {@link #NO_KEY} if the value may match actual values of different
+	 *         keys, like <code>@any</code>, <code>@auto</code>, variables and
+	 *         temporal values compared within a limit
+	 */
+	public Object getMatchKey(DataType actualType) {
+		Object castedValue = getExactValue(actualType);
+		if (NO_KEY == castedValue) {
+			return NO_KEY;
+		}
+		return getActualMatchKey(castedValue);
+	}
+
+	/**
+	 * Return this expected column value cast to the type of actual column, if
+	 * it matches only actual values equal to it.
+	 * 
+	 * @param actualType
+	 *            Type of actual column
+	 * @return Casted value or {@link #NO_KEY} if the value may match actual
+	 *         values not equal to it, see {@link #getMatchKey(DataType)}
+	 */
+	public Object getExactValue(DataType actualType) {
+		Object value = getValue();
+		if (null == value) {
+			return null;
+		}
+		if (isAny() || isAuto() || variableResolver.isVariable(value)) {
+			return NO_KEY;
+		}
+		Object castedValue;
+		try {
+			castedValue = getCachedCastedValue(actualType);
+		} catch (UnitilsException e) {
+			// let comparison report it
+			return NO_KEY;
+		}
+		if (castedValue instanceof java.util.Date && 0 != timeDifferenceLimit) {
+			return NO_KEY;
+		}
+		return castedValue;
+	}
+
+	/**
+	 * Return key of an actual column value.
+	 * 
+	 * @param actualValue
+	 *            Actual value
+	 * @return Key comparable with {@link #getMatchKey(DataType)}
+	 */
+	public static Object getActualMatchKey(Object actualValue) {
+		if (actualValue instanceof java.util.Date) {
+			return ((java.util.Date) actualValue).getTime();
+		}
+		if (actualValue instanceof byte[]) {
+			return ByteBuffer.wrap((byte[]) actualValue);
+		}
+		return actualValue;
+	}
+
 	private boolean isAny() {
 		return "@any".equals(getValue());
 	}
@@ -165,7 +240,7 @@ public class Column extends org.unitils.dbunit.dataset.Column {
 	}
 
 	private boolean isCastedValueEqual(Object expectedValue, org.unitils.dbunit.dataset.Column actualColumn) {
-		Object castedExpectedValue = getCastedValue(expectedValue, actualColumn.getType());
+		Object castedExpectedValue = getCastedValue(expectedValue, actualColumn);
 		Object actualValue = actualColumn.getValue();
 
 		if (castedExpectedValue instanceof java.util.Date) {
@@ -179,7 +254,7 @@ public class Column extends org.unitils.dbunit.dataset.Column {
 
 	private ColumnDifference createDifferenceForCasted(Object expectedValue,
 			org.unitils.dbunit.dataset.Column actualColumn) {
-		Object castedExpectedValue = getCastedValue(expectedValue, actualColumn.getType());
+		Object castedExpectedValue = getCastedValue(expectedValue, actualColumn);
 		if (castedExpectedValue instanceof byte[]) {
 			return new ColumnDifference(this, new org.unitils.dbunit.dataset.Column(actualColumn.getName(),
 					actualColumn.getType(), Base64.encodeBase64String((byte[]) actualColumn.getValue())));
@@ -200,6 +275,28 @@ public class Column extends org.unitils.dbunit.dataset.Column {
 		return difference <= timeDifferenceLimit;
 	}
 
+	/**
+	 * Return expected value cast to the type of actual column.
+	 * <p>
+	 * The value of this column is cast only once for the type of actual
+	 * columns it is compared with, which is the same in all rows of a table.
+	 */
+	private Object getCastedValue(Object expectedValue, org.unitils.dbunit.dataset.Column actualColumn) {
+		if (expectedValue == getValue()) {
+			return getCachedCastedValue(actualColumn.getType());
+		}
+		// resolved variable
+		return getCastedValue(expectedValue, actualColumn.getType());
+	}
+
+	private Object getCachedCastedValue(DataType castType) {
+		if (null == cachedType || castType != cachedType) {
+			cachedValue = getCastedValue(getValue(), castType);
+			cachedType = castType;
+		}
+		return cachedValue;
+	}
+
 	private Object getCastedValue(Object expectedValue, DataType castType) {
 		// convert java.sql.Date to SQL TIME
 		// always return midnight: 00:00:00
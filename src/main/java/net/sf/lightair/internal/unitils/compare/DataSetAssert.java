@@ -50,6 +50,26 @@ public class DataSetAssert extends org.unitils.dbunit.util.DataSetAssert {
 		assertEqualSchemas(expectedSchema, actualSchema);
 	}
 
+	/**
+	 * Asserts that the given expected DbUnit dataset is equal to the actual
+	 * schema read from the database.
+	 * 
+	 * @param schemaName
+	 *            The name of the schema that the dataset belongs to, not null
+	 * @param expectedDataSet
+	 *            The expected dataset, not null
+	 * @param actualSchema
+	 *            The actual schema with the expected tables, not null
+	 * @throws AssertionError
+	 *             When the assertion fails.
+	 */
+	public void assertEqualDbUnitDataSets(String schemaName,
+			IDataSet expectedDataSet, Schema actualSchema) {
+		Schema expectedSchema = createSchemaFactory()
+				.createSchemaForDbUnitDataSet(schemaName, expectedDataSet);
+		assertEqualSchemas(expectedSchema, actualSchema);
+	}
+
 	/**
 	 * Instantiate SchemaFactory.
 	 * 
@@ -1,5 +1,8 @@
 package net.sf.lightair.internal.unitils.compare;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import net.sf.lightair.internal.dbunit.dataset.MergingTable;
@@ -9,6 +12,7 @@ import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.ITable;
 import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
 import org.dbunit.dataset.datatype.DataType;
 import org.unitils.dbunit.dataset.Row;
 import org.unitils.dbunit.dataset.Schema;
@@ -70,13 +74,8 @@ public class SchemaFactory extends org.unitils.dbunit.dataset.SchemaFactory {
 			for (org.dbunit.dataset.Column dbUnitColumn : columns) {
 				String columnName = dbUnitColumn.getColumnName();
 				DataType columnType = dbUnitColumn.getDataType();
-				int columnLength = 0;
-				Integer columnPrecision = 0;
-				if (dbUnitColumn instanceof net.sf.lightair.internal.dbunit.dataset.Column) {
-					net.sf.lightair.internal.dbunit.dataset.Column customDbUnitColumn = (net.sf.lightair.internal.dbunit.dataset.Column) dbUnitColumn;
-					columnLength = customDbUnitColumn.getColumnLength();
-					columnPrecision = customDbUnitColumn.getColumnPrecision();
-				}
+				int columnLength = getColumnLength(dbUnitColumn);
+				Integer columnPrecision = getColumnPrecision(dbUnitColumn);
 
 				// Ignore column value when column not expected:
 				if (isColumnNotExpected(dbUnitTable, rowIndex, columnName)) {
@@ -98,6 +97,68 @@ public class SchemaFactory extends org.unitils.dbunit.dataset.SchemaFactory {
 		}
 	}
 
+	/**
+	 * Add a table with rows read from a result set.
+	 * <p>
+	 * Each value is read from the result set once, by the data type of its
+	 * column, directly into the compared table.
+	 * 
+	 * @param schema
+	 *            Schema to add the table to
+	 * @param metaData
+	 *            Table meta data with columns in the order of the result set
+	 * @param resultSet
+	 *            Result set positioned before the first row
+	 * @throws DataSetException
+	 * @throws SQLException
+	 */
+	public void addTable(Schema schema, ITableMetaData metaData,
+			ResultSet resultSet) throws DataSetException, SQLException {
+		String tableName = metaData.getTableName();
+		org.unitils.dbunit.dataset.Table table = createTable(tableName);
+		schema.addTable(table);
+
+		org.dbunit.dataset.Column[] columns = metaData.getColumns();
+		List<String> primaryKeyColumnNames = new ArrayList<String>();
+		for (org.dbunit.dataset.Column primaryKey : metaData.getPrimaryKeys()) {
+			primaryKeyColumnNames.add(primaryKey.getColumnName());
+		}
+		while (resultSet.next()) {
+			Row row = new Row();
+			table.addRow(row);
+			for (int i = 0; i < columns.length; i++) {
+				String columnName = columns[i].getColumnName();
+				DataType columnType = columns[i].getDataType();
+				org.unitils.dbunit.dataset.Column column = createColumn(
+						tableName, columnName, columnType,
+						getColumnLength(columns[i]),
+						getColumnPrecision(columns[i]),
+						columnType.getSqlValue(i + 1, resultSet));
+				if (primaryKeyColumnNames.contains(columnName)) {
+					row.addPrimaryKeyColumn(column);
+				} else {
+					row.addColumn(column);
+				}
+			}
+		}
+	}
+
+	private int getColumnLength(org.dbunit.dataset.Column dbUnitColumn) {
+		if (dbUnitColumn instanceof net.sf.lightair.internal.dbunit.dataset.Column) {
+			return ((net.sf.lightair.internal.dbunit.dataset.Column) dbUnitColumn)
+					.getColumnLength();
+		}
+		return 0;
+	}
+
+	private Integer getColumnPrecision(org.dbunit.dataset.Column dbUnitColumn) {
+		if (dbUnitColumn instanceof net.sf.lightair.internal.dbunit.dataset.Column) {
+			return ((net.sf.lightair.internal.dbunit.dataset.Column) dbUnitColumn)
+					.getColumnPrecision();
+		}
+		return 0;
+	}
+
 	/**
 	 * Is the column not specified in the expected dataset on the row?
 	 * 
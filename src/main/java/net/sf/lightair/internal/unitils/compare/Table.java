@@ -2,8 +2,14 @@ package net.sf.lightair.internal.unitils.compare;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import org.dbunit.dataset.datatype.DataType;
 import org.unitils.dbunit.dataset.Row;
 import org.unitils.dbunit.dataset.comparison.RowDifference;
 
@@ -59,22 +65,156 @@ public class Table extends org.unitils.dbunit.dataset.Table {
 
 	// Extracted to re-implement the row matching algorithm
 
+	/**
+	 * Match actual rows to expected rows.
+	 * <p>
+	 * Rows whose values are equal in all expected columns are matched first by
+	 * their keys, see {@link Column#getMatchKey(DataType)}. Rows left are
+	 * matched to the best matching rows by the number of matching columns.
+	 * 
+	 * @param actualTable
+	 *            Actual table
+	 * @param result
+	 *            Table difference to add differences to
+	 */
 	protected void compareRows(org.unitils.dbunit.dataset.Table actualTable,
 			TableDifference result) {
+		List<Row> expectedRows = getRows();
+		List<Row> actualRows = actualTable.getRows();
+		boolean[] matchedExpected = new boolean[expectedRows.size()];
+		boolean[] matchedActual = new boolean[actualRows.size()];
+		matchByKeys(expectedRows, actualRows, matchedExpected, matchedActual);
+
+		List<IndexedRow> allExpectedRows = new ArrayList<IndexedRow>();
+		List<IndexedRow> leftExpectedRows = new ArrayList<IndexedRow>();
+		for (int i = 0; i < expectedRows.size(); i++) {
+			IndexedRow expectedRow = new IndexedRow(expectedRows.get(i), i);
+			allExpectedRows.add(expectedRow);
+			if (!matchedExpected[i]) {
+				leftExpectedRows.add(expectedRow);
+			}
+		}
+		List<IndexedRow> leftActualRows = new ArrayList<IndexedRow>();
+		for (int i = 0; i < actualRows.size(); i++) {
+			if (!matchedActual[i]) {
+				leftActualRows.add(new IndexedRow(actualRows.get(i), i));
+			}
+		}
+		if (leftActualRows.isEmpty() && !actualRows.isEmpty()) {
+			// resolve @auto values of rows reported missing
+			for (IndexedRow expectedRow : leftExpectedRows) {
+				new RowComparison(expectedRow.row, actualRows.get(0), 0,
+						expectedRow.index);
+			}
+		}
+		compareRows(allExpectedRows, leftExpectedRows, leftActualRows, result);
+	}
+
+	/**
+	 * Match rows equal in all expected columns, each actual row in table order
+	 * to the first expected row of the same key not matched yet.
+	 */
+	private void matchByKeys(List<Row> expectedRows, List<Row> actualRows,
+			boolean[] matchedExpected, boolean[] matchedActual) {
+		if (expectedRows.isEmpty() || actualRows.isEmpty()) {
+			return;
+		}
+		Row typeRow = actualRows.get(0);
+		Map<List<String>, Map<List<Object>, LinkedList<Integer>>> keys = new LinkedHashMap<List<String>, Map<List<Object>, LinkedList<Integer>>>();
+		for (int i = 0; i < expectedRows.size(); i++) {
+			List<org.unitils.dbunit.dataset.Column> columns = getColumns(expectedRows
+					.get(i));
+			List<String> columnNames = new ArrayList<String>(columns.size());
+			List<Object> key = new ArrayList<Object>(columns.size());
+			for (org.unitils.dbunit.dataset.Column column : columns) {
+				org.unitils.dbunit.dataset.Column typeColumn = typeRow
+						.getColumn(column.getName());
+				Object value = null == typeColumn ? Column.NO_KEY
+						: ((Column) column).getMatchKey(typeColumn.getType());
+				if (Column.NO_KEY == value) {
+					key = null;
+					break;
+				}
+				columnNames.add(column.getName());
+				key.add(value);
+			}
+			if (null == key) {
+				continue;
+			}
+			Map<List<Object>, LinkedList<Integer>> rowsByKey = keys
+					.get(columnNames);
+			if (null == rowsByKey) {
+				rowsByKey = new HashMap<List<Object>, LinkedList<Integer>>();
+				keys.put(columnNames, rowsByKey);
+			}
+			LinkedList<Integer> rows = rowsByKey.get(key);
+			if (null == rows) {
+				rows = new LinkedList<Integer>();
+				rowsByKey.put(key, rows);
+			}
+			rows.add(i);
+		}
+		for (int i = 0; i < actualRows.size(); i++) {
+			LinkedList<Integer> bestRows = null;
+			for (Map.Entry<List<String>, Map<List<Object>, LinkedList<Integer>>> entry : keys
+					.entrySet()) {
+				List<Object> key = getActualKey(actualRows.get(i),
+						entry.getKey());
+				LinkedList<Integer> rows = null == key ? null : entry
+						.getValue().get(key);
+				if (null != rows && !rows.isEmpty()
+						&& (null == bestRows || rows.getFirst() < bestRows
+								.getFirst())) {
+					bestRows = rows;
+				}
+			}
+			if (null != bestRows) {
+				matchedExpected[bestRows.removeFirst()] = true;
+				matchedActual[i] = true;
+			}
+		}
+	}
+
+	private List<org.unitils.dbunit.dataset.Column> getColumns(Row row) {
+		List<org.unitils.dbunit.dataset.Column> columns = new ArrayList<org.unitils.dbunit.dataset.Column>(
+				row.getPrimaryKeyColumns());
+		columns.addAll(row.getColumns());
+		return columns;
+	}
+
+	private List<Object> getActualKey(Row actualRow, List<String> columnNames) {
+		List<Object> key = new ArrayList<Object>(columnNames.size());
+		for (String columnName : columnNames) {
+			org.unitils.dbunit.dataset.Column column = actualRow
+					.getColumn(columnName);
+			if (null == column) {
+				return null;
+			}
+			key.add(Column.getActualMatchKey(column.getValue()));
+		}
+		return key;
+	}
+
+	/**
+	 * Match rows left to the best matching rows left, starting with the actual
+	 * rows matching their best rows of the whole table in most columns.
+	 */
+	private void compareRows(List<IndexedRow> allExpectedRows,
+			List<IndexedRow> expectedRows, List<IndexedRow> actualRows,
+			TableDifference result) {
 		List<RowComparison> rowComparisons = new ArrayList<RowComparison>();
-		int actualRowIndex = 0;
-		for (Row actualRow : actualTable.getRows()) {
-			RowComparison bestRowComparison = findBestRowComparison(actualRow,
-					actualRowIndex, getRows());
+		for (IndexedRow actualRow : actualRows) {
+			RowComparison bestRowComparison = findBestRowComparison(
+					actualRow.row, actualRow.index, allExpectedRows);
 			rowComparisons.add(bestRowComparison);
-			actualRowIndex++;
 		}
 		Collections.sort(rowComparisons, new RowComparisonComparator());
 		List<Row> sortedActualRows = new ArrayList<Row>();
 		for (RowComparison rowComparison : rowComparisons) {
 			sortedActualRows.add(rowComparison.getActualRow());
 		}
-		List<Row> unmatchedExpectedRows = new ArrayList<Row>(getRows());
+		List<IndexedRow> unmatchedExpectedRows = new ArrayList<IndexedRow>(
+				expectedRows);
 		for (Row actualRow : sortedActualRows) {
 			if (unmatchedExpectedRows.isEmpty()) {
 				result.addUnexpectedRow(actualRow);
@@ -83,25 +223,29 @@ public class Table extends org.unitils.dbunit.dataset.Table {
 			RowComparison bestRowComparison = findBestRowComparison(actualRow,
 					0, unmatchedExpectedRows);
 			Row matchedExpectedRow = bestRowComparison.getExpectedRow();
-			unmatchedExpectedRows.remove(matchedExpectedRow);
+			for (Iterator<IndexedRow> i = unmatchedExpectedRows.iterator(); i
+					.hasNext();) {
+				if (i.next().row == matchedExpectedRow) {
+					i.remove();
+					break;
+				}
+			}
 			RowDifference rowDifference = matchedExpectedRow.compare(actualRow);
 			if (null != rowDifference) {
 				result.setBestRowDifference(rowDifference);
 			}
 		}
-		for (Row row : unmatchedExpectedRows) {
-			result.addMissingRow(row);
+		for (IndexedRow row : unmatchedExpectedRows) {
+			result.addMissingRow(row.row);
 		}
 	}
 
 	private RowComparison findBestRowComparison(Row actualRow,
-			int actualRowIndex, List<Row> expectedRows) {
+			int actualRowIndex, List<IndexedRow> expectedRows) {
 		RowComparison bestRowComparison = null;
-		int rowId = -1;
-		for (Row expectedRow : expectedRows) {
-			rowId++;
-			RowComparison rowComparison = new RowComparison(expectedRow,
-					actualRow, actualRowIndex, rowId);
+		for (IndexedRow expectedRow : expectedRows) {
+			RowComparison rowComparison = new RowComparison(expectedRow.row,
+					actualRow, actualRowIndex, expectedRow.index);
 			if (null == bestRowComparison
 					|| bestRowComparison.isBetterMatch(rowComparison)) {
 				bestRowComparison = rowComparison;
@@ -110,4 +254,17 @@ public class Table extends org.unitils.dbunit.dataset.Table {
 		return bestRowComparison;
 	}
 
+	/**
+	 * Row with its index in table.
+	 */
+	private static class IndexedRow {
+		private final Row row;
+		private final int index;
+
+		private IndexedRow(Row row, int index) {
+			this.row = row;
+			this.index = index;
+		}
+	}
+
 }
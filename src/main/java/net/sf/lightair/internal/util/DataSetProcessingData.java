@@ -1,5 +1,9 @@
 package net.sf.lightair.internal.util;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Collects data during processing of a data set.
  */
@@ -15,4 +19,27 @@ public class DataSetProcessingData {
 		this.tokenAnyPresent = true;
 	}
 
+	private final Map<String, Boolean> tableSetupDecisions = new LinkedHashMap<String, Boolean>();
+
+	/**
+	 * Record whether setup of a table was skipped.
+	 * 
+	 * @param tableName
+	 *            Table name qualified by schema
+	 * @param skipped
+	 *            true if table content already matched the dataset
+	 */
+	public void addTableSetupDecision(String tableName, boolean skipped) {
+		tableSetupDecisions.put(tableName, skipped);
+	}
+
+	/**
+	 * Return setup decisions by table in the order of setup.
+	 * 
+	 * @return Map of qualified table name to true if setup was skipped
+	 */
+	public Map<String, Boolean> getTableSetupDecisions() {
+		return Collections.unmodifiableMap(tableSetupDecisions);
+	}
+
 }
@@ -2,15 +2,23 @@ package net.sf.lightair.internal.util;
 
 import java.lang.reflect.Method;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import net.sf.lightair.exception.DataSetNotFoundException;
 
 /**
  * Resolves dataset files by their file names relative to the class declaring
  * the test method.
+ * <p>
+ * Resolutions are cached per class and file name, including files that do not
+ * exist, so that each file is looked up on the classpath only once.
  */
 public class DataSetResolver {
 
+	private final Map<Class<?>, Map<String, URL>> cache = new WeakHashMap<Class<?>, Map<String, URL>>();
+
 	/**
 	 * Resolve a file by its name relative to a class declaring the test method.
 	 * 
@@ -42,12 +50,41 @@ public class DataSetResolver {
 	 */
 	public URL resolveIfExists(Method testMethod, String fileName) {
 		Class<?> testClass = testMethod.getDeclaringClass();
-		URL url = testClass.getResource(fileName);
+		synchronized (cache) {
+			Map<String, URL> resolved = cache.get(testClass);
+			if (null == resolved) {
+				resolved = new HashMap<String, URL>();
+				cache.put(testClass, resolved);
+			}
+			if (resolved.containsKey(fileName)) {
+				return resolved.get(fileName);
+			}
+			URL url = getResource(testClass, fileName);
+			resolved.put(fileName, url);
+			return url;
+		}
+	}
 
-		if (null == url) {
-			return null;
+	/**
+	 * Look up a file on the classpath.
+	 * 
+	 * @param testClass
+	 *            Class declaring the test method
+	 * @param fileName
+	 *            File name to resolve
+	 * @return Resolved file or null if no such file exists
+	 */
+	protected URL getResource(Class<?> testClass, String fileName) {
+		return testClass.getResource(fileName);
+	}
+
+	/**
+	 * Forget all cached resolutions.
+	 */
+	public void clearCache() {
+		synchronized (cache) {
+			cache.clear();
 		}
-		return url;
 	}
 
 }
@@ -5,6 +5,7 @@ import java.util.regex.Pattern;
 import net.sf.lightair.exception.InvalidDurationFormatException;
 
 import org.joda.time.DateTime;
+import org.joda.time.Period;
 
 /**
  * Parse duration in ISO 8601 format and move a {@link DateTime} instance by the
@@ -12,6 +13,9 @@ import org.joda.time.DateTime;
  */
 public class DurationParser {
 
+	private static final Pattern PATTERN = Pattern
+			.compile("[+-]P((\\d)+Y)?((\\d)+M)?((\\d)+D)?(T((\\d)+H)?((\\d)+M)?((\\d)+S)?)?");
+
 	/**
 	 * Parses duration in ISO 8601 format and moves the given {@link DateTime}
 	 * instance by the duration parsed.
@@ -32,36 +36,46 @@ public class DurationParser {
 	 * @return
 	 */
 	public DateTime move(DateTime from, String duration) {
-		final Pattern pattern = Pattern
-				.compile("[+-]P((\\d)+Y)?((\\d)+M)?((\\d)+D)?(T((\\d)+H)?((\\d)+M)?((\\d)+S)?)?");
-		if (null == duration || !pattern.matcher(duration).matches()) {
+		return from.plus(parse(duration));
+	}
+
+	/**
+	 * Parses duration in ISO 8601 format, see
+	 * {@link #move(DateTime, String)}.
+	 * 
+	 * @param duration
+	 *            ISO 8601 duration
+	 * @return Period with signed fields of the duration
+	 */
+	public Period parse(String duration) {
+		if (null == duration || !PATTERN.matcher(duration).matches()) {
 			throw new InvalidDurationFormatException(duration);
 		}
-		DateTime result = from;
+		int years = 0, months = 0, days = 0, hours = 0, minutes = 0, seconds = 0;
 		DurationFieldParser fieldParser = new DurationFieldParser(duration);
 		while (fieldParser.parseField()) {
 			switch (fieldParser.field) {
 			case 'Y':
-				result = result.plusYears(fieldParser.value);
+				years = fieldParser.value;
 				break;
 			case 'M':
-				result = result.plusMonths(fieldParser.value);
+				months = fieldParser.value;
 				break;
 			case 'D':
-				result = result.plusDays(fieldParser.value);
+				days = fieldParser.value;
 				break;
 			case 'h':
-				result = result.plusHours(fieldParser.value);
+				hours = fieldParser.value;
 				break;
 			case 'm':
-				result = result.plusMinutes(fieldParser.value);
+				minutes = fieldParser.value;
 				break;
 			case 's':
-				result = result.plusSeconds(fieldParser.value);
+				seconds = fieldParser.value;
 				break;
 			}
 		}
-		return result;
+		return new Period(years, months, 0, days, hours, minutes, seconds, 0);
 	}
 
 	private class DurationFieldParser {
@@ -2,8 +2,11 @@ package org.dbunit.operation;
 
 import java.sql.SQLException;
 import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
 
 import net.sf.lightair.internal.dbunit.AutoPreparedBatchStatement;
+import net.sf.lightair.internal.dbunit.dataset.MergingTable;
 
 import org.dbunit.DatabaseUnitException;
 import org.dbunit.database.DatabaseConfig;
@@ -21,6 +24,20 @@ import org.dbunit.dataset.datatype.TypeCastException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Insert operation supporting <code>@auto</code> values and columns missing
+ * on some rows.
+ * <p>
+ * Rows are grouped by their column signature, i.e. by the set of columns
+ * having a value on the row. Each signature gets its insert SQL built and its
+ * statement prepared only once per table. Rows are added to the statement
+ * batch, which is executed whenever the signature changes (so that rows are
+ * inserted in the order of the dataset) and at the end of the table.
+ * <p>
+ * The statement factory executes the batch automatically in chunks of DbUnit
+ * <code>batchSize</code> property (<code>dbunit.properties.batchSize</code>
+ * in Light air properties).
+ */
 public class AutoInsertOperation extends InsertOperation {
 
 	private final Logger logger = LoggerFactory
@@ -56,9 +73,13 @@ public class AutoInsertOperation extends InsertOperation {
 
 			ITableMetaData metaData = getOperationMetaData(connection,
 					table.getTableMetaData());
-			BitSet ignoreMapping = null;
-			OperationData operationData = null;
+			Column[] columns = metaData.getColumns();
+
+			// Light Air Start >>>>>>
+			Map<BitSet, IPreparedBatchStatement> statements = new HashMap<BitSet, IPreparedBatchStatement>();
+			BitSet currentSignature = null;
 			IPreparedBatchStatement statement = null;
+			// Light Air End <<<<<<
 
 			try {
 				// For each row
@@ -71,56 +92,29 @@ public class AutoInsertOperation extends InsertOperation {
 
 						// Light Air Start >>>>>>
 
-						// Execute and close previous statement
-						if (statement != null) {
-							statement.executeBatch();
-							statement.clearBatch();
-							statement.close();
-						}
+						Object[] values = getRowValues(table, columns, row);
+						BitSet signature = getSignature(values);
 
-						ignoreMapping = getIgnoreMapping(table, row);
-						operationData = getOperationData(metaData,
-								ignoreMapping, connection, table, row);
-						statement = factory.createPreparedBatchStatement(
-								operationData.getSql(), connection);
-
-						// for each column
-						Column[] columns = operationData.getColumns();
-						for (int j = 0; j < columns.length; j++) {
-							// Bind value only if not in ignore mapping
-							if (!ignoreMapping.get(j)) {
-								Column column = columns[j];
-								final Object value = table.getValue(row,
-										column.getColumnName());
-								if (null != value) {
-									try {
-
-										net.sf.lightair.internal.dbunit.dataset.Column dbUnitColumn = (net.sf.lightair.internal.dbunit.dataset.Column) column;
-
-										int columnLength = dbUnitColumn
-												.getColumnLength();
-										Integer columnPrecision = dbUnitColumn
-												.getColumnPrecision();
-
-										AutoPreparedBatchStatement autoPreparedBatchStatement = (AutoPreparedBatchStatement) statement;
-										autoPreparedBatchStatement.addValue(
-												value, column.getDataType(),
-												tableName,
-												column.getColumnName(),
-												columnLength, columnPrecision,
-												row);
-									} catch (TypeCastException e) {
-										throw new TypeCastException(
-												"Error casting value for table '"
-														+ table.getTableMetaData()
-																.getTableName()
-														+ "' and column '"
-														+ column.getColumnName()
-														+ "'", e);
-									}
-								}
+						if (!signature.equals(currentSignature)) {
+							// Execute rows of previous signature to keep order
+							if (statement != null) {
+								statement.executeBatch();
+								statement.clearBatch();
 							}
+							statement = statements.get(signature);
+							if (statement == null) {
+								String sql = getInsertSql(metaData, signature,
+										connection);
+								statement = factory
+										.createPreparedBatchStatement(sql,
+												connection);
+								statements.put(signature, statement);
+							}
+							currentSignature = signature;
 						}
+
+						bindRow((AutoPreparedBatchStatement) statement, table,
+								columns, values, signature, row);
 						statement.addBatch();
 					}
 					// Light Air End <<<<<<
@@ -131,29 +125,170 @@ public class AutoInsertOperation extends InsertOperation {
 					// end of table
 				}
 
-				statement.executeBatch();
-				statement.clearBatch();
+				if (statement != null) {
+					statement.executeBatch();
+					statement.clearBatch();
+				}
 			} catch (SQLException e) {
 				final String msg = "Exception processing table name='"
 						+ tableName + "'";
 				throw new DatabaseUnitException(msg, e);
 			} finally {
-				if (statement != null) {
-					statement.close();
+				// Light Air Start >>>>>>
+				for (IPreparedBatchStatement cached : statements.values()) {
+					cached.close();
+				}
+				// Light Air End <<<<<<
+			}
+		}
+	}
+
+	// Light Air Start >>>>>>
+
+	/**
+	 * Bind values of columns in signature of a row to statement.
+	 * 
+	 * @param statement
+	 *            Statement
+	 * @param table
+	 *            Dataset table
+	 * @param columns
+	 *            Operation columns
+	 * @param values
+	 *            Row values
+	 * @param signature
+	 *            Row column signature
+	 * @param row
+	 *            Row index, used to generate <code>@auto</code> values
+	 */
+	protected void bindRow(AutoPreparedBatchStatement statement, ITable table,
+			Column[] columns, Object[] values, BitSet signature, int row)
+			throws SQLException, TypeCastException {
+		String tableName = table.getTableMetaData().getTableName();
+		// for each column
+		for (int j = 0; j < columns.length; j++) {
+			// Bind value only if the column is in signature
+			if (signature.get(j)) {
+				Column column = columns[j];
+				try {
+
+					net.sf.lightair.internal.dbunit.dataset.Column dbUnitColumn = (net.sf.lightair.internal.dbunit.dataset.Column) column;
+
+					int columnLength = dbUnitColumn.getColumnLength();
+					Integer columnPrecision = dbUnitColumn.getColumnPrecision();
+
+					statement.addValue(values[j], column.getDataType(),
+							tableName, column.getColumnName(), columnLength,
+							columnPrecision, getRowId(table, row));
+				} catch (TypeCastException e) {
+					throw new TypeCastException(
+							"Error casting value for table '" + tableName
+									+ "' and column '"
+									+ column.getColumnName() + "'", e);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Return id of a row in the whole dataset table.
+	 * 
+	 * @param table
+	 *            Dataset table, possibly a part of a streamed table
+	 * @param row
+	 *            Row index in the table
+	 * @return Row id
+	 */
+	protected int getRowId(ITable table, int row) {
+		if (table instanceof MergingTable) {
+			return ((MergingTable) table).getFirstRowId() + row;
+		}
+		return row;
+	}
+
+	/**
+	 * Read values of all operation columns on a row.
+	 * 
+	 * @param table
+	 *            Dataset table
+	 * @param columns
+	 *            Operation columns
+	 * @param row
+	 *            Row index
+	 * @return Row values in the order of columns
+	 * @throws DataSetException
+	 *             When the row does not exist, signaling end of table
+	 */
+	protected Object[] getRowValues(ITable table, Column[] columns, int row)
+			throws DataSetException {
+		Object[] values = new Object[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			values[i] = table.getValue(row, columns[i].getColumnName());
+		}
+		return values;
+	}
+
+	/**
+	 * Return column signature of a row.
+	 * <p>
+	 * The signature has a bit set for each column with a value to be inserted,
+	 * i.e. neither <code>null</code>, nor {@link ITable#NO_VALUE}.
+	 * 
+	 * @param values
+	 *            Row values
+	 * @return Column signature
+	 */
+	protected BitSet getSignature(Object[] values) {
+		BitSet signature = new BitSet(values.length);
+		for (int i = 0; i < values.length; i++) {
+			if (null != values[i] && ITable.NO_VALUE != values[i]) {
+				signature.set(i);
+			}
+		}
+		return signature;
+	}
+
+	// Light Air End <<<<<<
+
 	// copy & paste from InsertOperation:
 
-	public OperationData getOperationData(ITableMetaData metaData,
-			BitSet ignoreMapping, IDatabaseConnection connection, ITable table,
-			int row) throws DataSetException {
+	/**
+	 * Build insert SQL for columns in signature.
+	 * 
+	 * @param metaData
+	 *            Operation meta data
+	 * @param signature
+	 *            Column signature
+	 * @param connection
+	 *            Connection
+	 * @return Insert SQL
+	 */
+	public String getInsertSql(ITableMetaData metaData, BitSet signature,
+			IDatabaseConnection connection) throws DataSetException {
+		return getInsertSql(metaData, signature, connection, 1);
+	}
+
+	/**
+	 * Build insert SQL for columns in signature inserting a number of rows in
+	 * a single <code>values</code> clause.
+	 * 
+	 * @param metaData
+	 *            Operation meta data
+	 * @param signature
+	 *            Column signature
+	 * @param connection
+	 *            Connection
+	 * @param rowCount
+	 *            Number of rows in the <code>values</code> clause
+	 * @return Insert SQL
+	 */
+	public String getInsertSql(ITableMetaData metaData, BitSet signature,
+			IDatabaseConnection connection, int rowCount)
+			throws DataSetException {
 		if (logger.isDebugEnabled()) {
 			logger.debug(
-					"getOperationData(metaData={}, ignoreMapping={}, connection={}) - start",
-					new Object[] { metaData, ignoreMapping, connection });
+					"getInsertSql(metaData={}, signature={}, connection={}, rowCount={}) - start",
+					new Object[] { metaData, signature, connection, rowCount });
 		}
 
 		Column[] columns = metaData.getColumns();
@@ -169,39 +304,37 @@ public class AutoInsertOperation extends InsertOperation {
 		String columnSeparator = "";
 		for (int i = 0; i < columns.length; i++) {
 			// Light Air Start >>>>>>
-			final Object value = table
-					.getValue(row, columns[i].getColumnName());
-			if (null != value) {
+			if (signature.get(i)) {
 				// Light Air End <<<<<<
-				if (!ignoreMapping.get(i)) {
-					// escape column name
-					String columnName = getQualifiedName(null,
-							columns[i].getColumnName(), connection);
-					sqlBuffer.append(columnSeparator);
-					sqlBuffer.append(columnName);
-					columnSeparator = ", ";
-				}
+				// escape column name
+				String columnName = getQualifiedName(null,
+						columns[i].getColumnName(), connection);
+				sqlBuffer.append(columnSeparator);
+				sqlBuffer.append(columnName);
+				columnSeparator = ", ";
 			}
 		}
 
 		// values
-		sqlBuffer.append(") values (");
-		String valueSeparator = "";
-		for (int i = 0; i < columns.length; i++) {
-			// Light Air Start >>>>>>
-			final Object value = table
-					.getValue(row, columns[i].getColumnName());
-			if (null != value) {
-				// Light Air End <<<<<<
-				if (!ignoreMapping.get(i)) {
+		sqlBuffer.append(") values ");
+		// Light Air Start >>>>>>
+		for (int row = 0; row < rowCount; row++) {
+			if (row > 0) {
+				sqlBuffer.append(", ");
+			}
+			sqlBuffer.append("(");
+			String valueSeparator = "";
+			for (int i = 0; i < columns.length; i++) {
+				if (signature.get(i)) {
 					sqlBuffer.append(valueSeparator);
 					sqlBuffer.append("?");
 					valueSeparator = ", ";
 				}
 			}
+			sqlBuffer.append(")");
 		}
-		sqlBuffer.append(")");
+		// Light Air End <<<<<<
 
-		return new OperationData(sqlBuffer.toString(), columns);
+		return sqlBuffer.toString();
 	}
 }
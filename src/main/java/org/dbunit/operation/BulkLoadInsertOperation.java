@@ -0,0 +1,229 @@
+package org.dbunit.operation;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Time;
+
+import net.sf.lightair.internal.dbunit.bulk.BulkLoader;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Insert operation loading tables by a native bulk load facility of the
+ * database.
+ * <p>
+ * Each table is written to a temporary CSV file, which is then loaded by the
+ * {@link BulkLoader} of the database. Tables the loader cannot express are
+ * inserted by {@link AutoInsertOperation}. These are tables containing
+ * <code>@auto</code> values, rows with missing or <code>null</code> values
+ * (which must be left to column defaults) or values without an exact textual
+ * representation, such as binary data or times with milliseconds.
+ */
+public class BulkLoadInsertOperation extends AutoInsertOperation {
+
+	private final Logger logger = LoggerFactory
+			.getLogger(BulkLoadInsertOperation.class);
+
+	@Override
+	public void execute(IDatabaseConnection connection, IDataSet dataSet)
+			throws DatabaseUnitException, SQLException {
+		logger.debug("execute(connection={}, dataSet={}) - start", connection,
+				dataSet);
+
+		BulkLoader loader = BulkLoader.forConnection(connection
+				.getConnection());
+		if (null == loader) {
+			logger.debug("Bulk load not supported by database, "
+					+ "using batch insert.");
+			super.execute(connection, dataSet);
+			return;
+		}
+
+		ITableIterator iterator = iterator(dataSet);
+		while (iterator.next()) {
+			ITable table = iterator.getTable();
+			String tableName = table.getTableMetaData().getTableName();
+
+			// Do not process empty table
+			if (isEmpty(table)) {
+				continue;
+			}
+
+			ITableMetaData metaData = getOperationMetaData(connection,
+					table.getTableMetaData());
+
+			File file = createTempFile(tableName);
+			try {
+				if (writeCsv(file, table, metaData, loader.isHeaderRequired())) {
+					logger.debug("Bulk loading table {}.", tableName);
+					loader.load(connection.getConnection(),
+							connection.getSchema(), metaData,
+							getInsertTarget(metaData, connection), file);
+				} else {
+					logger.debug("Table {} cannot be bulk loaded, "
+							+ "using batch insert.", tableName);
+					super.execute(connection, new DefaultDataSet(table));
+				}
+			} catch (SQLException e) {
+				final String msg = "Exception processing table name='"
+						+ tableName + "'";
+				throw new DatabaseUnitException(msg, e);
+			} finally {
+				if (!file.delete()) {
+					logger.warn("Cannot delete temporary file {}.", file);
+				}
+			}
+		}
+	}
+
+	private File createTempFile(String tableName) throws DatabaseUnitException {
+		try {
+			return File.createTempFile("lightair", ".csv");
+		} catch (IOException e) {
+			throw new DatabaseUnitException(
+					"Cannot create temporary file for table name='"
+							+ tableName + "'", e);
+		}
+	}
+
+	/**
+	 * Write table into CSV file.
+	 * 
+	 * @param file
+	 *            CSV file
+	 * @param table
+	 *            Dataset table
+	 * @param metaData
+	 *            Operation meta data
+	 * @param header
+	 *            Whether to write header row
+	 * @return true if the whole table was written, false if it contains a
+	 *         value that cannot be bulk loaded
+	 */
+	protected boolean writeCsv(File file, ITable table,
+			ITableMetaData metaData, boolean header)
+			throws DataSetException {
+		String tableName = metaData.getTableName();
+		Column[] columns = metaData.getColumns();
+		try {
+			Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+					"UTF-8");
+			try {
+				if (header) {
+					String[] names = new String[columns.length];
+					for (int i = 0; i < columns.length; i++) {
+						names[i] = columns[i].getColumnName();
+					}
+					BulkLoader.writeRow(writer, names);
+				}
+				try {
+					for (int row = 0;; row++) {
+						Object[] values = getRowValues(table, columns, row);
+						String[] fields = getFields(columns, values);
+						if (null == fields) {
+							return false;
+						}
+						BulkLoader.writeRow(writer, fields);
+					}
+				} catch (RowOutOfBoundsException e) {
+					// end of table
+				}
+				return true;
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			throw new DataSetException("Cannot write table name='"
+					+ tableName + "' to file " + file, e);
+		}
+	}
+
+	/**
+	 * Convert row values to CSV fields.
+	 * 
+	 * @param columns
+	 *            Operation columns
+	 * @param values
+	 *            Row values
+	 * @return CSV fields or <code>null</code> if any value cannot be bulk
+	 *         loaded
+	 */
+	protected String[] getFields(Column[] columns, Object[] values) {
+		if (getSignature(values).cardinality() != columns.length) {
+			return null;
+		}
+		String[] fields = new String[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			if ("@auto".equals(values[i])) {
+				return null;
+			}
+			Object value;
+			try {
+				value = columns[i].getDataType().typeCast(values[i]);
+			} catch (TypeCastException e) {
+				// let batch insert report the error
+				return null;
+			}
+			if (value instanceof Time && ((Time) value).getTime() % 1000 != 0) {
+				// text form of time has no milliseconds
+				return null;
+			}
+			if (value instanceof BigDecimal) {
+				fields[i] = ((BigDecimal) value).toPlainString();
+			} else if (value instanceof String || value instanceof Number
+					|| value instanceof Boolean
+					|| value instanceof java.util.Date) {
+				fields[i] = value.toString();
+			} else {
+				return null;
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Return qualified table name followed by parenthesized list of qualified
+	 * column names of a table, as passed to {@link BulkLoader}.
+	 * 
+	 * @param metaData
+	 *            Operation meta data of the table
+	 * @param connection
+	 *            Connection
+	 * @return Insert target
+	 * @throws DataSetException
+	 */
+	public String getInsertTarget(ITableMetaData metaData,
+			IDatabaseConnection connection) throws DataSetException {
+		StringBuilder target = new StringBuilder();
+		target.append(getQualifiedName(connection.getSchema(),
+				metaData.getTableName(), connection));
+		target.append(" (");
+		Column[] columns = metaData.getColumns();
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				target.append(", ");
+			}
+			target.append(getQualifiedName(null, columns[i].getColumnName(),
+					connection));
+		}
+		return target.append(")").toString();
+	}
+
+}
@@ -0,0 +1,319 @@
+package org.dbunit.operation;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.lightair.internal.dbunit.util.Fingerprint;
+import net.sf.lightair.internal.dbunit.util.ForeignKeys;
+import net.sf.lightair.internal.factory.Factory;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Operation skipping tables whose content already matches the dataset.
+ * <p>
+ * For each table, the number of rows in the database is compared with the
+ * dataset first. When equal, a {@link Fingerprint} of the database rows is
+ * compared with a fingerprint of the dataset rows cast to the column data
+ * types. Only tables that differ are passed to the wrapped operation.
+ * <p>
+ * The fingerprint is computed on the client, as a hash computed by the
+ * database could not be reproduced from dataset values portably. Rows are read
+ * only when the row count matches, so no more rows are read than the dataset
+ * would insert.
+ * <p>
+ * A table always differs if any of its values is <code>@auto</code>, or if a
+ * value is missing for a column with a default value, because the value the
+ * database would insert is not known in advance. A skipped table referencing a
+ * table that differs is not skipped either, so that the referenced table can
+ * be cleaned.
+ * <p>
+ * Decisions are recorded in the data set processing data.
+ */
+public class ChecksumSkipOperation extends AbstractOperation {
+
+	private final Logger logger = LoggerFactory
+			.getLogger(ChecksumSkipOperation.class);
+
+	private final DatabaseOperation operation;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param operation
+	 *            Operation to execute on tables that differ
+	 */
+	public ChecksumSkipOperation(DatabaseOperation operation) {
+		this.operation = operation;
+	}
+
+	@Override
+	public void execute(IDatabaseConnection connection, IDataSet dataSet)
+			throws DatabaseUnitException, SQLException {
+		logger.debug("execute(connection={}, dataSet={}) - start", connection,
+				dataSet);
+
+		IDataSet databaseDataSet = connection.createDataSet();
+		Map<String, ITable> tables = new LinkedHashMap<String, ITable>();
+		Set<String> changed = new HashSet<String>();
+		ITableIterator iterator = dataSet.iterator();
+		while (iterator.next()) {
+			ITable table = iterator.getTable();
+			String tableName = table.getTableMetaData().getTableName();
+			tables.put(tableName, table);
+			if (!isUnchanged(connection, databaseDataSet, table)) {
+				changed.add(tableName);
+			}
+		}
+		addReferencingTables(connection, databaseDataSet, tables, changed);
+
+		String schema = connection.getSchema();
+		List<ITable> changedTables = new ArrayList<ITable>();
+		for (Map.Entry<String, ITable> entry : tables.entrySet()) {
+			boolean skipped = !changed.contains(entry.getKey());
+			factory.getDataSetProcessingData().addTableSetupDecision(
+					schema + "." + entry.getKey(), skipped);
+			if (!skipped) {
+				changedTables.add(entry.getValue());
+			}
+		}
+		if (!changedTables.isEmpty()) {
+			operation.execute(connection, new DefaultDataSet(
+					changedTables.toArray(new ITable[changedTables.size()])));
+		}
+	}
+
+	/**
+	 * Mark unchanged tables referencing a changed table as changed, until no
+	 * such table remains.
+	 */
+	private void addReferencingTables(IDatabaseConnection connection,
+			IDataSet databaseDataSet, Map<String, ITable> tables,
+			Set<String> changed) throws SQLException, DataSetException {
+		if (changed.isEmpty() || changed.size() == tables.size()) {
+			return;
+		}
+		DatabaseMetaData metaData = connection.getConnection().getMetaData();
+		String storedSchema = ForeignKeys.getStoredSchemaName(metaData,
+				connection.getSchema());
+		Map<String, Set<String>> referencedTables = new LinkedHashMap<String, Set<String>>();
+		for (String tableName : tables.keySet()) {
+			if (!changed.contains(tableName)) {
+				referencedTables.put(
+						tableName,
+						ForeignKeys.getReferencedTables(metaData, storedSchema,
+								databaseDataSet.getTableMetaData(tableName)
+										.getTableName()));
+			}
+		}
+		boolean added = true;
+		while (added) {
+			added = false;
+			for (Map.Entry<String, Set<String>> entry : referencedTables
+					.entrySet()) {
+				if (changed.contains(entry.getKey())) {
+					continue;
+				}
+				for (String referenced : entry.getValue()) {
+					if (containsIgnoreCase(changed, referenced)) {
+						changed.add(entry.getKey());
+						added = true;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private boolean containsIgnoreCase(Set<String> tableNames, String tableName) {
+		for (String name : tableNames) {
+			if (name.equalsIgnoreCase(tableName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return true if database table content matches dataset table.
+	 *
+	 * @param connection
+	 *            Connection
+	 * @param databaseDataSet
+	 *            Database data set
+	 * @param table
+	 *            Dataset table
+	 * @return true if table need not be set up
+	 */
+	protected boolean isUnchanged(IDatabaseConnection connection,
+			IDataSet databaseDataSet, ITable table) throws SQLException {
+		String tableName = table.getTableMetaData().getTableName();
+		try {
+			ITableMetaData metaData = databaseDataSet
+					.getTableMetaData(tableName);
+			String[] columnNames = getDataSetColumnNames(table, metaData);
+			if (null == columnNames) {
+				return false;
+			}
+			String qualifiedName = getQualifiedName(connection.getSchema(),
+					metaData.getTableName(), connection);
+			if (table.getRowCount() != getRowCount(connection, qualifiedName)) {
+				return false;
+			}
+			Fingerprint expected = getDataSetFingerprint(table, metaData,
+					columnNames);
+			if (null == expected) {
+				return false;
+			}
+			return expected.equals(getDatabaseFingerprint(connection,
+					metaData, qualifiedName));
+		} catch (DataSetException e) {
+			// not known to the database, let the operation report it
+			logger.debug("Cannot compute fingerprint of table {}: {}",
+					tableName, e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Map database columns to dataset columns.
+	 *
+	 * @return Dataset column name for each database column, <code>null</code>
+	 *         for a column missing in the dataset; <code>null</code> if the
+	 *         dataset has a column the database does not have
+	 */
+	private String[] getDataSetColumnNames(ITable table,
+			ITableMetaData metaData) throws DataSetException {
+		Column[] columns = metaData.getColumns();
+		Column[] dataSetColumns = table.getTableMetaData().getColumns();
+		String[] columnNames = new String[columns.length];
+		int mapped = 0;
+		for (int i = 0; i < columns.length; i++) {
+			for (Column dataSetColumn : dataSetColumns) {
+				if (dataSetColumn.getColumnName().equalsIgnoreCase(
+						columns[i].getColumnName())) {
+					columnNames[i] = dataSetColumn.getColumnName();
+					mapped++;
+					break;
+				}
+			}
+		}
+		return mapped == dataSetColumns.length ? columnNames : null;
+	}
+
+	private int getRowCount(IDatabaseConnection connection,
+			String qualifiedName) throws SQLException {
+		Statement statement = connection.getConnection().createStatement();
+		try {
+			ResultSet resultSet = statement.executeQuery("select count(*) from "
+					+ qualifiedName);
+			resultSet.next();
+			return resultSet.getInt(1);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Compute fingerprint of dataset table.
+	 *
+	 * @return Fingerprint or <code>null</code> if the values inserted cannot
+	 *         be known in advance
+	 */
+	private Fingerprint getDataSetFingerprint(ITable table,
+			ITableMetaData metaData, String[] columnNames)
+			throws DataSetException {
+		Column[] columns = metaData.getColumns();
+		Fingerprint fingerprint = new Fingerprint();
+		Object[] values = new Object[columns.length];
+		for (int row = 0; row < table.getRowCount(); row++) {
+			for (int i = 0; i < columns.length; i++) {
+				Object value = null == columnNames[i] ? null : table.getValue(
+						row, columnNames[i]);
+				if ("@auto".equals(value)) {
+					return null;
+				}
+				if (null == value || ITable.NO_VALUE == value) {
+					if (null != columns[i].getDefaultValue()) {
+						return null;
+					}
+					values[i] = null;
+					continue;
+				}
+				try {
+					values[i] = columns[i].getDataType().typeCast(value);
+				} catch (TypeCastException e) {
+					return null;
+				}
+			}
+			fingerprint.addRow(values);
+		}
+		return fingerprint;
+	}
+
+	private Fingerprint getDatabaseFingerprint(IDatabaseConnection connection,
+			ITableMetaData metaData, String qualifiedName)
+			throws SQLException, DataSetException {
+		Column[] columns = metaData.getColumns();
+		StringBuilder sql = new StringBuilder("select ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(getQualifiedName(null, columns[i].getColumnName(),
+					connection));
+		}
+		sql.append(" from ").append(qualifiedName);
+
+		Fingerprint fingerprint = new Fingerprint();
+		Object[] values = new Object[columns.length];
+		Statement statement = connection.getConnection().createStatement();
+		try {
+			ResultSet resultSet = statement.executeQuery(sql.toString());
+			while (resultSet.next()) {
+				for (int i = 0; i < columns.length; i++) {
+					values[i] = columns[i].getDataType().getSqlValue(i + 1,
+							resultSet);
+				}
+				fingerprint.addRow(values);
+			}
+		} finally {
+			statement.close();
+		}
+		return fingerprint;
+	}
+
+	// dependencies and setters
+
+	private Factory factory;
+
+	/**
+	 * Set factory providing data set processing data.
+	 *
+	 * @param factory
+	 *            Factory
+	 */
+	public void setFactory(Factory factory) {
+		this.factory = factory;
+	}
+
+}
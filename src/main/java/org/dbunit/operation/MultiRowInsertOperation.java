@@ -0,0 +1,222 @@
+package org.dbunit.operation;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.lightair.internal.dbunit.AutoPreparedBatchStatement;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.statement.IPreparedBatchStatement;
+import org.dbunit.database.statement.IStatementFactory;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Insert operation packing several rows into a single
+ * <code>insert ... values (...), (...), ...</code> statement.
+ * <p>
+ * Consecutive rows with the same column signature are packed together. The
+ * number of rows in a statement is limited by the maximum number of statement
+ * parameters supported by the database dialect, and by
+ * {@link #MAX_ROWS_PER_STATEMENT}.
+ */
+public class MultiRowInsertOperation extends AutoInsertOperation {
+
+	private final Logger logger = LoggerFactory
+			.getLogger(MultiRowInsertOperation.class);
+
+	/**
+	 * Maximum number of rows in a single statement.
+	 */
+	public static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+	private static final Map<String, Integer> PARAMETER_LIMITS = new HashMap<String, Integer>();
+
+	static {
+		PARAMETER_LIMITS.put("h2", 32767);
+		PARAMETER_LIMITS.put("hsqldb", 32767);
+		// Derby compiles statements to byte code, keep them small
+		PARAMETER_LIMITS.put("derby", 1000);
+		PARAMETER_LIMITS.put("mysql", 65535);
+		PARAMETER_LIMITS.put("postgresql", 32767);
+	}
+
+	/**
+	 * Return maximum number of parameters in a statement for a database
+	 * dialect.
+	 * 
+	 * @param dialect
+	 *            Database dialect
+	 * @return Maximum number of statement parameters or <code>null</code> if
+	 *         the dialect does not support multi-row insert
+	 */
+	public static Integer getParameterLimit(String dialect) {
+		return PARAMETER_LIMITS.get(dialect);
+	}
+
+	private final int parameterLimit;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param parameterLimit
+	 *            Maximum number of parameters in a statement
+	 */
+	public MultiRowInsertOperation(int parameterLimit) {
+		this.parameterLimit = parameterLimit;
+	}
+
+	@Override
+	public void execute(IDatabaseConnection connection, IDataSet dataSet)
+			throws DatabaseUnitException, SQLException {
+		logger.debug("execute(connection={}, dataSet={}) - start", connection,
+				dataSet);
+
+		DatabaseConfig databaseConfig = connection.getConfig();
+		IStatementFactory factory = (IStatementFactory) databaseConfig
+				.getProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY);
+
+		ITableIterator iterator = iterator(dataSet);
+		while (iterator.next()) {
+			ITable table = iterator.getTable();
+
+			String tableName = table.getTableMetaData().getTableName();
+			logger.trace("execute: processing table='{}'", tableName);
+
+			if (isEmpty(table)) {
+				continue;
+			}
+
+			ITableMetaData metaData = getOperationMetaData(connection,
+					table.getTableMetaData());
+			Column[] columns = metaData.getColumns();
+			Chunk chunk = new Chunk(factory, connection, table, metaData);
+			try {
+				int start = _reverseRowOrder ? table.getRowCount() - 1 : 0;
+				int increment = _reverseRowOrder ? -1 : 1;
+				try {
+					for (int row = start;; row = row + increment) {
+						Object[] values = getRowValues(table, columns, row);
+						BitSet signature = getSignature(values);
+						if (!chunk.accepts(signature)) {
+							chunk.execute();
+						}
+						chunk.add(signature, values, row);
+					}
+				} catch (RowOutOfBoundsException e) {
+					// end of table
+				}
+				chunk.execute();
+			} catch (SQLException e) {
+				final String msg = "Exception processing table name='"
+						+ tableName + "'";
+				throw new DatabaseUnitException(msg, e);
+			} finally {
+				chunk.close();
+			}
+		}
+	}
+
+	/**
+	 * Return number of rows to pack into a statement for a column signature.
+	 * 
+	 * @param signature
+	 *            Column signature
+	 * @return Number of rows per statement, at least 1
+	 */
+	int getRowsPerStatement(BitSet signature) {
+		int parameterCount = Math.max(1, signature.cardinality());
+		int rows = Math.min(MAX_ROWS_PER_STATEMENT, parameterLimit
+				/ parameterCount);
+		return Math.max(1, rows);
+	}
+
+	/**
+	 * Consecutive rows with the same column signature to be inserted by a
+	 * single statement.
+	 * <p>
+	 * Caches statements prepared for a table by signature and number of rows.
+	 */
+	private class Chunk {
+
+		private final IStatementFactory factory;
+		private final IDatabaseConnection connection;
+		private final ITable table;
+		private final ITableMetaData metaData;
+		private final Map<List<Object>, IPreparedBatchStatement> statements = new HashMap<List<Object>, IPreparedBatchStatement>();
+
+		private BitSet signature;
+		private int capacity;
+		private final List<Object[]> values = new ArrayList<Object[]>();
+		private final List<Integer> rows = new ArrayList<Integer>();
+
+		private Chunk(IStatementFactory factory,
+				IDatabaseConnection connection, ITable table,
+				ITableMetaData metaData) {
+			this.factory = factory;
+			this.connection = connection;
+			this.table = table;
+			this.metaData = metaData;
+		}
+
+		private boolean accepts(BitSet rowSignature) {
+			return values.isEmpty()
+					|| (rowSignature.equals(signature) && values.size() < capacity);
+		}
+
+		private void add(BitSet rowSignature, Object[] rowValues, int row) {
+			if (values.isEmpty()) {
+				signature = rowSignature;
+				capacity = getRowsPerStatement(rowSignature);
+			}
+			values.add(rowValues);
+			rows.add(row);
+		}
+
+		private void execute() throws SQLException, DatabaseUnitException {
+			if (values.isEmpty()) {
+				return;
+			}
+			int rowCount = values.size();
+			List<Object> key = Arrays.<Object> asList(signature, rowCount);
+			IPreparedBatchStatement statement = statements.get(key);
+			if (null == statement) {
+				String sql = getInsertSql(metaData, signature, connection,
+						rowCount);
+				statement = factory.createPreparedBatchStatement(sql,
+						connection);
+				statements.put(key, statement);
+			}
+			Column[] columns = metaData.getColumns();
+			for (int i = 0; i < rowCount; i++) {
+				bindRow((AutoPreparedBatchStatement) statement, table,
+						columns, values.get(i), signature, rows.get(i));
+			}
+			statement.addBatch();
+			statement.executeBatch();
+			statement.clearBatch();
+			values.clear();
+			rows.clear();
+		}
+
+		private void close() throws SQLException {
+			for (IPreparedBatchStatement statement : statements.values()) {
+				statement.close();
+			}
+		}
+	}
+
+}
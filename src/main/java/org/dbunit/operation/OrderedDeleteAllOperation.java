@@ -0,0 +1,168 @@
+package org.dbunit.operation;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.lightair.internal.dbunit.util.ForeignKeys;
+
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.database.statement.IBatchStatement;
+import org.dbunit.database.statement.IStatementFactory;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Clean operation deleting all rows of the tables in a dataset.
+ * <p>
+ * Unlike {@link DeleteAllOperation}, which deletes tables in the reverse
+ * order of the dataset, tables are ordered by foreign keys read from
+ * {@link DatabaseMetaData}, so that referencing tables are cleaned before the
+ * tables they reference. Tables not ordered by foreign keys keep the reverse
+ * order of the dataset.
+ * <p>
+ * Optionally, tables not referenced by any foreign key are cleaned by
+ * <code>truncate table</code>, which does not log every deleted row. As
+ * truncate commits implicitly in most databases, the factory does not use it
+ * while setup runs in a transaction.
+ * <p>
+ * All statements for the dataset are sent in a single batch.
+ */
+public class OrderedDeleteAllOperation extends AbstractOperation {
+
+	private final Logger logger = LoggerFactory
+			.getLogger(OrderedDeleteAllOperation.class);
+
+	private static final Set<String> TRUNCATE_DIALECTS = new HashSet<String>(
+			Arrays.asList("h2", "hsqldb", "derby", "mysql", "postgresql",
+					"oracle", "oracle9", "oracle10", "mssql", "db2"));
+
+	/**
+	 * Return true if database dialect supports <code>truncate table</code>.
+	 *
+	 * @param dialect
+	 *            Database dialect
+	 * @return true if truncate is supported
+	 */
+	public static boolean isTruncateSupported(String dialect) {
+		return TRUNCATE_DIALECTS.contains(dialect);
+	}
+
+	private final boolean truncate;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param truncate
+	 *            Whether to truncate tables not referenced by foreign keys
+	 */
+	public OrderedDeleteAllOperation(boolean truncate) {
+		this.truncate = truncate;
+	}
+
+	@Override
+	public void execute(IDatabaseConnection connection, IDataSet dataSet)
+			throws DatabaseUnitException, SQLException {
+		logger.debug("execute(connection={}, dataSet={}) - start", connection,
+				dataSet);
+
+		IDataSet databaseDataSet = connection.createDataSet();
+		DatabaseMetaData metaData = connection.getConnection().getMetaData();
+		String schema = connection.getSchema();
+
+		// tables in reverse order of the dataset, each table once
+		LinkedList<String> tableNames = new LinkedList<String>();
+		Set<String> tablesSeen = new HashSet<String>();
+		ITableIterator iterator = dataSet.iterator();
+		while (iterator.next()) {
+			String tableName = databaseDataSet.getTableMetaData(
+					iterator.getTableMetaData().getTableName()).getTableName();
+			if (tablesSeen.add(tableName)) {
+				tableNames.addFirst(tableName);
+			}
+		}
+		if (tableNames.isEmpty()) {
+			return;
+		}
+
+		String storedSchema = ForeignKeys.getStoredSchemaName(metaData, schema);
+		Map<String, Set<String>> referencedTables = new HashMap<String, Set<String>>();
+		for (String tableName : tableNames) {
+			referencedTables.put(tableName, ForeignKeys.getReferencedTables(
+					metaData, storedSchema, tableName));
+		}
+
+		DatabaseConfig databaseConfig = connection.getConfig();
+		IStatementFactory statementFactory = (IStatementFactory) databaseConfig
+				.getProperty(DatabaseConfig.PROPERTY_STATEMENT_FACTORY);
+		IBatchStatement statement = statementFactory
+				.createBatchStatement(connection);
+		try {
+			for (String tableName : sort(tableNames, referencedTables)) {
+				String qualifiedName = getQualifiedName(schema, tableName,
+						connection);
+				if (truncate
+						&& !ForeignKeys.isReferenced(metaData, storedSchema,
+								tableName)) {
+					statement.addBatch("truncate table " + qualifiedName);
+				} else {
+					statement.addBatch("delete from " + qualifiedName);
+				}
+			}
+			statement.executeBatch();
+			statement.clearBatch();
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Sort tables so that each table comes before the tables it references.
+	 *
+	 * @param tableNames
+	 *            Tables in default order
+	 * @param referencedTables
+	 *            Tables referenced by each table
+	 * @return Sorted tables, tables in a reference cycle in default order
+	 */
+	List<String> sort(List<String> tableNames,
+			Map<String, Set<String>> referencedTables) {
+		List<String> remaining = new ArrayList<String>(tableNames);
+		List<String> sorted = new ArrayList<String>(tableNames.size());
+		while (!remaining.isEmpty()) {
+			String next = remaining.get(0);
+			for (String candidate : remaining) {
+				if (!isReferenced(candidate, remaining, referencedTables)) {
+					next = candidate;
+					break;
+				}
+			}
+			remaining.remove(next);
+			sorted.add(next);
+		}
+		return sorted;
+	}
+
+	private boolean isReferenced(String tableName, List<String> tableNames,
+			Map<String, Set<String>> referencedTables) {
+		for (String other : tableNames) {
+			if (!other.equals(tableName)
+					&& referencedTables.get(other).contains(tableName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
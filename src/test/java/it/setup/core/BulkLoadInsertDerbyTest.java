@@ -0,0 +1,68 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+@Setup("BulkLoadInsertTest.xml")
+public class BulkLoadInsertDerbyTest {
+
+	private static final JdbcTemplate db = new JdbcTemplate(
+			new SingleConnectionDataSource(
+					"jdbc:derby:memory:test;create=true", "root", "root",
+					false));
+
+	@BeforeClass
+	public static void beforeClass() {
+		DateTimeUtils.setCurrentMillisFixed(new DateTime(2009, 8, 28, 19, 49,
+				59, 987).getMillis());
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("bulk-derby");
+		db.execute("create table bl (id int primary key, name varchar(20),"
+				+ " created timestamp, amount decimal(10,2), flag boolean)");
+		db.execute("create table bl_fallback (id int primary key,"
+				+ " name varchar(20), amount int default 99)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table bl");
+		db.execute("drop table bl_fallback");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		List<Map<String, Object>> values = db
+				.queryForList("select * from bl order by id");
+		assertEquals("Count", 3, values.size());
+		BulkLoadInsertTest.verifyRow(values.get(0), "A", new DateTime(2009,
+				8, 28, 19, 49, 59, 987), "10.50", true);
+		BulkLoadInsertTest.verifyRow(values.get(1), "", new DateTime(2000, 1,
+				2, 3, 4, 5, 0), "0.00", false);
+		BulkLoadInsertTest.verifyRow(values.get(2), "quote \", comma",
+				new DateTime(2009, 8, 28, 19, 49, 59, 987), "12345678.90",
+				true);
+
+		values = db.queryForList("select * from bl_fallback order by id");
+		assertEquals("Count", 2, values.size());
+		assertEquals("amount 1", 99, values.get(1).get("amount"));
+	}
+
+}
@@ -0,0 +1,73 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+
+import org.joda.time.DateTime;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+@Setup
+public class BulkLoadInsertTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("bulk");
+		db.execute("create table bl (id int primary key, name varchar(20),"
+				+ " created timestamp, amount decimal(10,2), flag boolean)");
+		db.execute("create table bl_fallback (id int primary key,"
+				+ " name varchar(20), amount int default 99)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table bl");
+		db.execute("drop table bl_fallback");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		List<Map<String, Object>> values = db
+				.queryForList("select * from bl order by id");
+		assertEquals("Count", 3, values.size());
+		verifyRow(values.get(0), "A", new DateTime(2009, 8, 28, 19, 49, 59,
+				987), "10.50", true);
+		verifyRow(values.get(1), "", new DateTime(2000, 1, 2, 3, 4, 5, 0),
+				"0.00", false);
+		verifyRow(values.get(2), "quote \", comma", new DateTime(2009, 8,
+				28, 19, 49, 59, 987), "12345678.90", true);
+
+		// @auto and missing values are inserted by batch insert
+		values = db.queryForList("select * from bl_fallback order by id");
+		assertEquals("Count", 2, values.size());
+		assertEquals("name 0", "name 7176500", values.get(0).get("name"));
+		assertEquals("amount 0", 10, values.get(0).get("amount"));
+		assertEquals("name 1", "B", values.get(1).get("name"));
+		assertEquals("amount 1", 99, values.get(1).get("amount"));
+	}
+
+	static void verifyRow(Map<String, Object> row, String name,
+			DateTime created, String amount, boolean flag) {
+		assertEquals("name", name, row.get("name"));
+		assertEquals("created", new Timestamp(created.getMillis()),
+				row.get("created"));
+		assertEquals("amount", new BigDecimal(amount), row.get("amount"));
+		assertEquals("flag", flag, row.get("flag"));
+	}
+
+}
@@ -0,0 +1,70 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+
+import org.joda.time.DateTime;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(LightAir.class)
+public class CsvDirectoryTest extends CommonTestBase {
+
+	List<Map<String, Object>> values;
+
+	@BeforeClass
+	public static void beforeClass() {
+		db.execute("create table csv_a (id int primary key, name varchar(50), auto_col int)");
+		db.execute("create table csv_b (id int primary key, a_id int references csv_a(id), "
+				+ "name varchar(50), ts timestamp)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table csv_b");
+		db.execute("drop table csv_a");
+	}
+
+	@Test
+	@Setup("CsvDirectoryTest/")
+	public void tablesInOrderOfNames() {
+		values = db.queryForList("select * from csv_a order by id");
+		assertEquals("Count a", 3, values.size());
+		assertEquals("first", values.get(0).get("name"));
+		assertNull("@null", values.get(1).get("name"));
+		assertEquals("Quoted empty", "", values.get(2).get("name"));
+		assertNotNull("@auto", values.get(0).get("auto_col"));
+		assertFalse("@auto unique", values.get(0).get("auto_col")
+				.equals(values.get(1).get("auto_col")));
+
+		values = db.queryForList("select * from csv_b order by id");
+		assertEquals("Count b", 2, values.size());
+		assertEquals("with \"quotes\", comma", values.get(0).get("name"));
+		assertEquals(new Timestamp(new DateTime(2009, 8, 29, 19, 49, 59, 987)
+				.getMillis()), values.get(0).get("ts"));
+		assertEquals("multi\nline", values.get(1).get("name"));
+		assertNull("Missing value", values.get(1).get("ts"));
+	}
+
+	@Test
+	@Setup("CsvDirectoryTest.ordered/")
+	public void tableOrdering() {
+		values = db.queryForList("select * from csv_a order by id");
+		assertEquals("Count a", 1, values.size());
+		assertEquals(5, values.get(0).get("id"));
+		assertEquals("five", values.get(0).get("name"));
+		assertNull(values.get(0).get("auto_col"));
+		assertEquals("Header only", new Integer(0), db.queryForObject(
+				"select count(*) from csv_b", Integer.class));
+	}
+
+}
@@ -0,0 +1,65 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.util.List;
+import java.util.Map;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+@Setup
+public class MultiRowInsertTest extends CommonTestBase {
+
+	List<Map<String, Object>> values;
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("multirow");
+		db.execute("create table mr (seq int auto_increment, id int primary key,"
+				+ " name varchar(20), amount int default 99,"
+				+ " parent_id int references mr(id))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table mr");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		assertEquals("Count", new Integer(7),
+				db.queryForObject("select count(*) from mr", Integer.class));
+
+		// rows are inserted in the order of the dataset
+		values = db.queryForList("select * from mr order by seq");
+		verifyRow(0, 1, "A", 10, null);
+		verifyRow(1, 2, "B", 20, 1);
+		verifyRow(2, 3, "C", 30, 2);
+		verifyRow(3, 4, "name 2486503", 99, null);
+		verifyRow(4, 5, "name 2486504", 99, null);
+		verifyRow(5, 6, "F", 99, 5);
+		verifyRow(6, 7, "G", 70, null);
+	}
+
+	protected void verifyRow(int row, int id, String name, Integer amount,
+			Integer parentId) {
+		assertEquals("id " + row, id, values.get(row).get("id"));
+		assertEquals("name " + row, name, values.get(row).get("name"));
+		assertEquals("amount " + row, amount, values.get(row).get("amount"));
+		assertEquals("parent_id " + row, parentId,
+				values.get(row).get("parent_id"));
+	}
+
+}
@@ -0,0 +1,57 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+@Setup(savepoint = false)
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SavepointDisabledTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("savepoint");
+		db.execute("create table sp_off (id int primary key, name varchar(20))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table sp_off");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test1_commitOnAnotherConnection() {
+		assertNames("A", "B");
+
+		db.execute("update sp_off set name = 'committed' where id = 2");
+		db.execute("insert into sp_off (id, name) values (3, 'C')");
+	}
+
+	@Test
+	public void test2_cleanInsertedAgain() {
+		assertNames("A", "B");
+	}
+
+	private void assertNames(String name1, String name2) {
+		assertEquals("Count", new Integer(2),
+				db.queryForObject("select count(*) from sp_off", Integer.class));
+		assertEquals("Name 1", name1, db.queryForObject(
+				"select name from sp_off where id = 1", String.class));
+		assertEquals("Name 2", name2, db.queryForObject(
+				"select name from sp_off where id = 2", String.class));
+	}
+
+}
@@ -0,0 +1,103 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+@Setup
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SavepointTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("savepoint");
+		db.execute("create table sp (id int primary key, name varchar(20))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table sp");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test1_changesOnConnection() {
+		JdbcTemplate connectionDb = getConnectionDb();
+		connectionDb.execute("update sp set name = 'changed' where id = 1");
+		connectionDb.execute("insert into sp (id, name) values (3, 'C')");
+		assertEquals("Changed", "changed", connectionDb.queryForObject(
+				"select name from sp where id = 1", String.class));
+	}
+
+	@Test
+	public void test2_rolledBackToSavepoint() {
+		JdbcTemplate connectionDb = getConnectionDb();
+		assertEquals("Count", new Integer(2), connectionDb.queryForObject(
+				"select count(*) from sp", Integer.class));
+		assertEquals("Rolled back", "A", connectionDb.queryForObject(
+				"select name from sp where id = 1", String.class));
+
+		// committed on another connection, not undone by the savepoint
+		db.execute("update sp set name = 'committed' where id = 2");
+	}
+
+	@Test
+	public void test3_changesOnOtherConnectionSetUpAgain() {
+		assertNames("A", "B");
+	}
+
+	@Test
+	@Setup
+	public void test4_methodSetupCleanInserts() {
+		assertNames("A", "B");
+
+		db.execute("insert into sp (id, name) values (3, 'C')");
+	}
+
+	@Test
+	public void test5_classSetupInsertedAgain() throws SQLException {
+		assertNames("A", "B");
+
+		Connection connection = LightAir.getConnection("");
+		getConnectionDb().execute("insert into sp (id, name) values (3, 'C')");
+		connection.commit();
+	}
+
+	@Test
+	public void test6_commitOnConnectionFallsBackToSetup() {
+		assertNames("A", "B");
+	}
+
+	private void assertNames(String name1, String name2) {
+		assertEquals("Count", new Integer(2),
+				db.queryForObject("select count(*) from sp", Integer.class));
+		assertEquals("Name 1", name1, db.queryForObject(
+				"select name from sp where id = 1", String.class));
+		assertEquals("Name 2", name2, db.queryForObject(
+				"select name from sp where id = 2", String.class));
+	}
+
+	private JdbcTemplate getConnectionDb() {
+		return new JdbcTemplate(new SingleConnectionDataSource(
+				LightAir.getConnection(""), true));
+	}
+
+}
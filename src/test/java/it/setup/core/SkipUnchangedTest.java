@@ -0,0 +1,76 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.util.Map;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+import net.sf.lightair.internal.factory.Factory;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+@Setup
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SkipUnchangedTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("skip");
+		db.execute("create table su (id int primary key, name varchar(20),"
+				+ " amount decimal(10,2), created timestamp)");
+		db.execute("create table su_master (id int primary key, m1 varchar(10))");
+		db.execute("create table su_detail (id int primary key,"
+				+ " master_id int references su_master(id))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table su");
+		db.execute("drop table su_detail");
+		db.execute("drop table su_master");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test1_emptyTablesAreSetUp() {
+		Map<String, Boolean> decisions = getDecisions();
+		assertEquals("su", false, decisions.get("PUBLIC.su"));
+		assertEquals("su_master", false, decisions.get("PUBLIC.su_master"));
+		assertEquals("su_detail", false, decisions.get("PUBLIC.su_detail"));
+
+		db.execute("update su_master set m1 = 'changed'");
+	}
+
+	@Test
+	public void test2_unchangedTableIsSkipped() {
+		Map<String, Boolean> decisions = getDecisions();
+		assertEquals("su", true, decisions.get("PUBLIC.su"));
+		assertEquals("su_master", false, decisions.get("PUBLIC.su_master"));
+		// references changed table, so it must be cleaned too
+		assertEquals("su_detail", false, decisions.get("PUBLIC.su_detail"));
+
+		assertEquals("Count", new Integer(2),
+				db.queryForObject("select count(*) from su", Integer.class));
+		assertEquals("m1", "1",
+				db.queryForObject("select m1 from su_master", String.class));
+		assertEquals("master_id", new Integer(1), db.queryForObject(
+				"select master_id from su_detail", Integer.class));
+	}
+
+	private Map<String, Boolean> getDecisions() {
+		return Factory.getInstance().getDataSetProcessingData()
+				.getTableSetupDecisions();
+	}
+
+}
@@ -0,0 +1,145 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+@Setup
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SnapshotTest extends CommonTestBase {
+
+	private static final File SNAPSHOTS = new File("target/lightair-snapshots");
+
+	private static Timestamp created;
+
+	private static String firstKey;
+
+	private static String secondKey;
+
+	@BeforeClass
+	public static void beforeClass() {
+		FileUtils.deleteQuietly(SNAPSHOTS);
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("snapshot");
+		db.execute("create table ss (id int primary key, name varchar(50),"
+				+ " amount decimal(10,2),"
+				+ " created timestamp default current_timestamp)");
+		db.execute("create table ss_other (id int primary key)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table ss");
+		db.execute("drop table ss_other");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test1_capturedAfterSetup() {
+		assertEquals("Snapshots", 1, SNAPSHOTS.list().length);
+		firstKey = SNAPSHOTS.list()[0];
+
+		db.execute("update ss set name = 'changed', created = null");
+		db.execute("delete from ss_other");
+	}
+
+	@Test
+	public void test2_restoredFromSnapshot() throws InterruptedException {
+		assertEquals("Name 1", "A, \"quoted\"", db.queryForObject(
+				"select name from ss where id = 1", String.class));
+		assertNull("Name 2", db.queryForObject(
+				"select name from ss where id = 2", String.class));
+		assertEquals("Amount", "10.50", db.queryForObject(
+				"select amount from ss where id = 1", String.class));
+		assertEquals("Other", new Integer(1), db.queryForObject(
+				"select count(*) from ss_other", Integer.class));
+		assertEquals("Created", Timestamp.valueOf("2020-01-01 10:00:00"),
+				getCreated());
+		Thread.sleep(20);
+	}
+
+	@Test
+	@Setup("SnapshotTest.temporal.xml")
+	public void test3_temporalTokensNotSnapshot() throws InterruptedException {
+		assertEquals("Snapshots", 1, SNAPSHOTS.list().length);
+		Thread.sleep(20);
+	}
+
+	@Test
+	@Setup("SnapshotTest.default.xml")
+	public void test4_defaultsNotSnapshot() throws InterruptedException {
+		assertEquals("Snapshots", 1, SNAPSHOTS.list().length);
+		created = getCreated();
+		Thread.sleep(20);
+	}
+
+	@Test
+	@Setup("SnapshotTest.default.xml")
+	public void test5_defaultEvaluatedAgain() throws InterruptedException {
+		assertEquals("Snapshots", 1, SNAPSHOTS.list().length);
+		// column default was evaluated again, not restored
+		assertFalse("Created", created.equals(getCreated()));
+		Thread.sleep(20);
+
+		db.execute("alter table ss alter column amount set default 1");
+	}
+
+	@Test
+	public void test6_structureChangedCapturedAgain()
+			throws InterruptedException {
+		List<String> keys = Arrays.asList(SNAPSHOTS.list());
+		assertEquals("Snapshots", 2, keys.size());
+		assertTrue("First snapshot kept", keys.contains(firstKey));
+		secondKey = keys.get(firstKey.equals(keys.get(0)) ? 1 : 0);
+		Thread.sleep(20);
+	}
+
+	@Test
+	@Setup("SnapshotTest.other.xml")
+	public void test7_leastRecentlyUsedEvicted() throws InterruptedException {
+		List<String> keys = Arrays.asList(SNAPSHOTS.list());
+		assertEquals("Snapshots", 2, keys.size());
+		assertFalse("First snapshot evicted", keys.contains(firstKey));
+		Thread.sleep(20);
+	}
+
+	@Test
+	@Setup("SnapshotTest.another.xml")
+	public void test8_secondEvicted() throws InterruptedException {
+		List<String> keys = Arrays.asList(SNAPSHOTS.list());
+		assertEquals("Snapshots", 2, keys.size());
+		assertFalse("Second snapshot evicted", keys.contains(secondKey));
+		Thread.sleep(20);
+	}
+
+	@Test
+	public void test9_evictedSnapshotCapturedAgain() {
+		List<String> keys = Arrays.asList(SNAPSHOTS.list());
+		assertEquals("Snapshots", 2, keys.size());
+		assertTrue("Second snapshot captured", keys.contains(secondKey));
+	}
+
+	private Timestamp getCreated() {
+		return db.queryForObject("select created from ss where id = 1",
+				Timestamp.class);
+	}
+
+}
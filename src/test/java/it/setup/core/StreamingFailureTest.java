@@ -0,0 +1,61 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.lightair.exception.DatabaseAccessException;
+import net.sf.lightair.internal.factory.Factory;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import test.support.ConfigSupport;
+
+public class StreamingFailureTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("streaming");
+		db.execute("create table st_fail (id int primary key, "
+				+ "name varchar(20) not null)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table st_fail");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void readerEndsWhenInsertFails() throws InterruptedException {
+		try {
+			Factory.getInstance()
+					.getDataSetStreamer()
+					.setup("", getClass().getResource(
+							"StreamingFailureTest.xml"));
+			fail("Insert should fail");
+		} catch (DatabaseAccessException e) {
+			// null name
+		}
+		for (Thread reader : getReaders()) {
+			reader.join(5000);
+			assertFalse("Reader ended", reader.isAlive());
+		}
+	}
+
+	private List<Thread> getReaders() {
+		List<Thread> readers = new ArrayList<Thread>();
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if ("lightair-dataset-reader".equals(thread.getName())) {
+				readers.add(thread);
+			}
+		}
+		return readers;
+	}
+
+}
@@ -0,0 +1,83 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+@Setup
+public class StreamingTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("streaming");
+		db.execute("create table st (id int primary key, name varchar(20), auto_col int)");
+		db.execute("create table st2 (id int primary key, v varchar(20))");
+		db.execute("create table st3 (id int primary key)");
+		db.execute("create table st_parent (id int primary key)");
+		db.execute("create table st_child (id int primary key, "
+				+ "parent_id int references st_parent (id))");
+		db.execute("insert into st (id, name) values (9, 'old')");
+		db.execute("insert into st2 (id) values (9)");
+		db.execute("insert into st3 (id) values (9)");
+		db.execute("insert into st_parent (id) values (9)");
+		db.execute("insert into st_child (id, parent_id) values (9, 9)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table st");
+		db.execute("drop table st2");
+		db.execute("drop table st3");
+		db.execute("drop table st_child");
+		db.execute("drop table st_parent");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		List<Map<String, Object>> values = db
+				.queryForList("select * from st order by id");
+		assertEquals("Count st", 5, values.size());
+		Set<Object> autoValues = new HashSet<Object>();
+		for (int id = 0; id < 5; id++) {
+			assertEquals("id " + id, id, values.get(id).get("id"));
+			autoValues.add(values.get(id).get("auto_col"));
+		}
+		assertEquals("name 0", "a", values.get(0).get("name"));
+		assertEquals("name 3", "d", values.get(3).get("name"));
+		assertNull("name 4", values.get(4).get("name"));
+		assertEquals("Auto values unique across chunks", 5, autoValues.size());
+
+		values = db.queryForList("select * from st2 order by id");
+		assertEquals("Count st2", 2, values.size());
+		assertNull("v 0", values.get(0).get("v"));
+		assertEquals("v 1", "x", values.get(1).get("v"));
+
+		assertEquals("Empty table cleaned", new Integer(0),
+				db.queryForObject("select count(*) from st3", Integer.class));
+
+		assertEquals("Parent rows", new Integer(2), db.queryForObject(
+				"select count(*) from st_parent", Integer.class));
+		values = db.queryForList("select * from st_child order by id");
+		assertEquals("Count st_child", 2, values.size());
+		assertEquals("parent_id 0", 0, values.get(0).get("parent_id"));
+		assertEquals("parent_id 1", 1, values.get(1).get("parent_id"));
+	}
+
+}
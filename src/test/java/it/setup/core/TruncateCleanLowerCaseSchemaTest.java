@@ -0,0 +1,53 @@
+package it.setup.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.util.List;
+import java.util.Map;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+@Setup("TruncateCleanTest.xml")
+public class TruncateCleanLowerCaseSchemaTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("truncate-lowercase");
+		db.execute("create table tc_master (id int primary key, m1 varchar(10))");
+		db.execute("create table tc_detail (id int primary key,"
+				+ " master_id int references tc_master(id))");
+		db.execute("insert into tc_master (id, m1) values (10, 'deleted')");
+		db.execute("insert into tc_detail (id, master_id) values (10, 10)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table tc_detail");
+		db.execute("drop table tc_master");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		assertEquals("Detail count", new Integer(0),
+				db.queryForObject("select count(*) from tc_detail",
+						Integer.class));
+		List<Map<String, Object>> values = db
+				.queryForList("select * from tc_master order by id");
+		assertEquals("Master count", 2, values.size());
+		assertEquals("m1 0", "1", values.get(0).get("m1"));
+		assertEquals("m1 1", "2", values.get(1).get("m1"));
+	}
+
+}
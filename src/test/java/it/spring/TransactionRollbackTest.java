@@ -0,0 +1,76 @@
+package it.spring;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import javax.sql.DataSource;
+
+import net.sf.lightair.LightAirSpringRunner;
+import net.sf.lightair.annotation.Setup;
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.ContextConfiguration;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAirSpringRunner.class)
+@ContextConfiguration(locations = { "classpath:spring/rollback-context.xml" })
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TransactionRollbackTest extends CommonTestBase {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("spring-rollback");
+		db.execute("create table tr (id int primary key, name varchar(20))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table tr");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	@Setup("TransactionRollbackTest.xml")
+	@Verify("TransactionRollbackTest-verify.xml")
+	public void test1_setupTestAndVerifyInTransaction() {
+		JdbcTemplate application = new JdbcTemplate(dataSource);
+		assertEquals("Count", new Integer(2), application.queryForObject(
+				"select count(*) from tr", Integer.class));
+		application.update("insert into tr (id, name) values (3, 'C')");
+	}
+
+	@Test
+	public void test2_rolledBack() {
+		assertEquals("Count", new Integer(0),
+				db.queryForObject("select count(*) from tr", Integer.class));
+	}
+
+	@Test
+	@Rollback(false)
+	@Setup("TransactionRollbackTest.xml")
+	public void test3_committingTestSetUpByCleanInsert() {
+		assertEquals("Count", new Integer(2),
+				db.queryForObject("select count(*) from tr", Integer.class));
+	}
+
+	@Test
+	public void test4_committed() {
+		assertEquals("Count", new Integer(2),
+				db.queryForObject("select count(*) from tr", Integer.class));
+	}
+
+}
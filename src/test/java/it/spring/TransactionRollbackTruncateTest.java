@@ -0,0 +1,60 @@
+package it.spring;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import javax.sql.DataSource;
+
+import net.sf.lightair.LightAirSpringRunner;
+import net.sf.lightair.annotation.Setup;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAirSpringRunner.class)
+@ContextConfiguration(locations = { "classpath:spring/rollback-context.xml" })
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TransactionRollbackTruncateTest extends CommonTestBase {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("spring-rollback-truncate");
+		db.execute("create table trt (id int primary key, name varchar(20))");
+		db.execute("insert into trt (id, name) values (9, 'Z')");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table trt");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	@Setup
+	public void test1_setupInTransaction() {
+		JdbcTemplate application = new JdbcTemplate(dataSource);
+		assertEquals("Count", new Integer(2), application.queryForObject(
+				"select count(*) from trt", Integer.class));
+	}
+
+	@Test
+	public void test2_cleanRolledBack() {
+		// truncate would have committed the clean
+		assertEquals("Count", new Integer(1),
+				db.queryForObject("select count(*) from trt", Integer.class));
+	}
+
+}
@@ -0,0 +1,67 @@
+package it.verify.core;
+
+import static org.junit.Assert.*;
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+import net.sf.lightair.annotation.Verify;
+import net.sf.lightair.internal.factory.Factory;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import test.support.ConfigSupport;
+
+/**
+ * Changes are logged by triggers installed during setup.
+ */
+@RunWith(LightAir.class)
+@Setup("ChangeTrackingTest.xml")
+@Verify("ChangeTrackingTest-verify.xml")
+public class ChangeTrackingDerbyTest {
+
+	private static final String TRIGGERS_SQL = "select count(*)"
+			+ " from SYS.SYSTRIGGERS t, SYS.SYSTABLES b"
+			+ " where t.TABLEID = b.TABLEID"
+			+ " and t.TRIGGERNAME like 'LIGHTAIR_%'"
+			+ " and b.TABLENAME = 'CT_B'";
+
+	private static JdbcTemplate db;
+
+	@BeforeClass
+	public static void beforeClass() {
+		db = new JdbcTemplate(new SingleConnectionDataSource(
+				"jdbc:derby:memory:test;create=true", "root", "root", true));
+		Factory.getInstance().init();
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("changes-derby");
+		db.execute("create table ct_a (id int primary key, a varchar(50))");
+		db.execute("create table ct_b (id int primary key, b varchar(50))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table ct_a");
+		db.execute("drop table ct_b");
+		db.execute("drop table LIGHTAIR_CHANGES");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		assertEquals("Triggers", new Integer(3),
+				db.queryForObject(TRIGGERS_SQL, Integer.class));
+		assertEquals("Log empty after setup", new Integer(0),
+				db.queryForObject("select count(*) from LIGHTAIR_CHANGES",
+						Integer.class));
+		db.update("insert into ct_b (id,b) values (1,'b1')");
+		assertEquals("Changed tables", "CT_B",
+				db.queryForObject(
+						"select distinct TABLE_NAME from LIGHTAIR_CHANGES",
+						String.class));
+	}
+
+}
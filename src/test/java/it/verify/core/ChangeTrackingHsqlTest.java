@@ -0,0 +1,82 @@
+package it.verify.core;
+
+import static org.junit.Assert.*;
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+import net.sf.lightair.annotation.Verify;
+import net.sf.lightair.internal.factory.Factory;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import test.support.ConfigSupport;
+
+/**
+ * Changes are logged by triggers installed during setup. Triggers and log
+ * table are removed when tracking is turned off.
+ */
+@RunWith(LightAir.class)
+@Setup("ChangeTrackingTest.xml")
+@Verify("ChangeTrackingTest-verify.xml")
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ChangeTrackingHsqlTest {
+
+	private static final String TRIGGERS_SQL = "select count(*)"
+			+ " from INFORMATION_SCHEMA.TRIGGERS"
+			+ " where TRIGGER_NAME like 'LIGHTAIR_%'"
+			+ " and EVENT_OBJECT_TABLE = 'CT_B'";
+
+	private static JdbcTemplate db;
+
+	@BeforeClass
+	public static void beforeClass() {
+		db = new JdbcTemplate(new SingleConnectionDataSource(
+				"jdbc:hsqldb:mem:test", "sa", "", true));
+		Factory.getInstance().init();
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("changes-hsql");
+		db.execute("create table ct_a (id int primary key, a varchar(50))");
+		db.execute("create table ct_b (id int primary key, b varchar(50))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table ct_a");
+		db.execute("drop table ct_b");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test1_tracked() {
+		assertEquals("Triggers", new Integer(3),
+				db.queryForObject(TRIGGERS_SQL, Integer.class));
+		assertEquals("Log empty after setup", new Integer(0),
+				db.queryForObject("select count(*) from LIGHTAIR_CHANGES",
+						Integer.class));
+		db.update("insert into ct_b (id,b) values (1,'b1')");
+		assertEquals("Changed tables", "CT_B",
+				db.queryForObject(
+						"select distinct TABLE_NAME from LIGHTAIR_CHANGES",
+						String.class));
+	}
+
+	@Test
+	public void test2_removedWhenTurnedOff() {
+		ConfigSupport.replaceConfig("hsql");
+		Factory.getInstance().getChangeTracker().reset("");
+		assertEquals("Triggers", new Integer(0),
+				db.queryForObject(TRIGGERS_SQL, Integer.class));
+		assertEquals("Log table", new Integer(0), db.queryForObject(
+				"select count(*) from INFORMATION_SCHEMA.TABLES"
+						+ " where TABLE_NAME = 'LIGHTAIR_CHANGES'",
+				Integer.class));
+		db.update("insert into ct_b (id,b) values (1,'b1')");
+	}
+
+}
@@ -0,0 +1,44 @@
+package it.verify.core;
+
+import it.common.CommonTestBase;
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Setup;
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+
+/**
+ * Table not changed by the test is verified against the setup dataset, table
+ * changed is compared.
+ */
+@RunWith(LightAir.class)
+@Setup
+@Verify
+public class ChangeTrackingTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("changes");
+		db.execute("create table ct_a (id int primary key, a varchar(50))");
+		db.execute("create table ct_b (id int primary key, b varchar(50))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table ct_a");
+		db.execute("drop table ct_b");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		db.update("insert into ct_b (id,b) values (1,'b1')");
+	}
+
+}
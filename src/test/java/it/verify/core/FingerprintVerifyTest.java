@@ -0,0 +1,51 @@
+package it.verify.core;
+
+import it.common.CommonTestBase;
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+
+/**
+ * Tables of various types verified by fingerprint, with duplicate rows, null
+ * values, a column of <code>@any</code> and a condition.
+ */
+@RunWith(LightAir.class)
+@Verify
+public class FingerprintVerifyTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("fingerprint");
+		db.execute("create table fp (id int, s varchar(50), n decimal(10,2), "
+				+ "d date, t timestamp, b varbinary(10), grp int)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table fp");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		db.execute("delete from fp");
+		db.update("insert into fp (id,s,n,d,t,b,grp) values "
+				+ "(1,'a',1.50,'2012-01-02','2012-01-02 03:04:05.678',X'0a0b',1)");
+		db.update("insert into fp (id,s,n,d,t,b,grp) values "
+				+ "(2,'a',1.50,'2012-01-02','2012-01-02 03:04:05.678',X'0a0b',1)");
+		db.update("insert into fp (id,s,n,d,t,b,grp) values "
+				+ "(3,'a',1.50,'2012-01-02','2012-01-02 03:04:05.678',X'0a0b',1)");
+		db.update("insert into fp (id,s,n,d,t,b,grp) values "
+				+ "(4,null,null,null,null,null,1)");
+		db.update("insert into fp (id,s,n,d,t,b,grp) values "
+				+ "(5,'other',2.00,'2012-01-02','2012-01-02 03:04:05.678',X'0a0b',2)");
+	}
+
+}
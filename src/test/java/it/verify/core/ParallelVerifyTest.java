@@ -0,0 +1,51 @@
+package it.verify.core;
+
+import it.common.CommonTestBase;
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+
+/**
+ * Tables of several schemas read in parallel, with a variable across tables.
+ */
+@RunWith(LightAir.class)
+@Verify
+public class ParallelVerifyTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("parallelverify");
+		db.execute("create schema pv1 authorization sa");
+		db.execute("create table pv1.orders (id int primary key, num varchar(50))");
+		db.execute("create table pv_item (id int primary key, order_id int, q int)");
+		db.execute("create table pv_other (id int primary key, a varchar(50))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table pv1.orders");
+		db.execute("drop table pv_item");
+		db.execute("drop table pv_other");
+		db.execute("drop schema pv1");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		db.execute("delete from pv1.orders");
+		db.execute("delete from pv_item");
+		db.execute("delete from pv_other");
+		db.update("insert into pv1.orders (id,num) values (7,'n7')");
+		db.update("insert into pv_item (id,order_id,q) values (0,7,10)");
+		db.update("insert into pv_item (id,order_id,q) values (1,7,30)");
+		db.update("insert into pv_other (id,a) values (0,'a0')");
+	}
+
+}
@@ -0,0 +1,84 @@
+package it.verify.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import java.net.URL;
+import java.util.Arrays;
+
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Verify;
+import net.sf.lightair.internal.factory.Factory;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+
+@RunWith(LightAir.class)
+public class SqlVerifyTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("sqlverify");
+		db.execute("create table sv (id int primary key, name varchar(20), amount int)");
+		db.execute("create table sv_any (id int primary key, name varchar(20))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table sv");
+		db.execute("drop table sv_any");
+		ConfigSupport.restoreConfig();
+	}
+
+	private void insert(String name2) {
+		db.execute("delete from sv");
+		db.execute("delete from sv_any");
+		db.update("insert into sv values (0, 'a', 10)");
+		db.update("insert into sv values (1, 'a', 10)");
+		db.update("insert into sv values (2, ?, null)", name2);
+		db.update("insert into sv_any values (0, 'x')");
+	}
+
+	@Test
+	@Verify
+	public void matching() {
+		insert("b");
+	}
+
+	@Test
+	public void tablesToCompare() throws Exception {
+		insert("b");
+		Factory factory = Factory.getInstance();
+		factory.initDataSetProcessing();
+		IDatabaseConnection connection = factory.getDbUnitWrapper()
+				.getConnection("", "PUBLIC");
+		URL url = getClass().getResource("SqlVerifyTest-verify.xml");
+
+		String[] tableNames = factory.getSqlVerifier().getTablesToCompare("",
+				connection,
+				factory.getDataSetFactory().createDataSet("", url)
+						.getDataSetForSchema("PUBLIC"));
+		assertEquals("Matching", "[sv_any]", Arrays.toString(tableNames));
+
+		db.update("update sv set amount = 11 where id = 1");
+		tableNames = factory.getSqlVerifier().getTablesToCompare("",
+				connection,
+				factory.getDataSetFactory().createDataSet("", url)
+						.getDataSetForSchema("PUBLIC"));
+		assertEquals("Different", "[sv, sv_any]", Arrays.toString(tableNames));
+
+		db.update("update sv set amount = 10, name = 'a' where id = 2");
+		tableNames = factory.getSqlVerifier().getTablesToCompare("",
+				connection,
+				factory.getDataSetFactory().createDataSet("", url)
+						.getDataSetForSchema("PUBLIC"));
+		assertEquals("Duplicates", "[sv, sv_any]", Arrays.toString(tableNames));
+	}
+
+}
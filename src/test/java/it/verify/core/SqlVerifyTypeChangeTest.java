@@ -0,0 +1,67 @@
+package it.verify.core;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+import net.sf.lightair.internal.factory.Factory;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.datatype.DataType;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import test.support.ConfigSupport;
+
+/**
+ * Temporary table kept for the session from verifying a table is not reused
+ * after the types of the table columns changed.
+ */
+public class SqlVerifyTypeChangeTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("sqlverify");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table svt");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() throws Exception {
+		Factory factory = Factory.getInstance();
+		IDatabaseConnection connection = factory.getDbUnitWrapper()
+				.getConnection("", "PUBLIC");
+
+		db.execute("create table svt (id int primary key, code int)");
+		db.update("insert into svt values (0, 7)");
+		assertEquals("Number matching", 0, factory.getSqlVerifier()
+				.getTablesToCompare("", connection, getDataSet("7")).length);
+
+		db.execute("drop table svt");
+		db.execute("create table svt (id int primary key, code varchar(10))");
+		db.update("insert into svt values (0, '7')");
+		// same session, table metadata read again
+		connection = new DatabaseConnection(connection.getConnection(),
+				"PUBLIC");
+		assertArrayEquals("Text differs", new String[] { "svt" }, factory
+				.getSqlVerifier().getTablesToCompare("", connection,
+						getDataSet("007")));
+	}
+
+	private DefaultDataSet getDataSet(String code) throws Exception {
+		DefaultTable table = new DefaultTable("svt", new Column[] {
+				new Column("id", DataType.UNKNOWN),
+				new Column("code", DataType.UNKNOWN) });
+		table.addRow(new Object[] { "0", code });
+		return new DefaultDataSet(table);
+	}
+
+}
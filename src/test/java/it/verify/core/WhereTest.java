@@ -0,0 +1,39 @@
+package it.verify.core;
+
+import it.common.CommonTestBase;
+import net.sf.lightair.LightAir;
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Only rows matching the condition declared for a table are verified.
+ */
+@RunWith(LightAir.class)
+@Verify
+public class WhereTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		db.execute("create table w(id int primary key, grp int, "
+				+ "name varchar(255), doc clob)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table w");
+	}
+
+	@Test
+	public void test() {
+		db.execute("delete from w");
+		db.update("insert into w (id,grp,name,doc) values (0,1,'a','d0')");
+		db.update("insert into w (id,grp,name,doc) values (1,2,'b','d1')");
+		db.update("insert into w (id,grp,name,doc) values (2,1,'c','d2')");
+		db.update("insert into w (id,grp,name,doc) values (3,2,'d','d3')");
+	}
+
+}
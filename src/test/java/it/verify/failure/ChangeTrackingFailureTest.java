@@ -0,0 +1,53 @@
+package it.verify.failure;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+import net.sf.lightair.annotation.Setup;
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+import test.support.ExceptionVerifyingJUnitRunner;
+
+/**
+ * Table changed by the test is compared, even if expected as set up.
+ */
+@RunWith(ExceptionVerifyingJUnitRunner.class)
+@Setup
+@Verify
+public class ChangeTrackingFailureTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("changes");
+		db.execute("create table ctf (id int primary key, a varchar(50))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table ctf");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		db.update("update ctf set a = 'x' where id = 1");
+	}
+
+	public void testVerifyException(Throwable error) {
+		String msg = "Assertion failed. "
+				+ "Differences found between the expected data set and actual database content.\n"
+				+ "Found differences for table PUBLIC.ctf:\n\n"
+				+ "  Different row: \n  id, a\n  \"1\", \"a1\"\n\n"
+				+ "  Best matching differences:  \n  a: \"a1\" <-> \"x\"\n\n\n"
+				+ "Actual database content:\n\n"
+				+ "PUBLIC.CTF\n  ID, A\n  0, \"a0\"\n  1, \"x\"\n\n";
+		assertEquals(msg, error.getMessage());
+	}
+
+}
@@ -0,0 +1,59 @@
+package it.verify.failure;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+import test.support.ExceptionVerifyingJUnitRunner;
+
+/**
+ * Only the table whose fingerprint differs is compared and reported, a table
+ * whose fingerprint matches is not read again. A column of <code>@any</code> does not
+ * match null.
+ */
+@RunWith(ExceptionVerifyingJUnitRunner.class)
+@Verify
+public class FingerprintFailureTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("fingerprint");
+		db.execute("create table fpf_a (id int primary key, a varchar(50))");
+		db.execute("create table fpf_b (id int primary key, b varchar(50))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table fpf_a");
+		db.execute("drop table fpf_b");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		db.execute("delete from fpf_a");
+		db.execute("delete from fpf_b");
+		db.update("insert into fpf_a (id,a) values (0,'a0')");
+		db.update("insert into fpf_b (id,b) values (0,'b0')");
+		db.update("insert into fpf_b (id) values (1)");
+	}
+
+	public void testVerifyException(Throwable error) {
+		String msg = "Assertion failed. "
+				+ "Differences found between the expected data set and actual database content.\n"
+				+ "Found differences for table PUBLIC.fpf_b:\n\n"
+				+ "  Different row: \n  id, b\n  \"1\", \"@any\"\n\n"
+				+ "  Best matching differences:  \n  b: \"@any\" <-> null\n\n\n"
+				+ "Actual database content:\n\n"
+				+ "PUBLIC.FPF_B\n  ID, B\n  0, \"b0\"\n  1, null\n\n";
+		assertEquals(msg, error.getMessage());
+	}
+
+}
@@ -0,0 +1,73 @@
+package it.verify.failure;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+import test.support.ExceptionVerifyingJUnitRunner;
+
+/**
+ * Differences in tables read in parallel are reported in dataset order, the
+ * same as when read one after another. A table whose fingerprint matches is
+ * still reported.
+ */
+@RunWith(ExceptionVerifyingJUnitRunner.class)
+@Verify
+public class ParallelVerifyFailureTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("parallelverify");
+		db.execute("create schema pvf1 authorization sa");
+		db.execute("create table pvf1.pvf_a (id int primary key, a varchar(50))");
+		db.execute("create table pvf_b (id int primary key, b varchar(50))");
+		db.execute("create table pvf_c (id int primary key, c varchar(50))");
+		db.execute("create table pvf_d (id int primary key, d varchar(50))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table pvf1.pvf_a");
+		db.execute("drop table pvf_b");
+		db.execute("drop table pvf_c");
+		db.execute("drop table pvf_d");
+		db.execute("drop schema pvf1");
+		ConfigSupport.restoreConfig();
+	}
+
+	@Test
+	public void test() {
+		db.execute("delete from pvf1.pvf_a");
+		db.execute("delete from pvf_b");
+		db.execute("delete from pvf_c");
+		db.execute("delete from pvf_d");
+		db.update("insert into pvf1.pvf_a (id,a) values (0,'a0')");
+		db.update("insert into pvf_b (id,b) values (0,'x')");
+		db.update("insert into pvf_c (id,c) values (0,'x')");
+		db.update("insert into pvf_d (id,d) values (0,'d0')");
+	}
+
+	public void testVerifyException(Throwable error) {
+		String msg = "Assertion failed. "
+				+ "Differences found between the expected data set and actual database content.\n"
+				+ "Found differences for table PUBLIC.pvf_b:\n\n"
+				+ "  Different row: \n  id, b\n  \"0\", \"b0\"\n\n"
+				+ "  Best matching differences:  \n  b: \"b0\" <-> \"x\"\n\n"
+				+ "Found differences for table PUBLIC.pvf_c:\n\n"
+				+ "  Different row: \n  id, c\n  \"0\", \"c0\"\n\n"
+				+ "  Best matching differences:  \n  c: \"c0\" <-> \"x\"\n\n\n"
+				+ "Actual database content:\n\n"
+				+ "PUBLIC.PVF_B\n  ID, B\n  0, \"x\"\n\n"
+				+ "PUBLIC.PVF_D\n  ID, D\n  0, \"d0\"\n\n"
+				+ "PUBLIC.PVF_C\n  ID, C\n  0, \"x\"\n\n";
+		assertEquals(msg, error.getMessage());
+	}
+
+}
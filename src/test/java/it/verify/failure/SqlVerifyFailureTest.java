@@ -0,0 +1,61 @@
+package it.verify.failure;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ConfigSupport;
+import test.support.ExceptionVerifyingJUnitRunner;
+
+@RunWith(ExceptionVerifyingJUnitRunner.class)
+public class SqlVerifyFailureTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		ConfigSupport.init();
+		ConfigSupport.replaceConfig("sqlverify");
+		db.execute("create table sv (id int primary key, name varchar(20), amount int)");
+		db.execute("create table sv_any (id int primary key, name varchar(20))");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table sv");
+		db.execute("drop table sv_any");
+		ConfigSupport.restoreConfig();
+	}
+
+	private void insert(String name2) {
+		db.execute("delete from sv");
+		db.execute("delete from sv_any");
+		db.update("insert into sv values (0, 'a', 10)");
+		db.update("insert into sv values (1, 'a', 10)");
+		db.update("insert into sv values (2, ?, null)", name2);
+		db.update("insert into sv_any values (0, 'x')");
+	}
+
+	@Test
+	@Verify
+	public void different() {
+		insert("c");
+	}
+
+	public void differentVerifyException(Throwable error) {
+		String msg = "Assertion failed. "
+				+ "Differences found between the expected data set and actual database content.\n"
+				+ "Found differences for table PUBLIC.sv:\n\n"
+				+ "  Different row: \n  id, name, amount\n  \"2\", \"b\", null\n\n"
+				+ "  Best matching differences:  \n  name: \"b\" <-> \"c\"\n\n\n"
+				+ "Actual database content:\n\nPUBLIC.SV\n  ID, NAME, AMOUNT\n"
+				+ "  0, \"a\", 10\n  1, \"a\", 10\n  2, \"c\", null\n\n"
+				+ "PUBLIC.SV_ANY\n  ID, NAME\n  0, \"x\"\n\n";
+		assertEquals(msg, error.getMessage());
+	}
+
+}
@@ -0,0 +1,52 @@
+package it.verify.failure;
+
+import static org.junit.Assert.*;
+import it.common.CommonTestBase;
+import net.sf.lightair.annotation.Verify;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import test.support.ExceptionVerifyingJUnitRunner;
+
+/**
+ * Row matching the condition declared for a table is unexpected. Rows not
+ * matching the condition and columns not expected are not reported.
+ */
+@RunWith(ExceptionVerifyingJUnitRunner.class)
+@Verify
+public class WhereFailureTest extends CommonTestBase {
+
+	@BeforeClass
+	public static void beforeClass() {
+		db.execute("create table w(id int primary key, grp int, "
+				+ "name varchar(255), doc clob)");
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		db.execute("drop table w");
+	}
+
+	@Test
+	public void test() {
+		db.execute("delete from w");
+		db.update("insert into w (id,grp,name,doc) values (0,1,'a','d0')");
+		db.update("insert into w (id,grp,name,doc) values (1,2,'b','d1')");
+		db.update("insert into w (id,grp,name,doc) values (2,1,'c','d2')");
+		db.update("insert into w (id,grp,name,doc) values (3,1,'e','d3')");
+	}
+
+	public void testVerifyException(Throwable error) {
+		String msg = "Assertion failed. "
+				+ "Differences found between the expected data set and actual database content.\n"
+				+ "Found differences for table PUBLIC.w:\n\n"
+				+ "  Unexpected row:\n  ID, NAME\n  3, \"e\"\n\n\n"
+				+ "Actual database content:\n\nPUBLIC.W\n"
+				+ "  ID, NAME\n  0, \"a\"\n  2, \"c\"\n  3, \"e\"\n\n";
+		assertEquals(msg, error.getMessage());
+	}
+
+}
@@ -1,7 +1,12 @@
 package test.support;
 
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Properties;
+
 import net.sf.lightair.internal.factory.Factory;
 import net.sf.lightair.internal.properties.PropertiesProvider;
+import net.sf.lightair.internal.util.Profiles;
 
 public class ConfigSupport {
 
@@ -14,12 +19,32 @@ public class ConfigSupport {
 	public static void replaceConfig(String dbName) {
 		propertiesProvider.setPropertiesFileName("light-air-" + dbName
 				+ ".properties");
-		Factory.getInstance().init();
+		reinit();
 	}
 
 	public static void restoreConfig() {
 		propertiesProvider
 				.setPropertiesFileName(PropertiesProvider.DEFAULT_PROPERTIES_FILE_NAME);
+		reinit();
+	}
+
+	/**
+	 * Drop properties of the previous file, so that modes it turned on do not
+	 * leak into other tests, and initialize the factory.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void reinit() {
+		try {
+			Field field = PropertiesProvider.class
+					.getDeclaredField("properties");
+			field.setAccessible(true);
+			Map<String, Properties> properties = (Map<String, Properties>) field
+					.get(propertiesProvider);
+			properties.clear();
+			properties.put(Profiles.DEFAULT_PROFILE, new Properties());
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
 		Factory.getInstance().init();
 	}
 
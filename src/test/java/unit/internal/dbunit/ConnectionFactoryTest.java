@@ -93,6 +93,10 @@ public class ConnectionFactoryTest extends JMockSupport implements PropertyKeys
 				one(config).setProperty(
 						"http://www.dbunit.org/properties/tableType",
 						new String[] { "TABLE", "VIEW" });
+
+				one(config).setProperty(
+						"http://www.dbunit.org/features/batchedStatements",
+						true);
 			}
 		});
 	}
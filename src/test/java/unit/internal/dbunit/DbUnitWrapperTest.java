@@ -1,6 +1,10 @@
 package unit.internal.dbunit;
 
 import static org.junit.Assert.*;
+
+import java.sql.Connection;
+
+import net.sf.lightair.internal.dbunit.AutoPreparedStatementFactory;
 import net.sf.lightair.internal.dbunit.ConnectionFactory;
 import net.sf.lightair.internal.dbunit.DbUnitWrapper;
 import net.sf.lightair.internal.properties.PropertiesProvider;
@@ -17,6 +21,7 @@ public class DbUnitWrapperTest extends JMockSupport {
 	DbUnitWrapper w;
 	ConnectionFactory connectionFactory;
 	PropertiesProvider propertiesProvider;
+	AutoPreparedStatementFactory statementFactory;
 	IDatabaseConnection connection1, connection2, connection3;
 
 	@Before
@@ -26,6 +31,8 @@ public class DbUnitWrapperTest extends JMockSupport {
 		w.setConnectionFactory(connectionFactory);
 		propertiesProvider = mock(PropertiesProvider.class);
 		w.setPropertiesProvider(propertiesProvider);
+		statementFactory = mock(AutoPreparedStatementFactory.class);
+		w.setStatementFactory(statementFactory);
 		connection1 = mock(IDatabaseConnection.class, "connection1");
 		connection2 = mock(IDatabaseConnection.class, "connection2");
 		connection3 = mock(IDatabaseConnection.class, "connection3");
@@ -66,6 +73,31 @@ public class DbUnitWrapperTest extends JMockSupport {
 		assertSame(connection1, actual);
 	}
 
+	@Test
+	public void getConnection_TransactionConnection() {
+		final Connection jdbcConnection = mock(Connection.class);
+		check(new Expectations() {
+			{
+				one(connectionFactory).createConnection("profile1",
+						"schemaName1", jdbcConnection);
+				will(returnValue(connection1));
+
+				one(connectionFactory).createConnection("profile1",
+						"schemaName1");
+				will(returnValue(connection2));
+
+				one(statementFactory).flushStatementCache(jdbcConnection);
+			}
+		});
+
+		w.bindTransactionConnection("profile1", jdbcConnection);
+		assertSame(connection1, w.getConnection("profile1", "schemaName1"));
+		assertSame(connection1, w.getConnection("profile1", "schemaName1"));
+
+		w.unbindTransactionConnection("profile1");
+		assertSame(connection2, w.getConnection("profile1", "schemaName1"));
+	}
+
 	// @Test
 	// unitils caching of dbunit connections does not work with multiple schemas
 	public void getConnection_FromCache() {
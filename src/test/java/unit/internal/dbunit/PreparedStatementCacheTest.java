@@ -0,0 +1,164 @@
+package unit.internal.dbunit;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import net.sf.lightair.internal.dbunit.PreparedStatementCache;
+import net.sf.seaf.test.jmock.JMockSupport;
+
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PreparedStatementCacheTest extends JMockSupport {
+
+	PreparedStatementCache c;
+	Connection connection1, connection2;
+	PreparedStatement statement1, statement2, statement3;
+
+	@Before
+	public void setup() {
+		c = new PreparedStatementCache();
+		c.setSize(2);
+		connection1 = mock(Connection.class, "connection1");
+		connection2 = mock(Connection.class, "connection2");
+		statement1 = mock(PreparedStatement.class, "statement1");
+		statement2 = mock(PreparedStatement.class, "statement2");
+		statement3 = mock(PreparedStatement.class, "statement3");
+	}
+
+	@Test
+	public void take_ReleasedStatementIsReused() throws SQLException {
+		check(new Expectations() {
+			{
+				one(connection1).prepareStatement("sql1");
+				will(returnValue(statement1));
+
+				exactly(2).of(statement1).clearParameters();
+			}
+		});
+
+		PreparedStatement taken = c.take(connection1, "sql1");
+		c.release(connection1, "sql1", taken);
+		assertSame(statement1, c.take(connection1, "sql1"));
+		c.release(connection1, "sql1", statement1);
+
+		assertEquals("Hits", 1, c.getHits());
+		assertEquals("Misses", 1, c.getMisses());
+	}
+
+	@Test
+	public void take_CachedPerConnection() throws SQLException {
+		check(new Expectations() {
+			{
+				one(connection1).prepareStatement("sql1");
+				will(returnValue(statement1));
+
+				one(connection2).prepareStatement("sql1");
+				will(returnValue(statement2));
+
+				one(statement1).clearParameters();
+			}
+		});
+
+		c.release(connection1, "sql1", c.take(connection1, "sql1"));
+		assertSame(statement2, c.take(connection2, "sql1"));
+
+		assertEquals("Hits", 0, c.getHits());
+		assertEquals("Misses", 2, c.getMisses());
+	}
+
+	@Test
+	public void take_TakenStatementIsNotShared() throws SQLException {
+		check(new Expectations() {
+			{
+				one(connection1).prepareStatement("sql1");
+				will(returnValue(statement1));
+
+				one(connection1).prepareStatement("sql1");
+				will(returnValue(statement2));
+
+				one(statement1).clearParameters();
+
+				// same SQL already cached
+				one(statement2).close();
+			}
+		});
+
+		PreparedStatement taken1 = c.take(connection1, "sql1");
+		PreparedStatement taken2 = c.take(connection1, "sql1");
+		assertSame(statement1, taken1);
+		assertSame(statement2, taken2);
+		c.release(connection1, "sql1", taken1);
+		c.release(connection1, "sql1", taken2);
+	}
+
+	@Test
+	public void release_LeastRecentlyUsedEvicted() throws SQLException {
+		check(new Expectations() {
+			{
+				one(connection1).prepareStatement("sql1");
+				will(returnValue(statement1));
+
+				one(connection1).prepareStatement("sql2");
+				will(returnValue(statement2));
+
+				one(connection1).prepareStatement("sql3");
+				will(returnValue(statement3));
+
+				one(statement1).clearParameters();
+				one(statement2).clearParameters();
+				one(statement3).clearParameters();
+
+				one(statement1).close();
+			}
+		});
+
+		c.release(connection1, "sql1", c.take(connection1, "sql1"));
+		c.release(connection1, "sql2", c.take(connection1, "sql2"));
+		c.release(connection1, "sql3", c.take(connection1, "sql3"));
+	}
+
+	@Test
+	public void release_Disabled() throws SQLException {
+		c.setSize(0);
+		check(new Expectations() {
+			{
+				one(connection1).prepareStatement("sql1");
+				will(returnValue(statement1));
+
+				one(statement1).close();
+			}
+		});
+
+		c.release(connection1, "sql1", c.take(connection1, "sql1"));
+	}
+
+	@Test
+	public void flush() throws SQLException {
+		check(new Expectations() {
+			{
+				one(connection1).prepareStatement("sql1");
+				will(returnValue(statement1));
+
+				one(connection2).prepareStatement("sql1");
+				will(returnValue(statement2));
+
+				one(statement1).clearParameters();
+				one(statement2).clearParameters();
+
+				one(statement1).close();
+				one(statement2).close();
+			}
+		});
+
+		c.release(connection1, "sql1", c.take(connection1, "sql1"));
+		c.release(connection2, "sql1", c.take(connection2, "sql1"));
+		c.flush(connection1);
+		c.flush();
+	}
+
+}
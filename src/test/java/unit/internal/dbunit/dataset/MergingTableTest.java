@@ -167,6 +167,40 @@ public class MergingTableTest extends JMockSupport {
 		verifyMergedRow(table, 4, null, ov31, ov33, ov32, ov34);
 	}
 
+	@Test
+	public void addRow_ColumnNames() throws RowOutOfBoundsException {
+		metaData = new MutableTableMetaData("tableName");
+		table = new MergingTable(metaData);
+		tokenReplacingFilter = mock(TokenReplacingFilter.class);
+		table.setTokenReplacingFilter(tokenReplacingFilter);
+		check(new Expectations() {
+			{
+				allowing(tokenReplacingFilter).replaceTokens(with(any(Object.class)));
+				will(returnValue("r"));
+			}
+		});
+		for (int i = 0; i < 20; i++) {
+			table.addRow(new String[] { "a", "b" }, new Object[] { "1", "2" });
+		}
+		table.addRow(new String[] { "B", "c" }, new Object[] { "3", "4" });
+
+		Column[] columns = table.getTableMetaData().getColumns();
+		assertEquals("Columns added once", 3, columns.length);
+		assertEquals("a", columns[0].getColumnName());
+		assertEquals("b", columns[1].getColumnName());
+		assertEquals("c", columns[2].getColumnName());
+		assertEquals("Rows added", 21, table.getRowCount());
+		assertEquals("r", table.getValue(0, "A"));
+		assertEquals("r", table.getValue(20, "b"));
+		assertTrue(table.hasValue(19, "a"));
+		assertFalse(table.hasValue(19, "C"));
+		assertFalse(table.hasValue(20, "a"));
+		assertTrue(table.hasValue(20, "c"));
+		assertNull(table.getValue(0, "c"));
+		assertNull(table.getValue(0, "nonExistent"));
+		assertFalse(table.hasValue(0, "nonExistent"));
+	}
+
 	private void verifyMergedRow(MergingTable table, int rowId, Object v1,
 			Object v2, Object v3, Object otherv1, Object otherv2)
 			throws RowOutOfBoundsException {
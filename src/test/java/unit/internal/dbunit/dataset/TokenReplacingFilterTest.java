@@ -1,6 +1,7 @@
 package unit.internal.dbunit.dataset;
 
 import static org.junit.Assert.*;
+import net.sf.lightair.exception.InvalidDurationFormatException;
 import net.sf.lightair.internal.dbunit.dataset.TokenReplacingFilter;
 
 import org.joda.time.DateMidnight;
@@ -50,4 +51,37 @@ public class TokenReplacingFilterTest {
 				f.replaceTokens("@timestamp~P1MT1M"));
 	}
 
+	@Test
+	public void phase() {
+		TokenReplacingFilter f = new TokenReplacingFilter();
+		DateTimeUtils.setCurrentMillisFixed(new DateTime(2009, 8, 28, 19, 49,
+				59, 987).getMillis());
+		f.startPhase();
+		DateTimeUtils.setCurrentMillisFixed(new DateTime(2010, 8, 28, 19, 49,
+				59, 987).getMillis());
+		assertEquals("Phase time", new DateTime(2009, 8, 28, 19, 49, 59, 987),
+				new DateTime(f.replaceTokens("@timestamp")));
+		assertEquals("Phase time moved", new DateMidnight(2009, 8, 29),
+				new DateTime(f.replaceTokens("@date+P1D")));
+
+		f.finishPhase();
+		assertEquals("Current time", new DateTime(2010, 8, 28, 19, 49, 59, 987),
+				new DateTime(f.replaceTokens("@timestamp")));
+		DateTimeUtils.setCurrentMillisSystem();
+	}
+
+	@Test
+	public void invalidDurationThrowsEachTime() {
+		TokenReplacingFilter f = new TokenReplacingFilter();
+		for (int i = 0; i < 2; i++) {
+			try {
+				f.replaceTokens("@date+P1X");
+				fail("Should throw");
+			} catch (InvalidDurationFormatException e) {
+				assertEquals("Duration [+P1X] does not match the required format.",
+						e.getMessage());
+			}
+		}
+	}
+
 }
@@ -0,0 +1,133 @@
+package unit.internal.unitils;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.unitils.CompiledDataSet;
+import net.sf.lightair.internal.unitils.DataSetCompiler;
+import net.sf.lightair.internal.unitils.DataSetFactory;
+import net.sf.lightair.internal.unitils.ParsedDataSet;
+
+import org.apache.commons.io.FileUtils;
+import org.dbunit.dataset.ITable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class CompiledDataSetTest {
+
+	File directory, file, compiledFile;
+	DataSetFactory f;
+
+	@Before
+	public void before() throws IOException {
+		Factory.getInstance().init();
+		f = Factory.getInstance().getDataSetFactory();
+		directory = new File("target/compiled-datasets");
+		FileUtils.deleteDirectory(directory);
+		directory.mkdirs();
+		file = new File(directory, "ds.xml");
+		compiledFile = new File(directory, "ds.lab");
+	}
+
+	@After
+	public void after() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void readWrite() throws Exception {
+		ParsedDataSet dataSet = new ParsedDataSet();
+		AttributesImpl attributes = new AttributesImpl();
+		dataSet.startElement("", "dataset", "dataset", attributes);
+		attributes.addAttribute("", "id", "id", "CDATA", "1");
+		attributes.addAttribute("", "name", "name", "CDATA", "žluť");
+		dataSet.startElement("schema", "t", "s:t", attributes);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompiledDataSet.write(dataSet, out);
+
+		final StringBuilder elements = new StringBuilder();
+		CompiledDataSet.read(ByteBuffer.wrap(out.toByteArray())).replay(
+				new DefaultHandler() {
+					@Override
+					public void startElement(String namespace,
+							String localName, String qName,
+							Attributes attributes) {
+						elements.append(namespace).append(':')
+								.append(localName).append(':').append(qName);
+						for (int i = 0; i < attributes.getLength(); i++) {
+							elements.append(' ')
+									.append(attributes.getQName(i))
+									.append('=')
+									.append(attributes.getValue(i));
+						}
+						elements.append(';');
+					}
+				});
+		assertEquals(":dataset:dataset;schema:t:s:t id=1 name=žluť;",
+				elements.toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void read_Invalid() throws IOException {
+		CompiledDataSet.read(ByteBuffer.wrap(new byte[] { 'L', 'A', 'B', 9 }));
+	}
+
+	@Test
+	public void compiledUsed() throws Exception {
+		write("<t id='1' />", 1000000000000L);
+		assertTrue(new DataSetCompiler().compile(file));
+		assertTrue(compiledFile.isFile());
+
+		// XML changed, but compiled dataset is not older
+		write("<t id='2' />", 1000000000000L);
+		assertTrue(compiledFile.setLastModified(1000000000000L));
+		assertEquals("1", getId());
+	}
+
+	@Test
+	public void compiledOlder() throws Exception {
+		write("<t id='1' />", 1000000000000L);
+		assertTrue(new DataSetCompiler().compile(file));
+		assertTrue(compiledFile.setLastModified(1000000000000L));
+
+		write("<t id='2' />", 1000000002000L);
+		assertEquals("2", getId());
+	}
+
+	@Test
+	public void compileAll_SkipsNonDatasets() throws Exception {
+		write("<t id='1' />", 1000000000000L);
+		FileUtils.writeStringToFile(new File(directory, "other.xml"),
+				"<beans />", "UTF-8");
+		new File(directory, "sub").mkdirs();
+		FileUtils.writeStringToFile(new File(directory, "sub/sub.xml"),
+				"<dataset />", "UTF-8");
+
+		assertEquals(2, new DataSetCompiler().compileAll(directory));
+		assertTrue(compiledFile.isFile());
+		assertFalse(new File(directory, "other.lab").exists());
+		assertTrue(new File(directory, "sub/sub.lab").isFile());
+	}
+
+	private void write(String row, long lastModified) throws IOException {
+		FileUtils.writeStringToFile(file, "<?xml version='1.0'?><dataset>"
+				+ row + "</dataset>", "UTF-8");
+		assertTrue(file.setLastModified(lastModified));
+	}
+
+	private Object getId() throws Exception {
+		ITable table = f.createDataSet("", file.toURI().toURL())
+				.getDataSetForSchema("PUBLIC").getTable("t");
+		return table.getValue(0, "id");
+	}
+
+}
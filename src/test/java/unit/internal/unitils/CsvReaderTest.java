@@ -0,0 +1,46 @@
+package unit.internal.unitils;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import net.sf.lightair.internal.unitils.CsvReader;
+
+import org.junit.Test;
+
+public class CsvReaderTest {
+
+	@Test
+	public void readRow() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader(
+				"a,b,c\r\n\n1,,\"\"\n\"x,\"\"y\"\"\nz\",2\n,\n"));
+		assertArrayEquals(new String[] { "a", "b", "c" }, reader.readRow());
+		assertArrayEquals(new String[] { "1", null, "" }, reader.readRow());
+		assertArrayEquals(new String[] { "x,\"y\"\nz", "2" }, reader.readRow());
+		assertArrayEquals(new String[] { null, null }, reader.readRow());
+		assertNull(reader.readRow());
+		assertNull(reader.readRow());
+	}
+
+	@Test
+	public void readRow_NoTrailingLineBreak() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("a,\"b\""));
+		assertArrayEquals(new String[] { "a", "b" }, reader.readRow());
+		assertNull(reader.readRow());
+	}
+
+	@Test
+	public void readRow_Unterminated() {
+		CsvReader reader = new CsvReader(new StringReader("a\n\"b,c\n"));
+		try {
+			reader.readRow();
+			reader.readRow();
+			fail("Should throw");
+		} catch (IOException e) {
+			assertEquals("Quoted field starting on line 2 is not terminated.",
+					e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+package unit.internal.unitils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import net.sf.lightair.exception.DataSetNotFoundException;
+import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.unitils.DataSetFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataSetFactoryTest {
+
+	DataSetFactory f;
+	File file;
+	URL url;
+
+	@Before
+	public void before() throws IOException {
+		Factory.getInstance().init();
+		f = Factory.getInstance().getDataSetFactory();
+		file = File.createTempFile("lightair", ".xml");
+		url = file.toURI().toURL();
+	}
+
+	@After
+	public void after() {
+		DateTimeUtils.setCurrentMillisSystem();
+		file.delete();
+	}
+
+	@Test
+	public void createDataSet_TokensReplacedOnEachUse() throws Exception {
+		write("<t id='1' d='@date' />", 1000000000000L);
+
+		DateTimeUtils.setCurrentMillisFixed(new DateTime(2009, 8, 28, 19, 49,
+				59, 987).getMillis());
+		Object date1 = getValue("d");
+		DateTimeUtils.setCurrentMillisFixed(new DateTime(2010, 8, 28, 19, 49,
+				59, 987).getMillis());
+		Object date2 = getValue("d");
+
+		assertFalse("Date replaced again", date1.equals(date2));
+	}
+
+	@Test
+	public void createDataSet_ModifiedFileParsedAgain() throws Exception {
+		write("<t id='1' />", 1000000000000L);
+		assertEquals("1", getValue("id"));
+
+		write("<t id='2' />", 1000000002000L);
+		assertEquals("2", getValue("id"));
+	}
+
+	@Test
+	public void createDataSet_ParallelSameAsSequential() throws Exception {
+		URL[] urls = new URL[8];
+		for (int i = 0; i < urls.length; i++) {
+			File part = File.createTempFile("lightair", ".xml");
+			part.deleteOnExit();
+			FileUtils.writeStringToFile(part, "<?xml version='1.0'?><dataset>"
+					+ "<t" + (i % 3) + " id='" + i + "a' />" + "<u id='" + i
+					+ "' />" + "<t" + (i % 3) + " id='" + i + "b' />"
+					+ "</dataset>", "UTF-8");
+			urls[i] = part.toURI().toURL();
+		}
+
+		f.setParseThreads(1);
+		String sequential = toString(f.createDataSet("", urls)
+				.getDataSetForSchema("PUBLIC"));
+		f.setParseThreads(4);
+		String parallel = toString(f.createDataSet("", urls)
+				.getDataSetForSchema("PUBLIC"));
+
+		assertEquals("t0:0a,0b,3a,3b,6a,6b;u:0,1,2,3,4,5,6,7;"
+				+ "t1:1a,1b,4a,4b,7a,7b;t2:2a,2b,5a,5b;", sequential);
+		assertEquals(sequential, parallel);
+	}
+
+	@Test(expected = DataSetNotFoundException.class)
+	public void createDataSet_ParallelFileNotFound() throws Exception {
+		write("<t id='1' />", 1000000000000L);
+		f.setParseThreads(4);
+		f.createDataSet("", url, new File(file.getPath() + ".missing")
+				.toURI().toURL());
+	}
+
+	private String toString(IDataSet dataSet) throws DataSetException {
+		StringBuilder sb = new StringBuilder();
+		for (String tableName : dataSet.getTableNames()) {
+			ITable table = dataSet.getTable(tableName);
+			sb.append(tableName).append(':');
+			for (int row = 0; row < table.getRowCount(); row++) {
+				sb.append(row > 0 ? "," : "").append(table.getValue(row, "id"));
+			}
+			sb.append(';');
+		}
+		return sb.toString();
+	}
+
+	private void write(String row, long lastModified) throws IOException {
+		FileUtils.writeStringToFile(file, "<?xml version='1.0'?><dataset>"
+				+ row + "</dataset>", "UTF-8");
+		assertTrue(file.setLastModified(lastModified));
+	}
+
+	private Object getValue(String column) throws DataSetException {
+		ITable table = f.createDataSet("", url).getDataSetForSchema("PUBLIC")
+				.getTable("t");
+		return table.getValue(0, column);
+	}
+
+}
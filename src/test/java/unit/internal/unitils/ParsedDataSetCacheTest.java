@@ -0,0 +1,84 @@
+package unit.internal.unitils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import net.sf.lightair.internal.unitils.ParsedDataSet;
+import net.sf.lightair.internal.unitils.ParsedDataSetCache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParsedDataSetCacheTest {
+
+	ParsedDataSetCache c;
+	URL url1, url2, url3;
+	ParsedDataSet dataSet1, dataSet2, dataSet3;
+
+	@Before
+	public void before() throws IOException {
+		c = new ParsedDataSetCache();
+		c.setSize(2);
+		url1 = new URL("file:/ds1.xml");
+		url2 = new URL("file:/ds2.xml");
+		url3 = new URL("file:/ds3.xml");
+		dataSet1 = new ParsedDataSet();
+		dataSet2 = new ParsedDataSet();
+		dataSet3 = new ParsedDataSet();
+	}
+
+	@Test
+	public void get_Cached() {
+		c.put(url1, 10, dataSet1);
+		assertSame(dataSet1, c.get(url1, 10));
+		assertNull(c.get(url2, 10));
+	}
+
+	@Test
+	public void get_Modified() {
+		c.put(url1, 10, dataSet1);
+		assertNull("Modified", c.get(url1, 11));
+		assertNull("Removed", c.get(url1, 10));
+	}
+
+	@Test
+	public void put_LeastRecentlyUsedEvicted() {
+		c.put(url1, 10, dataSet1);
+		c.put(url2, 10, dataSet2);
+		c.get(url1, 10);
+		c.put(url3, 10, dataSet3);
+
+		assertSame(dataSet1, c.get(url1, 10));
+		assertNull(c.get(url2, 10));
+		assertSame(dataSet3, c.get(url3, 10));
+	}
+
+	@Test
+	public void put_LastModifiedUnknown() {
+		c.put(url1, 0, dataSet1);
+		assertNull(c.get(url1, 0));
+	}
+
+	@Test
+	public void put_Disabled() {
+		c.setSize(0);
+		c.put(url1, 10, dataSet1);
+		assertNull(c.get(url1, 10));
+	}
+
+	@Test
+	public void getLastModified_File() throws IOException {
+		File file = File.createTempFile("lightair", ".xml");
+		try {
+			assertTrue(file.setLastModified(1000000000000L));
+			assertEquals(1000000000000L,
+					c.getLastModified(file.toURI().toURL()));
+		} finally {
+			file.delete();
+		}
+	}
+
+}
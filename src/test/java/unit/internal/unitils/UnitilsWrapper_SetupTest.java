@@ -3,14 +3,18 @@ package unit.internal.unitils;
 import static org.junit.Assert.*;
 
 import java.lang.reflect.Method;
+import java.net.URL;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 
 import net.sf.lightair.exception.DatabaseAccessException;
 import net.sf.lightair.internal.dbunit.DbUnitWrapper;
+import net.sf.lightair.internal.dbunit.bulk.SnapshotStore;
 import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.unitils.ChangeTracker;
 import net.sf.lightair.internal.unitils.DataSetLoader;
+import net.sf.lightair.internal.unitils.DataSetStreamer;
 import net.sf.lightair.internal.unitils.UnitilsWrapper;
 import net.sf.seaf.test.jmock.JMockSupport;
 
@@ -35,6 +39,9 @@ public class UnitilsWrapper_SetupTest extends JMockSupport {
 	IDatabaseConnection c1, c2, c3;
 	Factory factory;
 	DatabaseOperation dbo;
+	SnapshotStore snapshotStore;
+	DataSetStreamer dataSetStreamer;
+	ChangeTracker changeTracker;
 
 	@Before
 	public void before() throws SecurityException, NoSuchMethodException {
@@ -55,6 +62,23 @@ public class UnitilsWrapper_SetupTest extends JMockSupport {
 		factory = mock(Factory.class);
 		w.setFactory(factory);
 		dbo = mock(DatabaseOperation.class);
+		snapshotStore = mock(SnapshotStore.class);
+		w.setSnapshotStore(snapshotStore);
+		dataSetStreamer = mock(DataSetStreamer.class);
+		w.setDataSetStreamer(dataSetStreamer);
+		changeTracker = mock(ChangeTracker.class);
+		w.setChangeTracker(changeTracker);
+		check(new Expectations() {
+			{
+				allowing(dataSetStreamer).isEnabled("profile1");
+				will(returnValue(false));
+
+				allowing(changeTracker).reset("profile1");
+
+				allowing(changeTracker).isEnabled("profile1");
+				will(returnValue(false));
+			}
+		});
 	}
 
 	@Test
@@ -67,13 +91,116 @@ public class UnitilsWrapper_SetupTest extends JMockSupport {
 		w.setup(testMethod, "profile1", fileNames);
 	}
 
+	@Test
+	public void changesTracked() throws SQLException, DatabaseUnitException {
+		w.setChangeTracker(changeTracker = mock(ChangeTracker.class,
+				"changeTracker2"));
+		checkCommons();
+		checkExecuteForSchema("schema1", ds1, c1);
+		checkExecuteForSchema("schema2", ds2, c2);
+		checkExecuteForSchema("schema3", ds3, c3);
+		check(new Expectations() {
+			{
+				one(changeTracker).reset("profile1");
+
+				one(changeTracker).isEnabled("profile1");
+				will(returnValue(true));
+
+				one(changeTracker).track("profile1", multiSchemaDataSet);
+			}
+		});
+
+		w.setup(testMethod, "profile1", fileNames);
+	}
+
+	@Test
+	public void streaming() throws Exception {
+		w.setDataSetStreamer(dataSetStreamer = mock(DataSetStreamer.class,
+				"streaming"));
+		final URL[] urls = { new URL("file:fn1") };
+		check(new Expectations() {
+			{
+				one(dataSetStreamer).isEnabled("profile1");
+				will(returnValue(true));
+
+				one(dataSetLoader).resolve(testMethod, "", fileNames);
+				will(returnValue(urls));
+
+				one(dataSetStreamer).setup("profile1", urls);
+			}
+		});
+
+		w.setup(testMethod, "profile1", fileNames);
+	}
+
+	@Test
+	public void snapshotRestored() throws Exception {
+		final URL[] urls = { new URL("file:fn1") };
+		check(new Expectations() {
+			{
+				one(snapshotStore).isEnabled("profile1");
+				will(returnValue(true));
+
+				one(dataSetLoader).resolve(testMethod, "", fileNames);
+				will(returnValue(urls));
+
+				one(snapshotStore).getKey("profile1", urls);
+				will(returnValue("key1"));
+
+				one(snapshotStore).restore("profile1", "key1");
+				will(returnValue(true));
+			}
+		});
+
+		w.setup(testMethod, "profile1", fileNames);
+	}
+
+	@Test
+	public void snapshotCaptured() throws Exception {
+		final URL[] urls = { new URL("file:fn1") };
+		check(new Expectations() {
+			{
+				one(snapshotStore).isEnabled("profile1");
+				will(returnValue(true));
+
+				one(dataSetLoader).resolve(testMethod, "", fileNames);
+				will(returnValue(urls));
+
+				one(snapshotStore).getKey("profile1", urls);
+				will(returnValue("key1"));
+
+				one(snapshotStore).restore("profile1", "key1");
+				will(returnValue(false));
+
+				one(dataSetLoader).load("profile1", testMethod, "", fileNames);
+				will(returnValue(multiSchemaDataSet));
+
+				one(factory).getCleanInsertDatabaseOperation("profile1");
+				will(returnValue(dbo));
+
+				one(multiSchemaDataSet).getSchemaNames();
+				will(returnValue(new LinkedHashSet<String>(Arrays
+						.asList("schema1"))));
+
+				one(snapshotStore).capture("profile1", "key1",
+						multiSchemaDataSet);
+			}
+		});
+		checkExecuteForSchema("schema1", ds1, c1);
+
+		w.setup(testMethod, "profile1", fileNames);
+	}
+
 	private void checkCommons() {
 		check(new Expectations() {
 			{
+				allowing(snapshotStore).isEnabled("profile1");
+				will(returnValue(false));
+
 				one(dataSetLoader).load("profile1", testMethod, "", fileNames);
 				will(returnValue(multiSchemaDataSet));
 
-				one(factory).getCleanInsertDatabaseOperation();
+				one(factory).getCleanInsertDatabaseOperation("profile1");
 				will(returnValue(dbo));
 
 				one(multiSchemaDataSet).getSchemaNames();
@@ -10,7 +10,12 @@ import java.util.LinkedHashSet;
 import net.sf.lightair.exception.DatabaseAccessException;
 import net.sf.lightair.internal.dbunit.DbUnitWrapper;
 import net.sf.lightair.internal.factory.Factory;
+import net.sf.lightair.internal.unitils.ActualDataSetReader;
+import net.sf.lightair.internal.unitils.ChangeTracker;
 import net.sf.lightair.internal.unitils.DataSetLoader;
+import net.sf.lightair.internal.unitils.FingerprintVerifier;
+import net.sf.lightair.internal.unitils.ParallelVerifier;
+import net.sf.lightair.internal.unitils.SqlVerifier;
 import net.sf.lightair.internal.unitils.UnitilsWrapper;
 import net.sf.lightair.internal.unitils.compare.DataSetAssert;
 import net.sf.seaf.test.jmock.JMockSupport;
@@ -21,6 +26,7 @@ import org.dbunit.dataset.IDataSet;
 import org.jmock.Expectations;
 import org.junit.Before;
 import org.junit.Test;
+import org.unitils.dbunit.dataset.Schema;
 import org.unitils.dbunit.util.MultiSchemaDataSet;
 
 public class UnitilsWrapper_VerifyTest extends JMockSupport {
@@ -30,11 +36,17 @@ public class UnitilsWrapper_VerifyTest extends JMockSupport {
 	String[] fileNames = { "fn1", "fn2", "fn3" };
 	DataSetLoader dataSetLoader;
 	MultiSchemaDataSet multiSchemaDataSet;
-	IDataSet dsE1, dsE2, dsE3, dsA1, dsA2, dsA3;
+	IDataSet dsE1, dsE2, dsE3;
+	Schema dsA1, dsA2, dsA3;
 	DbUnitWrapper dbUnitWrapper;
 	IDatabaseConnection c1, c2, c3;
 	Factory factory;
 	DataSetAssert dataSetAssert;
+	SqlVerifier sqlVerifier;
+	ActualDataSetReader actualDataSetReader;
+	ParallelVerifier parallelVerifier;
+	FingerprintVerifier fingerprintVerifier;
+	ChangeTracker changeTracker;
 
 	@Before
 	public void before() throws SecurityException, NoSuchMethodException {
@@ -47,9 +59,9 @@ public class UnitilsWrapper_VerifyTest extends JMockSupport {
 		dsE1 = mock(IDataSet.class, "dsE1");
 		dsE2 = mock(IDataSet.class, "dsE2");
 		dsE3 = mock(IDataSet.class, "dsE3");
-		dsA1 = mock(IDataSet.class, "dsA1");
-		dsA2 = mock(IDataSet.class, "dsA2");
-		dsA3 = mock(IDataSet.class, "dsA3");
+		dsA1 = mock(Schema.class, "dsA1");
+		dsA2 = mock(Schema.class, "dsA2");
+		dsA3 = mock(Schema.class, "dsA3");
 		dbUnitWrapper = mock(DbUnitWrapper.class);
 		w.setDbUnitWrapper(dbUnitWrapper);
 		c1 = mock(IDatabaseConnection.class, "c1");
@@ -59,6 +71,31 @@ public class UnitilsWrapper_VerifyTest extends JMockSupport {
 		w.setFactory(factory);
 		dataSetAssert = mock(DataSetAssert.class);
 		w.setDataSetAssert(dataSetAssert);
+		sqlVerifier = mock(SqlVerifier.class);
+		w.setSqlVerifier(sqlVerifier);
+		actualDataSetReader = mock(ActualDataSetReader.class);
+		w.setActualDataSetReader(actualDataSetReader);
+		parallelVerifier = mock(ParallelVerifier.class);
+		w.setParallelVerifier(parallelVerifier);
+		fingerprintVerifier = mock(FingerprintVerifier.class);
+		w.setFingerprintVerifier(fingerprintVerifier);
+		changeTracker = mock(ChangeTracker.class);
+		w.setChangeTracker(changeTracker);
+		check(new Expectations() {
+			{
+				allowing(sqlVerifier).isEnabled("profile1");
+				will(returnValue(false));
+
+				allowing(parallelVerifier).isEnabled("profile1");
+				will(returnValue(false));
+
+				allowing(fingerprintVerifier).isEnabled("profile1");
+				will(returnValue(false));
+
+				allowing(changeTracker).isEnabled("profile1");
+				will(returnValue(false));
+			}
+		});
 	}
 
 	@Test
@@ -86,7 +123,7 @@ public class UnitilsWrapper_VerifyTest extends JMockSupport {
 	}
 
 	private void checkExecuteForSchema(final String schemaName,
-			final IDataSet dsE, final IDataSet dsA, final IDatabaseConnection c)
+			final IDataSet dsE, final Schema dsA, final IDatabaseConnection c)
             throws SQLException, DataSetException {
 		check(new Expectations() {
 			{
@@ -99,7 +136,8 @@ public class UnitilsWrapper_VerifyTest extends JMockSupport {
                 one(dsE).getTableNames();
                 will(returnValue(new String[]{ "s1", "s2", "s3" }));
 
-				one(c).createDataSet(new String[]{ "s1", "s2", "s3" });
+				one(actualDataSetReader).read("profile1", schemaName, c, dsE,
+						new String[] { "s1", "s2", "s3" });
 				will(returnValue(dsA));
 
 				one(dataSetAssert).assertEqualDbUnitDataSets(schemaName, dsE,
@@ -108,6 +146,181 @@ public class UnitilsWrapper_VerifyTest extends JMockSupport {
 		});
 	}
 
+	@Test
+	public void parallel() {
+		w.setParallelVerifier(parallelVerifier = mock(ParallelVerifier.class,
+				"parallelVerifier2"));
+		check(new Expectations() {
+			{
+				one(dataSetLoader).load("profile1", testMethod, "-verify",
+						fileNames);
+				will(returnValue(multiSchemaDataSet));
+
+				one(parallelVerifier).isEnabled("profile1");
+				will(returnValue(true));
+
+				one(parallelVerifier).verify("profile1", multiSchemaDataSet);
+			}
+		});
+
+		w.verify(testMethod, "profile1", fileNames);
+	}
+
+	@Test
+	public void sqlVerify() throws SQLException, DataSetException {
+		w.setSqlVerifier(sqlVerifier = mock(SqlVerifier.class, "sqlVerifier2"));
+		checkCommons();
+		check(new Expectations() {
+			{
+				allowing(sqlVerifier).isEnabled("profile1");
+				will(returnValue(true));
+
+				one(multiSchemaDataSet).getDataSetForSchema("schema1");
+				will(returnValue(dsE1));
+				one(dbUnitWrapper).getConnection("profile1", "schema1");
+				will(returnValue(c1));
+				one(dsE1).getTableNames();
+				will(returnValue(new String[] { "s1", "s2" }));
+				one(sqlVerifier).getTablesToCompare("profile1", c1, dsE1);
+				will(returnValue(new String[0]));
+
+				one(multiSchemaDataSet).getDataSetForSchema("schema2");
+				will(returnValue(dsE2));
+				one(dbUnitWrapper).getConnection("profile1", "schema2");
+				will(returnValue(c2));
+				one(dsE2).getTableNames();
+				will(returnValue(new String[] { "s1", "s2" }));
+				one(sqlVerifier).getTablesToCompare("profile1", c2, dsE2);
+				will(returnValue(new String[] { "s2" }));
+				allowing(dsE2).isCaseSensitiveTableNames();
+				will(returnValue(false));
+				one(actualDataSetReader).read("profile1", "schema2", c2, dsE2,
+						new String[] { "s2" });
+				will(returnValue(dsA2));
+				one(dataSetAssert).assertEqualDbUnitDataSets(
+						with(equal("schema2")), with(any(IDataSet.class)),
+						with(same(dsA2)));
+
+				one(multiSchemaDataSet).getDataSetForSchema("schema3");
+				will(returnValue(dsE3));
+				one(dbUnitWrapper).getConnection("profile1", "schema3");
+				will(returnValue(c3));
+				one(dsE3).getTableNames();
+				will(returnValue(new String[0]));
+				one(sqlVerifier).getTablesToCompare("profile1", c3, dsE3);
+				will(returnValue(new String[0]));
+			}
+		});
+
+		w.verify(testMethod, "profile1", fileNames);
+	}
+
+	@Test
+	public void changesTracked() throws SQLException, DataSetException {
+		w.setChangeTracker(changeTracker = mock(ChangeTracker.class,
+				"changeTracker2"));
+		checkCommons();
+		check(new Expectations() {
+			{
+				allowing(changeTracker).isEnabled("profile1");
+				will(returnValue(true));
+
+				one(multiSchemaDataSet).getDataSetForSchema("schema1");
+				will(returnValue(dsE1));
+				one(dbUnitWrapper).getConnection("profile1", "schema1");
+				will(returnValue(c1));
+				one(dsE1).getTableNames();
+				will(returnValue(new String[] { "s1", "s2" }));
+				one(changeTracker).getTablesToCompare("profile1", "schema1",
+						c1, dsE1);
+				will(returnValue(new String[0]));
+
+				one(multiSchemaDataSet).getDataSetForSchema("schema2");
+				will(returnValue(dsE2));
+				one(dbUnitWrapper).getConnection("profile1", "schema2");
+				will(returnValue(c2));
+				one(dsE2).getTableNames();
+				will(returnValue(new String[] { "s1", "s2" }));
+				one(changeTracker).getTablesToCompare("profile1", "schema2",
+						c2, dsE2);
+				will(returnValue(new String[] { "s2" }));
+				allowing(dsE2).isCaseSensitiveTableNames();
+				will(returnValue(false));
+				one(actualDataSetReader).read("profile1", "schema2", c2, dsE2,
+						new String[] { "s2" });
+				will(returnValue(dsA2));
+				one(dataSetAssert).assertEqualDbUnitDataSets(
+						with(equal("schema2")), with(any(IDataSet.class)),
+						with(same(dsA2)));
+
+				one(multiSchemaDataSet).getDataSetForSchema("schema3");
+				will(returnValue(dsE3));
+				one(dbUnitWrapper).getConnection("profile1", "schema3");
+				will(returnValue(c3));
+				one(dsE3).getTableNames();
+				will(returnValue(new String[] { "s3" }));
+				one(changeTracker).getTablesToCompare("profile1", "schema3",
+						c3, dsE3);
+				will(returnValue(new String[0]));
+			}
+		});
+
+		w.verify(testMethod, "profile1", fileNames);
+	}
+
+	@Test
+	public void fingerprint() throws SQLException, DataSetException {
+		w.setFingerprintVerifier(fingerprintVerifier = mock(
+				FingerprintVerifier.class, "fingerprintVerifier2"));
+		checkCommons();
+		check(new Expectations() {
+			{
+				allowing(fingerprintVerifier).isEnabled("profile1");
+				will(returnValue(true));
+
+				one(multiSchemaDataSet).getDataSetForSchema("schema1");
+				will(returnValue(dsE1));
+				one(dbUnitWrapper).getConnection("profile1", "schema1");
+				will(returnValue(c1));
+				one(dsE1).getTableNames();
+				will(returnValue(new String[] { "s1", "s2" }));
+				one(fingerprintVerifier).getTablesToCompare("profile1", c1,
+						dsE1, new String[] { "s1", "s2" });
+				will(returnValue(new String[0]));
+
+				one(multiSchemaDataSet).getDataSetForSchema("schema2");
+				will(returnValue(dsE2));
+				one(dbUnitWrapper).getConnection("profile1", "schema2");
+				will(returnValue(c2));
+				one(dsE2).getTableNames();
+				will(returnValue(new String[] { "s1", "s2" }));
+				one(fingerprintVerifier).getTablesToCompare("profile1", c2,
+						dsE2, new String[] { "s1", "s2" });
+				will(returnValue(new String[] { "s2" }));
+				allowing(dsE2).isCaseSensitiveTableNames();
+				will(returnValue(false));
+				one(actualDataSetReader).read("profile1", "schema2", c2, dsE2,
+						new String[] { "s2" });
+				will(returnValue(dsA2));
+				one(dataSetAssert).assertEqualDbUnitDataSets(
+						with(equal("schema2")), with(any(IDataSet.class)),
+						with(same(dsA2)));
+
+				one(multiSchemaDataSet).getDataSetForSchema("schema3");
+				will(returnValue(dsE3));
+				one(dbUnitWrapper).getConnection("profile1", "schema3");
+				will(returnValue(c3));
+				one(dsE3).getTableNames();
+				will(returnValue(new String[] { "s3" }));
+				one(fingerprintVerifier).getTablesToCompare("profile1", c3,
+						dsE3, new String[] { "s3" });
+				will(returnValue(new String[0]));
+			}
+		});
+
+		w.verify(testMethod, "profile1", fileNames);
+	}
+
 	@Test
 	public void fail_SQLException_InCreateDataSet() throws SQLException, DataSetException {
 		final SQLException cause = new SQLException();
@@ -123,7 +336,8 @@ public class UnitilsWrapper_VerifyTest extends JMockSupport {
                 one(dsE1).getTableNames();
                 will(returnValue(new String[]{ "s1", "s2", "s3" }));
 
-                one(c1).createDataSet(new String[]{ "s1", "s2", "s3" });
+				one(actualDataSetReader).read("profile1", "schema1", c1, dsE1,
+						new String[] { "s1", "s2", "s3" });
 				will(throwException(cause));
 			}
 		});
@@ -0,0 +1,83 @@
+package unit.internal.unitils.compare;
+
+import static org.junit.Assert.*;
+
+import java.sql.Timestamp;
+
+import org.dbunit.dataset.datatype.DataType;
+import org.jmock.Expectations;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sf.lightair.internal.unitils.compare.Column;
+import net.sf.lightair.internal.unitils.compare.VariableResolver;
+import net.sf.seaf.test.jmock.JMockSupport;
+
+public class Column_MatchKeyTest extends JMockSupport {
+
+	Column c;
+	VariableResolver variableResolver;
+
+	@Before
+	public void before() {
+		variableResolver = mock(VariableResolver.class);
+	}
+
+	@Test
+	public void castedValue() {
+		c = column("123", false);
+		assertEquals(Column.getActualMatchKey(123),
+				c.getMatchKey(DataType.INTEGER));
+		assertFalse(Column.getActualMatchKey(124).equals(
+				c.getMatchKey(DataType.INTEGER)));
+	}
+
+	@Test
+	public void nullValue() {
+		c = new Column(null, null, null, 0, null, null);
+		assertEquals(Column.getActualMatchKey(null),
+				c.getMatchKey(DataType.VARCHAR));
+	}
+
+	@Test
+	public void binary() {
+		c = column("AQI=", false);
+		assertEquals(Column.getActualMatchKey(new byte[] { 1, 2 }),
+				c.getMatchKey(DataType.BLOB));
+	}
+
+	@Test
+	public void temporal() {
+		c = column("2009-08-28 19:49:59.987", false);
+		assertEquals(Column.getActualMatchKey(Timestamp
+				.valueOf("2009-08-28 19:49:59.987")),
+				c.getMatchKey(DataType.TIMESTAMP));
+
+		c = column("2009-08-28 19:49:59.987", false);
+		c.setTimeDifferenceLimit(1000);
+		assertSame(Column.NO_KEY, c.getMatchKey(DataType.TIMESTAMP));
+	}
+
+	@Test
+	public void noKey() {
+		c = new Column(null, null, null, 0, null, "@any");
+		assertSame("@any", Column.NO_KEY, c.getMatchKey(DataType.VARCHAR));
+		c = new Column(null, null, null, 0, null, "@auto");
+		assertSame("@auto", Column.NO_KEY, c.getMatchKey(DataType.VARCHAR));
+		c = column("$var", true);
+		assertSame("Variable", Column.NO_KEY, c.getMatchKey(DataType.VARCHAR));
+	}
+
+	private Column column(final String value, final boolean variable) {
+		Column column = new Column(null, null, null, 0, null, value);
+		column.setVariableResolver(variableResolver);
+		check(new Expectations() {
+			{
+				allowing(variableResolver).isVariable(value);
+				will(returnValue(variable));
+			}
+		});
+		return column;
+	}
+
+}
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNull;
 import java.math.BigInteger;
 
 import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
 import org.jmock.Expectations;
 import org.junit.Before;
 import org.junit.Test;
@@ -86,6 +87,29 @@ public class Column_PreCompareTest extends JMockSupport {
 		assertNotNull(c.preCompare(other, 0));
 	}
 
+	@Test
+	public void castOnce() throws TypeCastException {
+		c = new Column(null, null, null, 0, null, "123");
+		c.setVariableResolver(variableResolver);
+		final DataType type = mock(DataType.class);
+		org.unitils.dbunit.dataset.Column other1 = new org.unitils.dbunit.dataset.Column(null, type, 123);
+		org.unitils.dbunit.dataset.Column other2 = new org.unitils.dbunit.dataset.Column(null, type, 124);
+
+		check(new Expectations() {
+			{
+				allowing(variableResolver).isVariable(with(any(String.class)));
+				will(returnValue(false));
+
+				one(type).typeCast("123");
+				will(returnValue(123));
+			}
+		});
+
+		assertNull(c.preCompare(other1, 0));
+		assertNotNull(c.preCompare(other2, 0));
+		assertNull(c.preCompare(other1, 0));
+	}
+
 	@Test
 	public void hexInt() {
 		c = new Column(null, null, null, 0, null, "0x6ABCDE");
@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.lang.reflect.Method;
+import java.net.URL;
 
 import net.sf.lightair.exception.DataSetNotFoundException;
 import net.sf.lightair.internal.util.DataSetResolver;
@@ -53,4 +54,25 @@ public class DataSetResolverTest {
 		}
 	}
 
+	@Test
+	public void resolveIfExists_Cached() {
+		final int[] lookups = { 0 };
+		r = new DataSetResolver() {
+			@Override
+			protected URL getResource(Class<?> testClass, String fileName) {
+				lookups[0]++;
+				return super.getResource(testClass, fileName);
+			}
+		};
+		URL url = r.resolveIfExists(testMethod, fileName);
+		assertSame(url, r.resolveIfExists(testMethod, fileName));
+		assertNull(r.resolveIfExists(testMethod, "nonexistent"));
+		assertNull(r.resolveIfExists(testMethod, "nonexistent"));
+		assertEquals("Lookups", 2, lookups[0]);
+
+		r.clearCache();
+		assertEquals(url, r.resolveIfExists(testMethod, fileName));
+		assertEquals("Lookups after clear", 3, lookups[0]);
+	}
+
 }